@@ -2,44 +2,59 @@ package com.microntek.weatherapp;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.Lifecycle;
 
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.graphics.Color;
+import android.graphics.Rect;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
+import android.text.TextUtils;
 import android.util.Log;
-import android.view.LayoutInflater;
 import android.view.MenuItem;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.ImageView;
-import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import com.microntek.weatherapp.adapter.ForecastAdapter;
 import com.microntek.weatherapp.api.WeatherApi;
 import com.microntek.weatherapp.model.City;
+import com.microntek.weatherapp.model.LifeIndexType;
 import com.microntek.weatherapp.model.Weather;
+import com.microntek.weatherapp.model.WeatherSnapshot;
 import com.microntek.weatherapp.ui.CityManagerActivity;
 import com.microntek.weatherapp.util.AirPollutionUtil;
 import com.microntek.weatherapp.util.CityPreferences;
+import com.microntek.weatherapp.util.CityRegistry;
+import com.microntek.weatherapp.util.CityViewTracker;
+import com.microntek.weatherapp.util.LifeIndexSubscriptions;
 import com.microntek.weatherapp.util.WeatherBackgroundUtil;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.microntek.weatherapp.util.LocationHelper;
+import com.microntek.weatherapp.service.WeatherBroadcastPublisher;
 import com.microntek.weatherapp.service.WeatherDataService;
 import com.microntek.weatherapp.util.NetworkMonitor;
 import com.microntek.weatherapp.util.MessageManager;
 import com.microntek.weatherapp.util.ExecutorManager;
+import com.microntek.weatherapp.util.PriorityTaskScheduler.Priority;
+import com.microntek.weatherapp.util.PaintTrace;
+import com.microntek.weatherapp.util.TaskGroup;
+import com.microntek.weatherapp.util.WeatherDataCache;
 
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import org.json.JSONException;
 
 import java.io.IOException;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ExecutorService;
@@ -60,7 +75,8 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
     private TextView tvAqi;
     private TextView tvPm25;
     private TextView tvPm10;
-    private LinearLayout forecastContainer;
+    private RecyclerView forecastList;
+    private ForecastAdapter forecastAdapter;
     private TextView tvWind;
     private TextView tvHumidity;
     private TextView tvSunrise;
@@ -73,7 +89,8 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
     
     // 数据处理
     private CityPreferences cityPreferences;
-    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // 本页面提交的后台任务，页面销毁时取消
+    private final TaskGroup taskGroup = new TaskGroup("MainActivity");
     
     // 添加请求码常量
     private static final int REQUEST_CODE_CITY_MANAGER = 1001;
@@ -91,6 +108,52 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
     // 网络状态广播接收器
     private BroadcastReceiver networkReceiver;
     
+    // 应用内天气数据观察者，服务发布当前城市的新数据时重新加载界面
+    private final WeatherBroadcastPublisher.Observer weatherObserver = this::onPublishedWeatherChanged;
+    
+    // 城市注册表观察者，当前城市切换时重新加载界面
+    private final CityRegistry.Observer cityObserver = this::onCitiesChanged;
+    
+    // 最近一次开始加载的城市ID，用于判断当前城市是否已切换
+    private String requestedCityId;
+    
+    // 页面不可见期间当前城市已切换，回到页面时重新加载
+    private boolean currentCityChanged = false;
+    
+    // 当前界面显示的天气快照，用于判断发布的数据是否有变化
+    private WeatherSnapshot displayedSnapshot;
+    
+    // 已绑定数据的城市ID，为null时各区域显示骨架占位
+    private String boundCityId;
+    
+    // 骨架占位的文字和透明度
+    private static final String SKELETON_TEXT = "--";
+    private static final float SKELETON_ALPHA = 0.4f;
+    
+    // 生活指数项视图
+    private static final int[] LIFE_INDEX_VIEW_IDS = {
+            R.id.index_clothes, R.id.index_sport, R.id.index_uv,
+            R.id.index_car_wash, R.id.index_travel, R.id.index_comfort,
+            R.id.index_flu, R.id.index_air_pollution, R.id.index_traffic
+    };
+    
+    // 首页显示的生活指数类型
+    private static final Set<LifeIndexType> LIFE_INDEX_TYPES = EnumSet.allOf(LifeIndexType.class);
+    
+    // 已加载完成的天气数据和对应的位置ID，生活指数区域可见时用于按需加载
+    private Weather displayedWeather;
+    private String displayedLocationId;
+    
+    // 已开始加载生活指数的城市ID，避免滚动时重复加载
+    private String lifeIndicesCityId;
+    
+    // 是否已订阅生活指数，页面不可见时取消订阅，后台刷新不再请求生活指数
+    private boolean lifeIndicesSubscribed = false;
+    
+    // 页面滚动时检查生活指数区域是否进入可见范围
+    private final ViewTreeObserver.OnScrollChangedListener lifeIndexScrollListener =
+            this::loadLifeIndicesIfVisible;
+    
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         // 应用主题设置
@@ -132,7 +195,7 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
         if (currentCity != null) {
             String locationId = currentCity.getLongitude() + "," + currentCity.getLatitude();
             // 在后台线程验证并修复缓存
-            ExecutorManager.executeParallel(() -> {
+            taskGroup.execute(() -> {
                 try {
                     boolean repaired = WeatherApi.verifyAndRepairCacheByLocation(
                             MainActivity.this, currentCity.getLatitude(), currentCity.getLongitude());
@@ -142,7 +205,7 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
                 } catch (Exception e) {
                     Log.e("MainActivity", "验证缓存时出错: " + e.getMessage());
                 }
-            });
+            }, Priority.MAINTENANCE);
         }
         
         // 检查是否需要自动定位
@@ -167,7 +230,7 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
                 if (NetworkMonitor.ACTION_NETWORK_RESTORED.equals(intent.getAction())) {
                     Log.i(TAG, "网络已恢复，刷新界面数据");
                     // 延迟2秒执行，避免与服务更新冲突
-                    mainHandler.postDelayed(() -> {
+                    taskGroup.postDelayed(() -> {
                         if (!isFinishing()) {
                             // 显示网络恢复提示
                             MessageManager.showActionMessage(
@@ -184,6 +247,46 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
         };
         IntentFilter networkFilter = new IntentFilter(NetworkMonitor.ACTION_NETWORK_RESTORED);
         registerReceiver(networkReceiver, networkFilter);
+        
+        // 注册应用内天气数据观察者，无需经过全局广播
+        WeatherBroadcastPublisher.getInstance(this).addObserver(weatherObserver);
+        
+        // 注册城市变化观察者，在城市管理等页面切换城市后自动重新加载
+        CityRegistry.getInstance(this).addObserver(cityObserver);
+    }
+    
+    /**
+     * 保存的城市或当前城市发生变化
+     * 当前城市与界面加载的城市不同时重新加载，页面不可见时等回到页面再加载
+     */
+    private void onCitiesChanged(CityRegistry.Snapshot snapshot) {
+        City currentCity = snapshot.getCurrentCity();
+        if (isFinishing() || currentCity == null || TextUtils.equals(currentCity.getId(), requestedCityId)) {
+            return;
+        }
+        if (getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED)) {
+            Log.i(TAG, "当前城市已切换，重新加载界面");
+            loadWeatherData();
+        } else {
+            currentCityChanged = true;
+        }
+    }
+    
+    /**
+     * 服务发布了新的天气数据（如定时刷新之后）
+     * 只有当前城市的内容与界面显示不同时才从缓存重新加载
+     */
+    private void onPublishedWeatherChanged(WeatherSnapshot snapshot) {
+        if (isFinishing() || swipeRefreshLayout.isRefreshing()) {
+            return;
+        }
+        City currentCity = cityPreferences.getCurrentCity();
+        if (currentCity == null || !TextUtils.equals(currentCity.getId(), snapshot.getCityId())
+                || snapshot.hasSameContent(displayedSnapshot)) {
+            return;
+        }
+        Log.i(TAG, "当前城市天气数据已更新，重新加载界面");
+        loadWeatherData(false);
     }
     
     @Override
@@ -211,7 +314,10 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
         tvPm25 = findViewById(R.id.tv_pm25);
         tvPm10 = findViewById(R.id.tv_pm10);
         
-        forecastContainer = findViewById(R.id.forecast_container);
+        forecastList = findViewById(R.id.forecast_list);
+        forecastList.setLayoutManager(new LinearLayoutManager(this, LinearLayoutManager.HORIZONTAL, false));
+        forecastAdapter = new ForecastAdapter();
+        forecastList.setAdapter(forecastAdapter);
         tvWind = findViewById(R.id.tv_wind);
         tvHumidity = findViewById(R.id.tv_humidity);
         tvSunrise = findViewById(R.id.tv_sunrise);
@@ -225,6 +331,10 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
         
         // 设置点击事件
         tvCityName.setOnClickListener(v -> navigateToCityManager());
+        
+        // 生活指数区域滚动到可见范围时再加载
+        findViewById(R.id.index_clothes).getViewTreeObserver()
+                .addOnScrollChangedListener(lifeIndexScrollListener);
     }
     
     /**
@@ -241,8 +351,13 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
         }
         
         final City city = currentCity;
+        requestedCityId = city.getId();
+        currentCityChanged = false;
         tvCityName.setText(city.getName());
         
+        // 记录城市查看次数，后台刷新时优先刷新常看的城市
+        new CityViewTracker(this).recordView(city.getId());
+        
         // 检查是否离线模式
         boolean isOffline = !isNetworkAvailable();
         if (isOffline) {
@@ -250,11 +365,31 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
             MessageManager.showMessage(this, "网络连接不可用，显示缓存数据");
         }
         
-        // 在后台线程加载数据 - 使用ExecutorManager替代本地executor
-        ExecutorManager.executeParallel(() -> {
+        // 界面还没有显示这个城市的数据时先显示骨架占位，并记录首次有效绘制耗时
+        final PaintTrace paintTrace;
+        if (!TextUtils.equals(boundCityId, city.getId())) {
+            showSkeletons();
+            paintTrace = new PaintTrace(TAG);
+        } else {
+            paintTrace = null;
+        }
+        
+        // 在后台线程加载数据，每个区域的数据一到就在主线程绑定，不等待其他区域
+        taskGroup.execute(() -> {
+            // 加载可见数据期间暂停后台通道，避免排在预加载和缓存校验之后
+            ExecutorManager.pauseBackgroundWork();
             try {
                 final String locationId = city.getLongitude() + "," + city.getLatitude();
                 
+                // 当前天气缓存已过期时，先显示上次保存的数据，再等待网络
+                WeatherDataCache weatherDataCache = WeatherDataCache.getInstance(MainActivity.this);
+                if (paintTrace != null && weatherDataCache.isCurrentWeatherExpired(locationId)) {
+                    Weather lastKnownWeather = weatherDataCache.getLastKnownCurrentWeather(locationId);
+                    if (lastKnownWeather != null) {
+                        taskGroup.post(() -> bindCurrentSection(city, lastKnownWeather, paintTrace, "过期缓存"));
+                    }
+                }
+                
                 // 使用带缓存的API获取天气数据
                 Weather currentWeather;
                 try {
@@ -271,7 +406,7 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
                 }
                 
                 if (currentWeather == null) {
-                    mainHandler.post(() -> {
+                    taskGroup.post(() -> {
                         MessageManager.showError(MainActivity.this, 
                                 "无可用的天气数据，请连接网络后重试");
                         if (swipeRefreshLayout.isRefreshing()) {
@@ -281,6 +416,11 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
                     return;
                 }
                 
+                final Weather finalCurrentWeather = currentWeather;
+                
+                // 当前天气区域
+                taskGroup.post(() -> bindCurrentSection(city, finalCurrentWeather, paintTrace, "缓存或网络"));
+                
                 // 获取天气预报 - 使用带缓存的API
                 Weather forecastWeather;
                 try {
@@ -291,35 +431,49 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
                     forecastWeather = null;
                 }
                 
-                final Weather finalCurrentWeather = currentWeather;
+                // 预报和空气质量加载到独立的对象，在主线程绑定前再合并：
+                // 当前天气对象已交给界面显示，也被内存缓存持有，不能在后台线程修改
+                final Weather loadedForecast = forecastWeather != null
+                        && forecastWeather.getDailyForecasts() != null ? forecastWeather : null;
                 
-                // 合并天气预报数据到当前天气对象
-                if (forecastWeather != null && forecastWeather.getDailyForecasts() != null) {
-                    try {
-                        // 合并天气预报
-                        WeatherApi.mergeWeatherData(finalCurrentWeather, forecastWeather);
-                    } catch (Exception e) {
-                        Log.e("MainActivity", "合并天气预报数据失败: " + e.getMessage());
+                // 预报区域
+                taskGroup.post(() -> {
+                    if (loadedForecast != null) {
+                        try {
+                            // 合并天气预报
+                            WeatherApi.mergeWeatherData(finalCurrentWeather, loadedForecast);
+                        } catch (Exception e) {
+                            Log.e("MainActivity", "合并天气预报数据失败: " + e.getMessage());
+                        }
                     }
-                }
+                    bindForecastSection(finalCurrentWeather, paintTrace);
+                });
                 
                 // 尝试从缓存获取空气质量数据
+                Weather airQuality = null;
                 try {
-                    WeatherApi.getAirQualityWithCache(MainActivity.this, locationId, finalCurrentWeather);
+                    airQuality = WeatherApi.getAirQualityWithCache(MainActivity.this, locationId, new Weather());
                 } catch (Exception e) {
                     Log.e("MainActivity", "获取空气质量数据失败: " + e.getMessage());
                 }
+                final Weather loadedAirQuality = airQuality;
                 
-                // 尝试从缓存获取生活指数数据
-                try {
-                    WeatherApi.getLifeIndicesWithCache(MainActivity.this, locationId, finalCurrentWeather);
-                } catch (Exception e) {
-                    Log.e("MainActivity", "获取生活指数数据失败: " + e.getMessage());
-                }
-                
-                // 在主线程更新UI
-                mainHandler.post(() -> {
-                    updateUI(finalCurrentWeather);
+                // 空气质量区域，生活指数区域在可见时再加载
+                taskGroup.post(() -> {
+                    if (loadedAirQuality != null) {
+                        WeatherApi.mergeAirQualityData(finalCurrentWeather, loadedAirQuality);
+                    }
+                    bindAirSection(finalCurrentWeather, paintTrace);
+                    
+                    displayedWeather = finalCurrentWeather;
+                    displayedLocationId = locationId;
+                    lifeIndicesCityId = null;
+                    loadLifeIndicesIfVisible();
+                    
+                    // 记录界面显示的内容
+                    City displayedCity = cityPreferences.getCurrentCity();
+                    displayedSnapshot = displayedCity != null
+                            ? WeatherSnapshot.from(displayedCity, finalCurrentWeather) : null;
                     
                     // 如果是下拉刷新，停止刷新动画
                     if (swipeRefreshLayout.isRefreshing()) {
@@ -333,7 +487,7 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
                 });
             } catch (Exception e) {
                 e.printStackTrace();
-                mainHandler.post(() -> {
+                taskGroup.post(() -> {
                     MessageManager.showError(MainActivity.this, 
                             "数据加载失败: " + e.getMessage());
                     
@@ -342,8 +496,10 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
                         swipeRefreshLayout.setRefreshing(false);
                     }
                 });
+            } finally {
+                ExecutorManager.resumeBackgroundWork();
             }
-        });
+        }, Priority.VISIBLE);
     }
     
     /**
@@ -358,21 +514,21 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
      */
     private void refreshWeatherDataInBackground(City city) {
         // 使用ExecutorManager替代本地executor
-        ExecutorManager.executeParallel(() -> {
+        taskGroup.execute(() -> {
             try {
                 // 从API获取最新数据并更新缓存
                 WeatherApi.refreshWeatherDataByLocation(
-                        MainActivity.this, city.getLatitude(), city.getLongitude());
+                        MainActivity.this, city.getLatitude(), city.getLongitude(), true);
                 
                 // 在主线程中重新加载更新后的数据，但不再触发后台刷新
-                mainHandler.post(() -> {
+                taskGroup.post(() -> {
                     loadWeatherData(false);
                 });
             } catch (IOException | JSONException e) {
                 // 仅记录错误，不向用户显示（因为已经显示了缓存数据）
                 Log.e("MainActivity", "后台刷新天气数据失败: " + e.getMessage());
             }
-        });
+        }, Priority.BACKGROUND);
     }
     
     /**
@@ -393,13 +549,13 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
         }
         
         // 使用ExecutorManager替代本地executor
-        ExecutorManager.executeParallel(() -> {
+        taskGroup.execute(() -> {
             try {
                 // 忽略缓存，直接从API获取最新数据
                 final Weather updatedWeather = WeatherApi.refreshWeatherDataByLocation(
-                        MainActivity.this, currentCity.getLatitude(), currentCity.getLongitude());
+                        MainActivity.this, currentCity.getLatitude(), currentCity.getLongitude(), true);
                 
-                mainHandler.post(() -> {
+                taskGroup.post(() -> {
                     if (updatedWeather != null) {
                         // 加载更新后的数据，但不触发后台刷新
                         loadWeatherData(false);
@@ -416,13 +572,13 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
                 });
             } catch (IOException | JSONException e) {
                 e.printStackTrace();
-                mainHandler.post(() -> {
+                taskGroup.post(() -> {
                     swipeRefreshLayout.setRefreshing(false);
                     MessageManager.showError(MainActivity.this, 
                             "刷新失败: " + e.getMessage());
                 });
             }
-        });
+        }, Priority.INTERACTIVE);
     }
     
     /**
@@ -438,26 +594,104 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
     }
     
     /**
-     * 更新UI显示
+     * 显示骨架占位，各区域绑定数据后恢复
+     */
+    private void showSkeletons() {
+        boundCityId = null;
+        displayedWeather = null;
+        setSkeleton(true, tvCurrentTemp, ivWeatherIcon, tvWeatherDesc, tvWind, tvHumidity, tvUpdateTime);
+        setSkeleton(true, tvTempRange, forecastList, tvSunrise, tvSunset);
+        setSkeleton(true, tvAirQuality, tvAqi, tvPm25, tvPm10);
+        setSkeleton(true, getLifeIndexViews());
+        forecastAdapter.setForecasts(null);
+    }
+    
+    /**
+     * 切换视图的骨架状态：占位时文字显示为"--"并半透明
+     */
+    private void setSkeleton(boolean skeleton, View... views) {
+        for (View view : views) {
+            if (view == null) {
+                continue;
+            }
+            view.setAlpha(skeleton ? SKELETON_ALPHA : 1f);
+            if (skeleton && view instanceof TextView) {
+                ((TextView) view).setText(SKELETON_TEXT);
+            }
+        }
+    }
+    
+    private View[] getLifeIndexViews() {
+        View[] views = new View[LIFE_INDEX_VIEW_IDS.length];
+        for (int i = 0; i < LIFE_INDEX_VIEW_IDS.length; i++) {
+            View indexView = findViewById(LIFE_INDEX_VIEW_IDS[i]);
+            views[i] = indexView != null ? indexView.findViewById(R.id.tv_index_category) : null;
+        }
+        return views;
+    }
+    
+    /**
+     * 绑定当前天气区域：城市名称、背景、温度、天气描述、风力和湿度
      */
-    private void updateUI(Weather weather) {
+    private void bindCurrentSection(City city, Weather weather, PaintTrace paintTrace, String source) {
+        boundCityId = city.getId();
+        
         // 更新城市名称
         tvCityName.setText(weather.getCityName());
         
         // 设置动态背景
         View weatherMainView = findViewById(R.id.weather_main);
-        String weatherCode = getWeatherCodeFromIcon(weather.getWeatherIconResource());
-        if (weatherMainView != null && weatherCode != null) {
-            weatherMainView.setBackground(WeatherBackgroundUtil.getWeatherBackground(this, weatherCode));
+        if (weatherMainView != null) {
+            weatherMainView.setBackground(WeatherBackgroundUtil.getWeatherBackground(this, weather));
         }
         
         // 更新当前天气
         tvCurrentTemp.setText(String.format("%d°", weather.getCurrentTemp()));
         ivWeatherIcon.setImageResource(weather.getWeatherIconResource());
         tvWeatherDesc.setText(weather.getWeatherDesc());
+        
+        // 更新详细信息
+        tvWind.setText(weather.getWind());
+        tvHumidity.setText(String.format("%d%%", weather.getHumidity()));
+        
+        // 更新时间显示
+        if (tvUpdateTime != null && weather.getUpdateTimestamp() > 0) {
+            tvUpdateTime.setText("更新时间: " + weather.getUpdateTimeString());
+        }
+        
+        setSkeleton(false, tvCurrentTemp, ivWeatherIcon, tvWeatherDesc, tvWind, tvHumidity, tvUpdateTime);
+        if (paintTrace != null) {
+            paintTrace.markFirstMeaningfulPaint(source);
+        }
+    }
+    
+    /**
+     * 绑定预报区域：今日温度范围、日出日落和多日预报
+     */
+    private void bindForecastSection(Weather weather, PaintTrace paintTrace) {
         tvTempRange.setText(String.format("今日: %d°C ~ %d°C", weather.getLowTemp(), weather.getHighTemp()));
+        tvSunrise.setText(weather.getSunrise());
+        tvSunset.setText(weather.getSunset());
         
-        // 更新空气质量
+        // 有了日出日落时间后重新判断昼夜背景
+        View weatherMainView = findViewById(R.id.weather_main);
+        if (weatherMainView != null) {
+            weatherMainView.setBackground(WeatherBackgroundUtil.getWeatherBackground(this, weather));
+        }
+        
+        // 更新天气预报
+        updateForecast(weather.getDailyForecasts());
+        
+        setSkeleton(false, tvTempRange, forecastList, tvSunrise, tvSunset);
+        if (paintTrace != null) {
+            paintTrace.markSection("预报");
+        }
+    }
+    
+    /**
+     * 绑定空气质量区域
+     */
+    private void bindAirSection(Weather weather, PaintTrace paintTrace) {
         tvAirQuality.setText(weather.getAirQuality());
         tvAqi.setText(String.valueOf(weather.getAqi()));
         tvPm25.setText(String.valueOf(weather.getPm25()));
@@ -468,40 +702,70 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
         // 设置空气质量颜色
         setAqiTextColor(weather.getAqi());
         
-        // 更新详细信息
-        tvWind.setText(weather.getWind());
-        tvHumidity.setText(String.format("%d%%", weather.getHumidity()));
-        tvSunrise.setText(weather.getSunrise());
-        tvSunset.setText(weather.getSunset());
+        setSkeleton(false, tvAirQuality, tvAqi, tvPm25, tvPm10);
+        if (paintTrace != null) {
+            paintTrace.markSection("空气质量");
+        }
+    }
+    
+    /**
+     * 生活指数区域可见时订阅并加载生活指数，每次加载天气数据后只加载一次
+     */
+    private void loadLifeIndicesIfVisible() {
+        final Weather weather = displayedWeather;
+        final String locationId = displayedLocationId;
+        if (weather == null || isFinishing()) {
+            return;
+        }
         
-        // 更新生活指数 - 使用新的网格布局
-        updateLifeIndices(weather);
+        View indexView = findViewById(R.id.index_clothes);
+        if (indexView == null || !indexView.getGlobalVisibleRect(new Rect())) {
+            return;
+        }
         
-        // 更新天气预报
-        updateForecast(weather.getDailyForecasts());
+        if (!lifeIndicesSubscribed) {
+            LifeIndexSubscriptions.subscribe(this, LIFE_INDEX_TYPES);
+            lifeIndicesSubscribed = true;
+        }
         
-        // 更新时间显示
-        if (tvUpdateTime != null && weather.getUpdateTimestamp() > 0) {
-            tvUpdateTime.setText("更新时间: " + weather.getUpdateTimeString());
+        if (boundCityId == null || TextUtils.equals(lifeIndicesCityId, boundCityId)) {
+            return;
         }
+        lifeIndicesCityId = boundCityId;
+        
+        // 显示中的天气对象同时被内存缓存和界面持有，后台线程只把生活指数加载到新对象，回到主线程再合并
+        taskGroup.execute(() -> {
+            Weather indices = null;
+            try {
+                indices = WeatherApi.getLifeIndicesWithCache(
+                        MainActivity.this, locationId, new Weather(), LIFE_INDEX_TYPES);
+            } catch (Exception e) {
+                Log.e(TAG, "获取生活指数数据失败: " + e.getMessage());
+            }
+            
+            // 加载期间切换了城市或重新加载时，丢弃旧数据
+            final Weather loadedIndices = indices;
+            taskGroup.post(() -> {
+                if (weather == displayedWeather) {
+                    if (loadedIndices != null) {
+                        WeatherApi.mergeIndicesData(weather, loadedIndices);
+                    }
+                    bindLifeIndexSection(weather, null);
+                }
+            });
+        }, Priority.VISIBLE);
     }
     
     /**
-     * 从图标资源ID中提取天气代码
-     * @param iconResourceId 图标资源ID
-     * @return 天气代码
+     * 绑定生活指数区域
      */
-    private String getWeatherCodeFromIcon(int iconResourceId) {
-        // 通过资源名称获取天气代码
-        try {
-            String resourceName = getResources().getResourceEntryName(iconResourceId);
-            if (resourceName.startsWith("icon_")) {
-                return resourceName.substring(5); // 去掉"icon_"前缀
-            }
-            return resourceName;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
+    private void bindLifeIndexSection(Weather weather, PaintTrace paintTrace) {
+        // 更新生活指数 - 使用新的网格布局
+        updateLifeIndices(weather);
+        
+        setSkeleton(false, getLifeIndexViews());
+        if (paintTrace != null) {
+            paintTrace.markSection("生活指数");
         }
     }
     
@@ -510,32 +774,32 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
      */
     private void updateLifeIndices(Weather weather) {
         // 穿衣指数
-        updateLifeIndexItem(R.id.index_clothes, "穿衣", "👕", weather.getClothesCategory());
+        updateLifeIndexItem(R.id.index_clothes, "穿衣", "👕", LifeIndexType.CLOTHES.getCategory(weather));
         
         // 运动指数
-        updateLifeIndexItem(R.id.index_sport, "运动", "🏃", weather.getSportCategory());
+        updateLifeIndexItem(R.id.index_sport, "运动", "🏃", LifeIndexType.SPORT.getCategory(weather));
         
         // 紫外线指数
-        updateLifeIndexItem(R.id.index_uv, "紫外线", "☂️", weather.getUvCategory());
+        updateLifeIndexItem(R.id.index_uv, "紫外线", "☂️", LifeIndexType.UV.getCategory(weather));
         
         // 洗车指数
-        updateLifeIndexItem(R.id.index_car_wash, "洗车", "🚗", weather.getWashCarCategory());
+        updateLifeIndexItem(R.id.index_car_wash, "洗车", "🚗", LifeIndexType.CAR_WASH.getCategory(weather));
         
         // 旅游指数
-        updateLifeIndexItem(R.id.index_travel, "旅游", "🏖️", weather.getTravelCategory());
+        updateLifeIndexItem(R.id.index_travel, "旅游", "🏖️", LifeIndexType.TRAVEL.getCategory(weather));
         
         // 舒适度指数
-        updateLifeIndexItem(R.id.index_comfort, "舒适度", "😊", weather.getComfortCategory());
+        updateLifeIndexItem(R.id.index_comfort, "舒适度", "😊", LifeIndexType.COMFORT.getCategory(weather));
         
         // 感冒指数
-        updateLifeIndexItem(R.id.index_flu, "感冒", "🤧", weather.getFluCategory());
+        updateLifeIndexItem(R.id.index_flu, "感冒", "🤧", LifeIndexType.FLU.getCategory(weather));
         
         // 空气污染指数 - 使用工具类转换描述
-        String convertedDescription = AirPollutionUtil.convertDescription(weather.getAirPollutionCategory());
+        String convertedDescription = AirPollutionUtil.convertDescription(LifeIndexType.AIR_POLLUTION.getCategory(weather));
         updateLifeIndexItem(R.id.index_air_pollution, "空气污染", "🌬️", convertedDescription);
         
         // 交通指数
-        updateLifeIndexItem(R.id.index_traffic, "交通", "🚦", weather.getTrafficCategory());
+        updateLifeIndexItem(R.id.index_traffic, "交通", "🚦", LifeIndexType.TRAFFIC.getCategory(weather));
     }
     
     /**
@@ -611,37 +875,8 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
             return;
         }
         
-        // 清空预报容器
-        forecastContainer.removeAllViews();
-        
-        // 填充预报数据
-        LayoutInflater inflater = LayoutInflater.from(this);
-        for (int i = 0; i < forecasts.size(); i++) {
-            Weather.DailyForecast forecast = forecasts.get(i);
-            View forecastView = inflater.inflate(R.layout.item_forecast, forecastContainer, false);
-            
-            // 设置日期
-            TextView tvDay = forecastView.findViewById(R.id.tv_day);
-            if (i == 0) {
-                tvDay.setText(R.string.today);
-            } else if (i == 1) {
-                tvDay.setText(R.string.tomorrow);
-            } else if (i == 2) {
-                tvDay.setText(R.string.day_after_tomorrow);
-            } else {
-                tvDay.setText(forecast.getDayOfWeek());
-            }
-            
-            // 设置天气图标和温度
-            ImageView ivForecastIcon = forecastView.findViewById(R.id.iv_weather_icon);
-            ivForecastIcon.setImageResource(forecast.getWeatherIconResource());
-            
-            TextView tvTemperature = forecastView.findViewById(R.id.tv_temperature);
-            tvTemperature.setText(String.format("%d°/%d°", forecast.getHighTemp(), forecast.getLowTemp()));
-            
-            // 添加到容器
-            forecastContainer.addView(forecastView);
-        }
+        // 只重新绑定数值变化的日期
+        forecastAdapter.setForecasts(forecasts);
     }
     
     /**
@@ -738,18 +973,26 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
         MessageManager.showMessage(this, "再按一次返回键退出应用");
     }
     
-    /**
-     * 处理Activity返回结果
-     */
     @Override
-    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
-        super.onActivityResult(requestCode, resultCode, data);
+    protected void onStart() {
+        super.onStart();
         
-        // 如果有返回数据且包含标志位
-        if (resultCode == RESULT_OK && data != null && data.getBooleanExtra("fromOtherActivity", false)) {
-            // 设置当前Activity的标志位
-            getIntent().putExtra("fromOtherActivity", true);
+        // 页面不可见期间切换了当前城市
+        if (currentCityChanged) {
+            loadWeatherData();
         }
+        
+        // 回到页面时如果生活指数区域可见，重新订阅
+        loadLifeIndicesIfVisible();
+    }
+    
+    @Override
+    protected void onStop() {
+        // 页面不可见时不再需要生活指数
+        LifeIndexSubscriptions.unsubscribe(this);
+        lifeIndicesSubscribed = false;
+        
+        super.onStop();
     }
     
     @Override
@@ -766,7 +1009,7 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
         
         // 同步所有城市的缓存数据
         if (cityPreferences != null && !swipeRefreshLayout.isRefreshing()) {
-            ExecutorManager.executeParallel(() -> {
+            taskGroup.execute(() -> {
                 try {
                     // 首先同步当前城市
                     City currentCity = cityPreferences.getCurrentCity();
@@ -775,22 +1018,12 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
                         cityPreferences.preloadCityWeatherData(currentCity, true);
                     }
                     
-                    // 然后同步所有城市
+                    // 然后同步所有城市；切换城市后的界面刷新由城市观察者负责
                     cityPreferences.synchronizeAllCitiesCache();
-                    
-                    // 如果是从其他Activity返回，刷新天气数据UI
-                    boolean fromOtherActivity = getIntent().getBooleanExtra("fromOtherActivity", false);
-                    if (fromOtherActivity) {
-                        // 清除标记，避免多次刷新
-                        getIntent().removeExtra("fromOtherActivity");
-                        
-                        // 在主线程更新UI
-                        mainHandler.post(this::loadWeatherData);
-                    }
                 } catch (Exception e) {
                     Log.e("MainActivity", "同步城市缓存时出错: " + e.getMessage());
                 }
-            });
+            }, Priority.BACKGROUND);
         }
     }
     
@@ -822,6 +1055,19 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
             }
         }
         
+        // 注销应用内天气数据观察者和城市观察者
+        WeatherBroadcastPublisher.getInstance(this).removeObserver(weatherObserver);
+        CityRegistry.getInstance(this).removeObserver(cityObserver);
+        
+        // 移除生活指数区域的滚动监听
+        View indexView = findViewById(R.id.index_clothes);
+        if (indexView != null) {
+            indexView.getViewTreeObserver().removeOnScrollChangedListener(lifeIndexScrollListener);
+        }
+        
+        // 取消本页面未完成的后台任务
+        taskGroup.cancelAll();
+        
         // 清理资源
         if (cityPreferences != null) {
             cityPreferences.onDestroy();
@@ -840,21 +1086,20 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
      */
     private void handleLocationSuccess(double latitude, double longitude) {
         // 在后台线程获取城市信息
-        ExecutorManager.executeParallel(() -> {
+        taskGroup.execute(() -> {
             try {
                 // 获取当前城市信息
                 City city = WeatherApi.getCityByLocation(latitude, longitude);
                 
                 // 切换到主线程添加城市
-                mainHandler.post(() -> {
+                taskGroup.post(() -> {
                     // 添加城市并设置为当前城市
                     boolean added = cityPreferences.addCity(city);
                     if (added || cityPreferences.getSavedCities().contains(city)) {
+                        // 当前城市变化时由城市观察者重新加载天气数据
                         cityPreferences.setCurrentCity(city);
                         // 通知服务城市已变更
                         notifyServiceCityChanged();
-                        // 加载天气数据
-                        loadWeatherData();
                     } else {
                         // 添加失败，跳转到城市管理页面
                         navigateToCityManager();
@@ -862,8 +1107,8 @@ public class MainActivity extends AppCompatActivity implements BottomNavigationV
                 });
             } catch (Exception e) {
                 Log.e("MainActivity", "获取城市信息失败: " + e.getMessage());
-                mainHandler.post(this::navigateToCityManager);
+                taskGroup.post(this::navigateToCityManager);
             }
-        });
+        }, Priority.INTERACTIVE);
     }
 } 
\ No newline at end of file
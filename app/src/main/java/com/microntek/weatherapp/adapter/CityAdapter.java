@@ -1,6 +1,7 @@
 package com.microntek.weatherapp.adapter;
 
 import android.content.Context;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -8,11 +9,17 @@ import android.widget.ImageButton;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.microntek.weatherapp.R;
 import com.microntek.weatherapp.model.City;
+import com.microntek.weatherapp.util.ExecutorManager;
 import com.microntek.weatherapp.util.MessageManager;
+import com.microntek.weatherapp.util.PriorityTaskScheduler.Priority;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -20,11 +27,17 @@ import java.util.List;
 /**
  * 城市列表和搜索结果适配器
  * 两种模式共用一个适配器，通过模式标志区分
+ * 列表变化在后台线程比较差异，只刷新变化的行；只有天气或当前城市标签变化时局部刷新
  */
 public class CityAdapter extends BaseCityAdapter<CityAdapter.ViewHolder> {
     
-    private List<City> cities;
-    private List<City> searchResults;
+    // 局部刷新标志：天气和空气质量变化、当前城市标签变化
+    private static final int PAYLOAD_WEATHER = 1;
+    private static final int PAYLOAD_CURRENT_TAG = 1 << 1;
+    
+    private final List<City> cities;
+    private final List<City> searchResults;
+    private final AsyncListDiffer<CityItem> differ;
     private City currentCity;
     private CityClickListener cityClickListener;
     private CityDeleteListener cityDeleteListener;
@@ -34,11 +47,16 @@ public class CityAdapter extends BaseCityAdapter<CityAdapter.ViewHolder> {
         super(context);
         this.cities = new ArrayList<>();
         this.searchResults = new ArrayList<>();
+        this.differ = new AsyncListDiffer<>(new AdapterListUpdateCallback(this),
+                new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                        .setBackgroundThreadExecutor(task -> ExecutorManager.executeParallel(
+                                task, Priority.VISIBLE, "CITY_LIST_DIFF"))
+                        .build());
     }
     
     public void setCurrentCity(City currentCity) {
         this.currentCity = currentCity;
-        notifyDataSetChanged();
+        submitItems();
     }
     
     public void setCities(List<City> cities) {
@@ -47,7 +65,7 @@ public class CityAdapter extends BaseCityAdapter<CityAdapter.ViewHolder> {
             this.cities.addAll(cities);
         }
         if (!isSearchMode) {
-            notifyDataSetChanged();
+            submitItems();
         }
     }
     
@@ -55,20 +73,26 @@ public class CityAdapter extends BaseCityAdapter<CityAdapter.ViewHolder> {
         return new ArrayList<>(cities);
     }
     
-    public void setSearchResults(List<City> results) {
+    /**
+     * 设置搜索结果
+     * @param commitCallback 结果列表提交到界面后在主线程调用；不在搜索模式时立即调用，可为null
+     */
+    public void setSearchResults(List<City> results, Runnable commitCallback) {
         this.searchResults.clear();
         if (results != null) {
             this.searchResults.addAll(results);
         }
         if (isSearchMode) {
-            notifyDataSetChanged();
+            submitItems(commitCallback);
+        } else if (commitCallback != null) {
+            commitCallback.run();
         }
     }
     
     public void setSearchMode(boolean searchMode) {
         if (this.isSearchMode != searchMode) {
             this.isSearchMode = searchMode;
-            notifyDataSetChanged();
+            submitItems();
         }
     }
     
@@ -76,6 +100,14 @@ public class CityAdapter extends BaseCityAdapter<CityAdapter.ViewHolder> {
         return isSearchMode;
     }
     
+    /**
+     * 当前模式下的数据是否为空
+     * 差异计算完成前getItemCount仍是旧列表的数量，判断空列表提示应使用此方法
+     */
+    public boolean isEmpty() {
+        return isSearchMode ? searchResults.isEmpty() : cities.isEmpty();
+    }
+    
     public void setCityClickListener(CityClickListener listener) {
         this.cityClickListener = listener;
     }
@@ -84,20 +116,99 @@ public class CityAdapter extends BaseCityAdapter<CityAdapter.ViewHolder> {
         this.cityDeleteListener = listener;
     }
     
+    /**
+     * 按当前模式生成列表项并提交差异计算
+     * 城市对象会在后台被更新天气，因此提交时记录下显示用的字段，差异比较基于这份记录
+     */
+    private void submitItems() {
+        submitItems(null);
+    }
+    
+    private void submitItems(Runnable commitCallback) {
+        List<City> source = isSearchMode ? searchResults : cities;
+        List<CityItem> items = new ArrayList<>(source.size());
+        for (City city : source) {
+            boolean isCurrentSelectedCity = currentCity != null
+                    && currentCity.getId().equals(city.getId());
+            items.add(new CityItem(city, isSearchMode, isCurrentSelectedCity));
+        }
+        differ.submitList(items, commitCallback);
+    }
+    
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_city, parent, false);
-        return new ViewHolder(view);
+        ViewHolder holder = new ViewHolder(view);
+        
+        // 点击事件在点击时读取当前绑定的列表项，局部刷新后不会用到过期的状态
+        holder.itemView.setOnClickListener(v -> {
+            CityItem item = getItemAt(holder.getAdapterPosition());
+            if (item != null && cityClickListener != null) {
+                cityClickListener.onCityClick(item.city, !item.searchMode);
+            }
+        });
+        
+        holder.btnDelete.setOnClickListener(v -> {
+            int position = holder.getAdapterPosition();
+            CityItem item = getItemAt(position);
+            if (item == null || item.searchMode) {
+                return;
+            }
+            
+            if (item.currentLocation) {
+                // 定位城市只提示，不删除
+                MessageManager.showMessage(context, 
+                        "这是您的当前位置城市");
+                return;
+            }
+            
+            // 无法删除当前选中的城市
+            if (item.selected) {
+                MessageManager.showError(context, 
+                        "不能删除当前选中的城市");
+                return;
+            }
+            
+            // 触发删除监听器
+            if (cityDeleteListener != null) {
+                cityDeleteListener.onCityDelete(item.city, position);
+            }
+        });
+        return holder;
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        
+        int flags = 0;
+        for (Object payload : payloads) {
+            if (payload instanceof Integer) {
+                flags |= (Integer) payload;
+            }
+        }
+        
+        CityItem item = differ.getCurrentList().get(position);
+        if ((flags & PAYLOAD_WEATHER) != 0) {
+            bindWeather(holder, item);
+        }
+        if ((flags & PAYLOAD_CURRENT_TAG) != 0) {
+            bindCurrentTag(holder, item);
+        }
     }
     
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        final City city = isSearchMode ? searchResults.get(position) : cities.get(position);
+        final CityItem item = differ.getCurrentList().get(position);
+        final City city = item.city;
         
         // 设置城市名称
-        if (isSearchMode) {
+        if (item.searchMode) {
             // 搜索结果显示城市+省份
             if (city.getProvince() != null && !city.getProvince().isEmpty()) {
                 holder.tvCityName.setText(city.getName() + ", " + city.getProvince());
@@ -109,67 +220,129 @@ public class CityAdapter extends BaseCityAdapter<CityAdapter.ViewHolder> {
             holder.tvCityName.setText(city.getDisplayName());
         }
         
-        // 设置天气信息
-        setupWeatherView(holder.tvWeather, holder.tvTemp, city);
-        
-        // 设置空气质量信息
-        setupAirQualityView(holder.tvAirQuality, city);
+        // 设置天气和空气质量信息
+        bindWeather(holder, item);
         
         // 设置"当前城市"标签
-        boolean isCurrentSelectedCity = currentCity != null && 
-                currentCity.getId().equals(city.getId());
-        
-        if (holder.tvCurrentTag != null) {
-            holder.tvCurrentTag.setVisibility(
-                    (!isSearchMode && isCurrentSelectedCity) ? View.VISIBLE : View.GONE);
-        }
-        
-        // 设置点击事件 - 根据不同模式
-        holder.itemView.setOnClickListener(v -> {
-            if (cityClickListener != null) {
-                cityClickListener.onCityClick(city, !isSearchMode);
-            }
-        });
+        bindCurrentTag(holder, item);
         
         // 处理删除按钮/定位图标
-        if (isSearchMode) {
+        if (item.searchMode) {
             // 搜索结果不显示删除按钮
             holder.btnDelete.setVisibility(View.GONE);
         } else {
             holder.btnDelete.setVisibility(View.VISIBLE);
-            
-            if (city.isCurrentLocation()) {
-                // 如果是定位城市，显示导航图标
-                holder.btnDelete.setImageResource(R.drawable.ic_location);
-                holder.btnDelete.setOnClickListener(v -> {
-                    MessageManager.showMessage(context, 
-                            "这是您的当前位置城市");
-                });
-            } else {
-                // 如果不是定位城市，显示删除图标
-                holder.btnDelete.setImageResource(R.drawable.ic_delete);
-                holder.btnDelete.setOnClickListener(v -> {
-                    // 无法删除当前选中的城市
-                    if (isCurrentSelectedCity) {
-                        MessageManager.showError(context, 
-                                "不能删除当前选中的城市");
-                        return;
-                    }
-                    
-                    // 触发删除监听器
-                    if (cityDeleteListener != null) {
-                        cityDeleteListener.onCityDelete(city, holder.getAdapterPosition());
-                    }
-                });
-            }
+            // 定位城市显示导航图标，其他城市显示删除图标
+            holder.btnDelete.setImageResource(item.currentLocation
+                    ? R.drawable.ic_location : R.drawable.ic_delete);
+        }
+    }
+    
+    private void bindWeather(ViewHolder holder, CityItem item) {
+        setupWeatherView(holder.tvWeather, holder.tvTemp, item.city);
+        setupAirQualityView(holder.tvAirQuality, item.city);
+    }
+    
+    private void bindCurrentTag(ViewHolder holder, CityItem item) {
+        if (holder.tvCurrentTag != null) {
+            holder.tvCurrentTag.setVisibility(
+                    (!item.searchMode && item.selected) ? View.VISIBLE : View.GONE);
+        }
+    }
+    
+    private CityItem getItemAt(int position) {
+        List<CityItem> items = differ.getCurrentList();
+        if (position == RecyclerView.NO_POSITION || position >= items.size()) {
+            return null;
         }
+        return items.get(position);
     }
     
     @Override
     public int getItemCount() {
-        return isSearchMode ? searchResults.size() : cities.size();
+        return differ.getCurrentList().size();
+    }
+    
+    /**
+     * 列表项：城市对象和提交时记录的显示字段
+     */
+    private static final class CityItem {
+        final City city;
+        final boolean searchMode;
+        final boolean selected;
+        final String name;
+        final String province;
+        final String district;
+        final boolean currentLocation;
+        final String weatherDesc;
+        final String weatherIcon;
+        final int temperature;
+        final String airQuality;
+        final int aqi;
+        
+        CityItem(City city, boolean searchMode, boolean selected) {
+            this.city = city;
+            this.searchMode = searchMode;
+            this.selected = selected;
+            this.name = city.getName();
+            this.province = city.getProvince();
+            this.district = city.getDistrict();
+            this.currentLocation = city.isCurrentLocation();
+            this.weatherDesc = city.getWeatherDesc();
+            this.weatherIcon = city.getWeatherIcon();
+            this.temperature = city.getTemperature();
+            this.airQuality = city.getAirQuality();
+            this.aqi = city.getAqi();
+        }
+        
+        boolean hasSameName(CityItem other) {
+            return TextUtils.equals(name, other.name)
+                    && TextUtils.equals(province, other.province)
+                    && TextUtils.equals(district, other.district)
+                    && currentLocation == other.currentLocation;
+        }
+        
+        boolean hasSameWeather(CityItem other) {
+            return temperature == other.temperature
+                    && aqi == other.aqi
+                    && TextUtils.equals(weatherDesc, other.weatherDesc)
+                    && TextUtils.equals(weatherIcon, other.weatherIcon)
+                    && TextUtils.equals(airQuality, other.airQuality);
+        }
     }
     
+    private static final DiffUtil.ItemCallback<CityItem> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<CityItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull CityItem oldItem, @NonNull CityItem newItem) {
+            // 城市按ID判断是否相同；切换模式时整行重新绑定
+            return oldItem.searchMode == newItem.searchMode && oldItem.city.equals(newItem.city);
+        }
+        
+        @Override
+        public boolean areContentsTheSame(@NonNull CityItem oldItem, @NonNull CityItem newItem) {
+            return oldItem.selected == newItem.selected
+                    && oldItem.hasSameName(newItem)
+                    && oldItem.hasSameWeather(newItem);
+        }
+        
+        @Override
+        public Object getChangePayload(@NonNull CityItem oldItem, @NonNull CityItem newItem) {
+            if (!oldItem.hasSameName(newItem)) {
+                // 名称或定位状态变化时整行重新绑定
+                return null;
+            }
+            int flags = 0;
+            if (!oldItem.hasSameWeather(newItem)) {
+                flags |= PAYLOAD_WEATHER;
+            }
+            if (oldItem.selected != newItem.selected) {
+                flags |= PAYLOAD_CURRENT_TAG;
+            }
+            return flags;
+        }
+    };
+    
     /**
      * ViewHolder类定义
      */
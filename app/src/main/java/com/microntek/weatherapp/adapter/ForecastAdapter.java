@@ -0,0 +1,142 @@
+package com.microntek.weatherapp.adapter;
+
+import android.text.TextUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.microntek.weatherapp.R;
+import com.microntek.weatherapp.model.Weather;
+import com.microntek.weatherapp.util.ExecutorManager;
+import com.microntek.weatherapp.util.PriorityTaskScheduler.Priority;
+import com.microntek.weatherapp.util.WeatherDates;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 天气预报条适配器
+ * 每天的预报以日期作为稳定ID，刷新时在后台比较差异，只重新绑定数值变化的日期
+ */
+public class ForecastAdapter extends ListAdapter<ForecastAdapter.ForecastItem, ForecastAdapter.ViewHolder> {
+
+    // 前三天显示"今天"、"明天"、"后天"，之后显示星期
+    private static final int[] RELATIVE_DAY_LABELS = {
+            R.string.today, R.string.tomorrow, R.string.day_after_tomorrow
+    };
+
+    public ForecastAdapter() {
+        super(new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                .setBackgroundThreadExecutor(task -> ExecutorManager.executeParallel(
+                        task, Priority.VISIBLE, "FORECAST_DIFF"))
+                .build());
+        setHasStableIds(true);
+    }
+
+    /**
+     * 更新预报数据
+     */
+    public void setForecasts(List<Weather.DailyForecast> forecasts) {
+        List<ForecastItem> items = new ArrayList<>();
+        if (forecasts != null) {
+            for (int i = 0; i < forecasts.size(); i++) {
+                items.add(new ForecastItem(forecasts.get(i), i));
+            }
+        }
+        submitList(items);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).id;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_forecast, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        ForecastItem item = getItem(position);
+
+        // 设置日期
+        if (item.labelRes != 0) {
+            holder.tvDay.setText(item.labelRes);
+        } else {
+            holder.tvDay.setText(item.dayOfWeek);
+        }
+
+        // 设置天气图标和温度
+        holder.ivWeatherIcon.setImageResource(item.iconRes);
+        holder.tvTemperature.setText(holder.itemView.getContext().getString(
+                R.string.forecast_temperature_range, item.highTemp, item.lowTemp));
+    }
+
+    /**
+     * 预报条中的一天，创建时复制显示用的字段
+     */
+    static final class ForecastItem {
+        final long id;
+        final int labelRes;
+        final String dayOfWeek;
+        final int iconRes;
+        final int highTemp;
+        final int lowTemp;
+
+        ForecastItem(Weather.DailyForecast forecast, int index) {
+            long epochDay = WeatherDates.parseEpochDay(forecast.getDate());
+            // 日期无法解析时用序号作为ID，取负值避免与日期冲突
+            this.id = epochDay != Long.MIN_VALUE ? epochDay : -1 - index;
+            this.labelRes = index < RELATIVE_DAY_LABELS.length ? RELATIVE_DAY_LABELS[index] : 0;
+            this.dayOfWeek = forecast.getDayOfWeek();
+            this.iconRes = forecast.getWeatherIconResource();
+            this.highTemp = forecast.getHighTemp();
+            this.lowTemp = forecast.getLowTemp();
+        }
+    }
+
+    private static final DiffUtil.ItemCallback<ForecastItem> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<ForecastItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ForecastItem oldItem, @NonNull ForecastItem newItem) {
+            return oldItem.id == newItem.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ForecastItem oldItem, @NonNull ForecastItem newItem) {
+            return oldItem.labelRes == newItem.labelRes
+                    && oldItem.iconRes == newItem.iconRes
+                    && oldItem.highTemp == newItem.highTemp
+                    && oldItem.lowTemp == newItem.lowTemp
+                    && TextUtils.equals(oldItem.dayOfWeek, newItem.dayOfWeek);
+        }
+    };
+
+    /**
+     * ViewHolder类定义
+     */
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView tvDay;
+        ImageView ivWeatherIcon;
+        TextView tvTemperature;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            tvDay = itemView.findViewById(R.id.tv_day);
+            ivWeatherIcon = itemView.findViewById(R.id.iv_weather_icon);
+            tvTemperature = itemView.findViewById(R.id.tv_temperature);
+        }
+    }
+}
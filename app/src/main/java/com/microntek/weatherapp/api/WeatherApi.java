@@ -5,8 +5,17 @@ import android.util.Log;
 
 import com.microntek.weatherapp.R;
 import com.microntek.weatherapp.model.City;
+import com.microntek.weatherapp.model.HourlyForecast;
+import com.microntek.weatherapp.model.LifeIndex;
+import com.microntek.weatherapp.model.LifeIndexType;
+import com.microntek.weatherapp.model.PrecipitationNowcast;
 import com.microntek.weatherapp.model.Weather;
+import com.microntek.weatherapp.model.WeatherCondition;
+import com.microntek.weatherapp.util.LifeIndexSubscriptions;
+import com.microntek.weatherapp.util.PinyinMatcher;
 import com.microntek.weatherapp.util.WeatherDataCache;
+import com.microntek.weatherapp.util.WeatherDates;
+import com.microntek.weatherapp.util.WeatherIcons;
 import com.microntek.weatherapp.WeatherApplication;
 
 import org.json.JSONArray;
@@ -15,11 +24,13 @@ import org.json.JSONObject;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
+import okhttp3.Call;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -40,6 +51,13 @@ public class WeatherApi {
             .readTimeout(10, TimeUnit.SECONDS)
             .build();
 
+    // 当前线程发出的请求默认附带的标签，见 withRequestTag
+    private static final ThreadLocal<Object> threadRequestTag = new ThreadLocal<>();
+
+    // 逐小时预报的小时数，72小时预报需要对应的订阅
+    public static final int HOURLY_24H = 24;
+    public static final int HOURLY_72H = 72;
+    
     // 缓存管理器实例
     private static WeatherDataCache weatherDataCache;
     
@@ -64,7 +82,7 @@ public class WeatherApi {
                 .url(url)
                 .build();
         
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("请求失败: " + response);
             }
@@ -98,7 +116,7 @@ public class WeatherApi {
                 .url(url)
                 .build();
         
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("请求失败: " + response);
             }
@@ -131,7 +149,7 @@ public class WeatherApi {
                 .url(url)
                 .build();
         
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("请求失败: " + response);
             }
@@ -165,7 +183,7 @@ public class WeatherApi {
                 .url(url)
                 .build();
         
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("请求失败: " + response);
             }
@@ -186,6 +204,69 @@ public class WeatherApi {
         }
     }
     
+    /**
+     * 获取逐小时天气预报
+     * @param location 城市ID或"经度,纬度"
+     * @param hours 小时数，{@link #HOURLY_24H}或{@link #HOURLY_72H}
+     * @return Weather对象，包含逐小时预报数据
+     */
+    public static Weather getHourlyForecast(String location, int hours) throws IOException, JSONException {
+        String range = hours == HOURLY_72H ? "72h" : "24h";
+        String url = BASE_URL + "/weather/" + range + "?location=" + location + "&key=" + API_KEY;
+        
+        Request request = new Request.Builder()
+                .url(url)
+                .build();
+        
+        try (Response response = newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("请求失败: " + response);
+            }
+            
+            String responseBody = response.body().string();
+            JSONObject json = new JSONObject(responseBody);
+            
+            // 检查返回码
+            if (!"200".equals(json.getString("code"))) {
+                throw new IOException("API返回错误: " + json.getString("code"));
+            }
+            
+            Weather weather = new Weather();
+            weather.setHourlyForecast(parseHourlyForecast(json));
+            return weather;
+        }
+    }
+    
+    /**
+     * 获取分钟级降水预报，写入传入的缓冲区
+     * @param location "经度,纬度"，该接口只支持经纬度
+     * @param nowcast 写入预报的缓冲区，重叠的时段被覆盖
+     */
+    public static void getPrecipitationNowcast(String location, PrecipitationNowcast nowcast)
+            throws IOException, JSONException {
+        String url = BASE_URL + "/minutely/5m?location=" + location + "&key=" + API_KEY;
+        
+        Request request = new Request.Builder()
+                .url(url)
+                .build();
+        
+        try (Response response = newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("请求失败: " + response);
+            }
+            
+            String responseBody = response.body().string();
+            JSONObject json = new JSONObject(responseBody);
+            
+            // 检查返回码
+            if (!"200".equals(json.getString("code"))) {
+                throw new IOException("API返回错误: " + json.getString("code"));
+            }
+            
+            parsePrecipitationNowcast(json, nowcast);
+        }
+    }
+    
     /**
      * 获取空气质量
      * @param cityId 城市ID
@@ -209,7 +290,7 @@ public class WeatherApi {
                 .url(url)
                 .build();
         
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("请求失败: " + response);
             }
@@ -227,20 +308,36 @@ public class WeatherApi {
     }
     
     /**
-     * 获取生活指数
+     * 获取应用使用的全部生活指数
      * @param cityId 城市ID
      * @return 更新的Weather对象
      */
     public static Weather getLifeIndices(String cityId, Weather weather) throws IOException, JSONException {
-        // 类型：1.运动 2.洗车 3.穿衣 4.钓鱼 5.紫外线 6.旅游 7.过敏 8.舒适度 9.感冒 10.空调 11.空气污染扩散条件 12.太阳镜 13.化妆 14.晾晒 15.交通 16.防晒
-        String indices = "1,2,3,5,6,8,9,11,15";
+        return getLifeIndices(cityId, weather, EnumSet.allOf(LifeIndexType.class));
+    }
+
+    /**
+     * 获取指定类型的生活指数
+     * @param cityId 城市ID
+     * @param types 需要的指数类型，不能为空
+     * @return 更新的Weather对象
+     */
+    public static Weather getLifeIndices(String cityId, Weather weather, Set<LifeIndexType> types)
+            throws IOException, JSONException {
+        StringBuilder indices = new StringBuilder();
+        for (LifeIndexType type : types) {
+            if (indices.length() > 0) {
+                indices.append(',');
+            }
+            indices.append(type.getCode());
+        }
         String url = BASE_URL + "/indices/1d?location=" + cityId + "&type=" + indices + "&key=" + API_KEY;
         
         Request request = new Request.Builder()
                 .url(url)
                 .build();
         
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("请求失败: " + response);
             }
@@ -263,60 +360,99 @@ public class WeatherApi {
      * @return 城市列表
      */
     public static List<City> searchCity(String cityName) throws IOException, JSONException {
-        List<City> cities = new ArrayList<>();
-        
-        // 处理拼音搜索，转换可能的拼音错误
-        String normalizedCityName = cityName;
-        
-        // 常见拼音错误修正映射表
-        Map<String, String> pinyinCorrections = new HashMap<>();
-        pinyinCorrections.put("tianjing", "tianjin");
-        pinyinCorrections.put("shanhai", "shanghai");
-        pinyinCorrections.put("beijin", "beijing");
-        pinyinCorrections.put("shenzen", "shenzhen");
-        pinyinCorrections.put("guangzou", "guangzhou");
-        pinyinCorrections.put("chengdu", "chengdu");
-        
-        // 查找并修正可能的拼音错误
-        for (Map.Entry<String, String> entry : pinyinCorrections.entrySet()) {
-            if (normalizedCityName.toLowerCase().contains(entry.getKey())) {
-                normalizedCityName = normalizedCityName.toLowerCase().replace(entry.getKey(), entry.getValue());
-                break;
-            }
-        }
+        return searchCity(cityName, null);
+    }
+    
+    /**
+     * 搜索城市，请求附带标签以便通过 {@link #cancelCalls(Object)} 取消
+     * @param cityName 城市名或拼音
+     * @param tag 请求标签，为null时不可取消
+     * @return 城市列表
+     */
+    public static List<City> searchCity(String cityName, Object tag) throws IOException, JSONException {
+        // 处理拼音搜索，使用预构建的模糊匹配器修正可能的拼音错误；已知城市和无法修正的输入原样查询，
+        // 每次搜索只请求一次
+        String normalizedCityName = PinyinMatcher.getInstance().correct(cityName);
         
-        String url = GEO_URL + "/city/lookup?location=" + normalizedCityName + "&key=" + API_KEY;
+        return lookupCity(normalizedCityName, tag);
+    }
+    
+    /**
+     * 调用城市搜索接口
+     * @param location 城市名称或拼音
+     * @param tag 请求标签，用于取消请求；为null时不设置
+     */
+    private static List<City> lookupCity(String location, Object tag) throws IOException, JSONException {
+        String url = GEO_URL + "/city/lookup?location=" + location + "&key=" + API_KEY;
         
-        Request request = new Request.Builder()
-                .url(url)
-                .build();
+        Request.Builder requestBuilder = new Request.Builder()
+                .url(url);
+        if (tag != null) {
+            requestBuilder.tag(tag);
+        }
+        Request request = requestBuilder.build();
         
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("网络请求失败: " + response);
             }
             
             String responseBody = response.body().string();
-            cities = parseCityResults(responseBody);
-            
-            // 如果没有结果，尝试使用更宽松的匹配
-            if (cities.isEmpty() && !normalizedCityName.equals(cityName)) {
-                // 如果修正拼音后仍无结果，尝试原始输入
-                url = GEO_URL + "/city/lookup?location=" + cityName + "&key=" + API_KEY;
-                
-                request = new Request.Builder()
-                        .url(url)
-                        .build();
-                
-                try (Response retryResponse = client.newCall(request).execute()) {
-                    if (retryResponse.isSuccessful()) {
-                        cities = parseCityResults(retryResponse.body().string());
-                    }
-                }
+            return parseCityResults(responseBody);
+        }
+    }
+    
+    /**
+     * 取消所有带指定标签的请求（包括正在执行的同步请求）
+     * 被取消的请求会在其执行线程上抛出IOException
+     * @param tag 请求标签
+     */
+    public static void cancelCalls(Object tag) {
+        if (tag == null) {
+            return;
+        }
+        for (Call call : client.dispatcher().queuedCalls()) {
+            if (tag.equals(call.request().tag())) {
+                call.cancel();
             }
         }
-        
-        return cities;
+        for (Call call : client.dispatcher().runningCalls()) {
+            if (tag.equals(call.request().tag())) {
+                call.cancel();
+            }
+        }
+    }
+    
+    /**
+     * 在当前线程执行任务，期间发出的未设置标签的请求都附带指定标签，
+     * 以便通过 {@link #cancelCalls(Object)} 与其他同标签请求一起取消
+     * @param tag 请求标签
+     * @param task 要执行的任务，通常是一组API调用
+     * @return 任务的返回值
+     */
+    public static <T> T withRequestTag(Object tag, Callable<T> task) throws Exception {
+        Object previous = threadRequestTag.get();
+        threadRequestTag.set(tag);
+        try {
+            return task.call();
+        } finally {
+            if (previous != null) {
+                threadRequestTag.set(previous);
+            } else {
+                threadRequestTag.remove();
+            }
+        }
+    }
+    
+    /**
+     * 创建请求调用，请求未设置标签时附带当前线程的请求标签
+     */
+    private static Call newCall(Request request) {
+        Object tag = threadRequestTag.get();
+        if (tag != null && request.tag() == null) {
+            request = request.newBuilder().tag(tag).build();
+        }
+        return client.newCall(request);
     }
     
     /**
@@ -330,7 +466,7 @@ public class WeatherApi {
                 .url(url)
                 .build();
         
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 return "未知位置";
             }
@@ -380,7 +516,7 @@ public class WeatherApi {
                 .url(url)
                 .build();
         
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 return "未知位置";
             }
@@ -444,28 +580,8 @@ public class WeatherApi {
         weather.setPm25(0);
         weather.setPm10(0);
         
-        // 设置生活指数（会在后续请求中更新）
-        weather.setClothesIndex("数据加载中...");
-        weather.setSportIndex("数据加载中...");
-        weather.setUvIndex("数据加载中...");
-        weather.setWashCarIndex("数据加载中...");
-        weather.setTravelIndex("数据加载中...");
-        weather.setComfortIndex("数据加载中...");
-        weather.setFluIndex("数据加载中...");
-        weather.setAirPollutionIndex("数据加载中...");
-        weather.setTrafficIndex("数据加载中...");
-        
-        try {
-            // 获取空气质量
-            weather = getAirQuality(cityId, weather);
-            
-            // 获取生活指数
-            weather = getLifeIndices(cityId, weather);
-        } catch (Exception e) {
-            e.printStackTrace();
-            // 错误处理，但不影响主要天气数据的返回
-        }
-        
+        // 生活指数按需获取，见getLifeIndicesWithCache
+
         return weather;
     }
     
@@ -495,17 +611,11 @@ public class WeatherApi {
             JSONObject day = daily.getJSONObject(i);
             
             Weather.DailyForecast forecast = new Weather.DailyForecast();
-            forecast.setDate(day.getString("fxDate"));
+            String fxDate = day.getString("fxDate");
+            forecast.setDate(fxDate);
             
-            // 设置星期几
-            try {
-                java.text.SimpleDateFormat format = new java.text.SimpleDateFormat("yyyy-MM-dd");
-                java.util.Date dateObj = format.parse(day.getString("fxDate"));
-                java.text.SimpleDateFormat dayFormat = new java.text.SimpleDateFormat("EEEE", java.util.Locale.CHINA);
-                forecast.setDayOfWeek(dayFormat.format(dateObj));
-            } catch (Exception e) {
-                forecast.setDayOfWeek("未知");
-            }
+            // 设置星期几，由日期直接计算
+            forecast.setDayOfWeek(WeatherDates.getDayOfWeek(fxDate));
             
             // 温度信息
             forecast.setHighTemp(Integer.parseInt(day.getString("tempMax")));
@@ -523,6 +633,81 @@ public class WeatherApi {
         return weather;
     }
     
+    /**
+     * 解析逐小时天气预报数据，时间无法解析或重复的小时跳过
+     */
+    private static HourlyForecast parseHourlyForecast(JSONObject json) throws JSONException {
+        JSONArray hourly = json.getJSONArray("hourly");
+        HourlyForecast.Builder builder = new HourlyForecast.Builder(hourly.length());
+        long lastEpochSecond = Long.MIN_VALUE;
+        
+        for (int i = 0; i < hourly.length(); i++) {
+            JSONObject hour = hourly.getJSONObject(i);
+            long epochSecond = WeatherDates.parseEpochSecond(hour.getString("fxTime"));
+            if (epochSecond == Long.MIN_VALUE || epochSecond <= lastEpochSecond) {
+                continue;
+            }
+            lastEpochSecond = epochSecond;
+
+            // 风速缺失时按无风处理
+            int windSpeed = Math.max(0, parseOptionalInt(hour.optString("windSpeed")));
+            builder.add(epochSecond,
+                    Integer.parseInt(hour.getString("temp")),
+                    parseOptionalInt(hour.optString("pop")),
+                    windSpeed,
+                    parseOptionalInt(hour.optString("wind360")),
+                    WeatherCondition.parseCode(hour.getString("icon")));
+        }
+        
+        return builder.build();
+    }
+    
+    /**
+     * 解析分钟级降水预报数据，时间无法解析的时段跳过
+     */
+    private static void parsePrecipitationNowcast(JSONObject json, PrecipitationNowcast nowcast)
+            throws JSONException {
+        JSONArray minutely = json.getJSONArray("minutely");
+        
+        for (int i = 0; i < minutely.length(); i++) {
+            JSONObject slot = minutely.getJSONObject(i);
+            long epochSecond = WeatherDates.parseEpochSecond(slot.getString("fxTime"));
+            if (epochSecond == Long.MIN_VALUE) {
+                continue;
+            }
+            
+            // 降水量以毫米为单位，保存为0.01毫米的整数；类型缺失时按降雨处理
+            int precip;
+            try {
+                precip = (int) Math.round(Double.parseDouble(slot.optString("precip", "0")) * 100);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            int type = PrecipitationNowcast.parseType(slot.optString("type"));
+            if (type == PrecipitationNowcast.TYPE_UNKNOWN) {
+                type = PrecipitationNowcast.TYPE_RAIN;
+            }
+            nowcast.put(epochSecond, precip, type);
+        }
+        
+        nowcast.markUpdated(System.currentTimeMillis());
+    }
+    
+    /**
+     * 解析可能为空的整数字段
+     * @return 整数值；为空或格式不正确时返回 {@link HourlyForecast#UNKNOWN}
+     */
+    private static int parseOptionalInt(String value) {
+        if (value == null || value.isEmpty()) {
+            return HourlyForecast.UNKNOWN;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return HourlyForecast.UNKNOWN;
+        }
+    }
+    
     /**
      * 解析空气质量数据
      */
@@ -565,44 +750,10 @@ public class WeatherApi {
             String type = index.getString("type");
             String category = index.getString("category");
             String text = index.getString("text");
-            
-            switch (type) {
-                case "1": // 运动
-                    weather.setSportIndex(text);
-                    weather.setSportCategory(category);
-                    break;
-                case "2": // 洗车
-                    weather.setWashCarIndex(text);
-                    weather.setWashCarCategory(category);
-                    break;
-                case "3": // 穿衣
-                    weather.setClothesIndex(text);
-                    weather.setClothesCategory(category);
-                    break;
-                case "5": // 紫外线
-                    weather.setUvIndex(text);
-                    weather.setUvCategory(category);
-                    break;
-                case "6": // 旅游
-                    weather.setTravelIndex(text);
-                    weather.setTravelCategory(category);
-                    break;
-                case "8": // 舒适度
-                    weather.setComfortIndex(text);
-                    weather.setComfortCategory(category);
-                    break;
-                case "9": // 感冒
-                    weather.setFluIndex(text);
-                    weather.setFluCategory(category);
-                    break;
-                case "11": // 空气污染扩散条件
-                    weather.setAirPollutionIndex(text);
-                    weather.setAirPollutionCategory(category);
-                    break;
-                case "15": // 交通
-                    weather.setTrafficIndex(text);
-                    weather.setTrafficCategory(category);
-                    break;
+
+            LifeIndexType indexType = LifeIndexType.fromCode(type);
+            if (indexType != null) {
+                weather.setLifeIndex(indexType, LifeIndex.of(category, text));
             }
         }
         
@@ -646,30 +797,10 @@ public class WeatherApi {
     
     /**
      * 根据天气代码返回对应的图标资源ID
+     * 通过静态对照表查找，没有对应图标时返回默认图标
      */
     public static int getWeatherIconResource(String iconCode) {
-        // 构建资源名称
-        String resourceName = "icon_" + iconCode;
-        int resourceId = 0;
-        try {
-            // 使用Android资源查找机制，不使用反射
-            Context context = WeatherApplication.getAppContext();
-            resourceId = context.getResources().getIdentifier(
-                resourceName, "drawable", context.getPackageName());
-        } catch (Exception e) {
-            Log.e("WeatherApi", "获取天气图标资源失败: " + e.getMessage());
-        }
-        // 如果没有找到资源，返回默认图标
-        if (resourceId == 0) {
-            try {
-                Context context = WeatherApplication.getAppContext();
-                resourceId = context.getResources().getIdentifier(
-                    "icon_399", "drawable", context.getPackageName());
-            } catch (Exception e) {
-                Log.e("WeatherApi", "获取默认图标资源失败");
-            }
-        }
-        return resourceId;
+        return WeatherIcons.getIconResource(iconCode);
     }
 
     /**
@@ -691,6 +822,7 @@ public class WeatherApi {
         
         // 保存到缓存
         if (weather != null) {
+            attachAirQuality(context, cityId, weather);
             weatherDataCache.cacheCurrentWeather(cityId, weather);
         }
         
@@ -718,12 +850,25 @@ public class WeatherApi {
         
         // 保存到缓存
         if (weather != null) {
+            attachAirQuality(context, locationId, weather);
             weatherDataCache.cacheCurrentWeather(locationId, weather);
         }
         
         return weather;
     }
     
+    /**
+     * 为实况天气补充空气质量，广播、城市列表和首页都需要AQI
+     * 空气质量获取失败不影响实况天气的返回
+     */
+    private static void attachAirQuality(Context context, String cityId, Weather weather) {
+        try {
+            getAirQualityWithCache(context, cityId, weather);
+        } catch (Exception e) {
+            Log.e("WeatherApi", "获取空气质量失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 获取7天天气预报（带缓存）
      */
@@ -776,6 +921,85 @@ public class WeatherApi {
         return weather;
     }
     
+    /**
+     * 获取24小时逐小时天气预报（带缓存）
+     * 当前城市的逐小时预报由刷新流程保持更新，其他城市在需要时才请求
+     * @param cityId 城市ID或经纬度ID
+     */
+    public static Weather getHourlyForecastWithCache(Context context, String cityId) 
+            throws IOException, JSONException {
+        
+        initCache(context);
+        
+        // 先尝试从缓存获取
+        Weather cachedWeather = weatherDataCache.getCachedHourlyForecast(cityId);
+        if (cachedWeather != null) {
+            return cachedWeather;
+        }
+        
+        // 缓存不存在或已过期，从API获取
+        Weather weather = getHourlyForecast(cityId, HOURLY_24H);
+        
+        // 保存到缓存
+        if (weather != null) {
+            weatherDataCache.cacheHourlyForecast(cityId, weather);
+        }
+        
+        return weather;
+    }
+    
+    /**
+     * 根据经纬度获取24小时逐小时天气预报（带缓存）
+     */
+    public static Weather getHourlyForecastByLocationWithCache(Context context, double lat, double lon) 
+            throws IOException, JSONException {
+        return getHourlyForecastWithCache(context, lon + "," + lat);
+    }
+    
+    /**
+     * 根据经纬度获取缓存的分钟级降水预报，不请求网络
+     * @return 预报；尚未获取或已过期时返回null
+     */
+    public static PrecipitationNowcast getCachedNowcast(Context context, double lat, double lon) {
+        initCache(context);
+        return weatherDataCache.getCachedNowcast(lon + "," + lat);
+    }
+    
+    /**
+     * 根据经纬度获取分钟级降水预报（带缓存）
+     * 缓存有效期很短，刷新时写入缓存中未发布的缓冲区，完整写入后再与已发布的缓冲区交换
+     * @return 预报，调用方只应读取，且不应跨刷新持有；已有刷新正在进行时返回null
+     */
+    public static PrecipitationNowcast getNowcastWithCache(Context context, double lat, double lon) 
+            throws IOException, JSONException {
+        
+        initCache(context);
+        String location = lon + "," + lat;
+        
+        // 先尝试从缓存获取
+        PrecipitationNowcast cachedNowcast = weatherDataCache.getCachedNowcast(location);
+        if (cachedNowcast != null) {
+            return cachedNowcast;
+        }
+        
+        // 缓存不存在或已过期，从API获取并写入未发布的缓冲区，读取方不会看到写了一半的预报
+        PrecipitationNowcast nowcast = weatherDataCache.beginNowcastUpdate(location);
+        if (nowcast == null) {
+            return null;
+        }
+        boolean published = false;
+        try {
+            getPrecipitationNowcast(location, nowcast);
+            weatherDataCache.cacheNowcast(location, nowcast);
+            published = true;
+        } finally {
+            if (!published) {
+                weatherDataCache.cancelNowcastUpdate(nowcast);
+            }
+        }
+        return nowcast;
+    }
+    
     /**
      * 获取空气质量（带缓存）
      */
@@ -788,14 +1012,7 @@ public class WeatherApi {
         Weather cachedAir = weatherDataCache.getCachedAirQuality(cityId);
         if (cachedAir != null) {
             // 将缓存的空气质量数据合并到当前天气对象
-            weather.setAirQuality(cachedAir.getAirQuality());
-            weather.setAqi(cachedAir.getAqi());
-            weather.setPm25(cachedAir.getPm25());
-            weather.setPm10(cachedAir.getPm10());
-            weather.setCo(cachedAir.getCo());
-            weather.setSo2(cachedAir.getSo2());
-            weather.setNo2(cachedAir.getNo2());
-            weather.setO3(cachedAir.getO3());
+            mergeAirQualityData(weather, cachedAir);
             return weather;
         }
         
@@ -811,23 +1028,42 @@ public class WeatherApi {
     }
     
     /**
-     * 获取生活指数（带缓存）
+     * 获取应用使用的全部生活指数（带缓存）
      */
     public static Weather getLifeIndicesWithCache(Context context, String cityId, Weather weather) 
             throws IOException, JSONException {
+        return getLifeIndicesWithCache(context, cityId, weather, EnumSet.allOf(LifeIndexType.class));
+    }
+    
+    /**
+     * 获取指定类型的生活指数（带缓存）
+     * 缓存中已有的类型直接合并，只向API请求缺少的类型
+     * @param types 需要的指数类型
+     */
+    public static Weather getLifeIndicesWithCache(Context context, String cityId, Weather weather,
+            Set<LifeIndexType> types) throws IOException, JSONException {
         
         initCache(context);
         
         // 先尝试从缓存获取
+        EnumSet<LifeIndexType> missing = EnumSet.noneOf(LifeIndexType.class);
+        missing.addAll(types);
         Weather cachedIndices = weatherDataCache.getCachedLifeIndices(cityId);
         if (cachedIndices != null) {
             // 将缓存的生活指数数据合并到当前天气对象
             mergeIndicesData(weather, cachedIndices);
+            for (LifeIndexType type : types) {
+                if (cachedIndices.getLifeIndex(type) != null) {
+                    missing.remove(type);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
             return weather;
         }
         
-        // 缓存不存在或已过期，从API获取
-        Weather updatedWeather = getLifeIndices(cityId, weather);
+        // 缓存不存在、已过期或缺少需要的类型，从API获取缺少的类型
+        Weather updatedWeather = getLifeIndices(cityId, weather, missing);
         
         // 保存到缓存
         if (updatedWeather != null) {
@@ -838,27 +1074,29 @@ public class WeatherApi {
     }
     
     /**
-     * 合并生活指数数据到天气对象
+     * 合并空气质量数据到天气对象
      */
-    private static void mergeIndicesData(Weather target, Weather source) {
-        target.setClothesIndex(source.getClothesIndex());
-        target.setClothesCategory(source.getClothesCategory());
-        target.setSportIndex(source.getSportIndex());
-        target.setSportCategory(source.getSportCategory());
-        target.setUvIndex(source.getUvIndex());
-        target.setUvCategory(source.getUvCategory());
-        target.setWashCarIndex(source.getWashCarIndex());
-        target.setWashCarCategory(source.getWashCarCategory());
-        target.setTravelIndex(source.getTravelIndex());
-        target.setTravelCategory(source.getTravelCategory());
-        target.setComfortIndex(source.getComfortIndex());
-        target.setComfortCategory(source.getComfortCategory());
-        target.setAirPollutionIndex(source.getAirPollutionIndex());
-        target.setAirPollutionCategory(source.getAirPollutionCategory());
-        target.setTrafficIndex(source.getTrafficIndex());
-        target.setTrafficCategory(source.getTrafficCategory());
-        target.setFluIndex(source.getFluIndex());
-        target.setFluCategory(source.getFluCategory());
+    public static void mergeAirQualityData(Weather target, Weather source) {
+        target.setAirQuality(source.getAirQuality());
+        target.setAqi(source.getAqi());
+        target.setPm25(source.getPm25());
+        target.setPm10(source.getPm10());
+        target.setCo(source.getCo());
+        target.setSo2(source.getSo2());
+        target.setNo2(source.getNo2());
+        target.setO3(source.getO3());
+    }
+    
+    /**
+     * 合并生活指数数据到天气对象，只合并来源中已获取的类型
+     */
+    public static void mergeIndicesData(Weather target, Weather source) {
+        for (LifeIndexType type : LifeIndexType.values()) {
+            LifeIndex index = source.getLifeIndex(type);
+            if (index != null) {
+                target.setLifeIndex(type, index);
+            }
+        }
     }
     
     /**
@@ -919,6 +1157,15 @@ public class WeatherApi {
      */
     public static Weather refreshWeatherData(Context context, String cityId) 
             throws IOException, JSONException {
+        return refreshWeatherData(context, cityId, false);
+    }
+    
+    /**
+     * 刷新天气数据（忽略缓存）
+     * @param includeHourly 是否同时刷新逐小时预报，用于当前城市；逐小时预报缓存未过期时不请求
+     */
+    public static Weather refreshWeatherData(Context context, String cityId, boolean includeHourly) 
+            throws IOException, JSONException {
         
         initCache(context);
         
@@ -937,6 +1184,11 @@ public class WeatherApi {
                 Log.e("WeatherApi", "获取天气预报失败: " + e.getMessage());
             }
             
+            // 获取逐小时天气预报
+            if (includeHourly) {
+                refreshHourlyForecastIfExpired(cityId);
+            }
+            
             // 获取并合并空气质量
             try {
                 currentWeather = getAirQuality(cityId, currentWeather);
@@ -945,13 +1197,8 @@ public class WeatherApi {
                 Log.e("WeatherApi", "获取空气质量失败: " + e.getMessage());
             }
             
-            // 获取并合并生活指数
-            try {
-                currentWeather = getLifeIndices(cityId, currentWeather);
-                weatherDataCache.cacheLifeIndices(cityId, currentWeather);
-            } catch (Exception e) {
-                Log.e("WeatherApi", "获取生活指数失败: " + e.getMessage());
-            }
+            // 获取并合并界面订阅的生活指数
+            refreshSubscribedLifeIndices(cityId, currentWeather);
             
             // 保存当前天气到缓存
             weatherDataCache.cacheCurrentWeather(cityId, currentWeather);
@@ -965,6 +1212,15 @@ public class WeatherApi {
      */
     public static Weather refreshWeatherDataByLocation(Context context, double lat, double lon) 
             throws IOException, JSONException {
+        return refreshWeatherDataByLocation(context, lat, lon, false);
+    }
+    
+    /**
+     * 根据经纬度刷新天气数据（忽略缓存）
+     * @param includeHourly 是否同时刷新逐小时预报，用于当前城市；逐小时预报缓存未过期时不请求
+     */
+    public static Weather refreshWeatherDataByLocation(Context context, double lat, double lon,
+            boolean includeHourly) throws IOException, JSONException {
         
         initCache(context);
         String locationId = lon + "," + lat;
@@ -984,6 +1240,11 @@ public class WeatherApi {
                 Log.e("WeatherApi", "获取天气预报失败: " + e.getMessage());
             }
             
+            // 获取逐小时天气预报
+            if (includeHourly) {
+                refreshHourlyForecastIfExpired(locationId);
+            }
+            
             // 获取并合并空气质量
             try {
                 currentWeather = getAirQuality(locationId, currentWeather);
@@ -992,13 +1253,8 @@ public class WeatherApi {
                 Log.e("WeatherApi", "获取空气质量失败: " + e.getMessage());
             }
             
-            // 获取并合并生活指数
-            try {
-                currentWeather = getLifeIndices(locationId, currentWeather);
-                weatherDataCache.cacheLifeIndices(locationId, currentWeather);
-            } catch (Exception e) {
-                Log.e("WeatherApi", "获取生活指数失败: " + e.getMessage());
-            }
+            // 获取并合并界面订阅的生活指数
+            refreshSubscribedLifeIndices(locationId, currentWeather);
             
             // 保存当前天气到缓存
             weatherDataCache.cacheCurrentWeather(locationId, currentWeather);
@@ -1007,6 +1263,62 @@ public class WeatherApi {
         return currentWeather;
     }
     
+    /**
+     * 刷新一个城市的天气数据发出的请求数，与refreshWeatherData、refreshWeatherDataByLocation保持一致：
+     * 实时天气、预报、空气质量，界面订阅了生活指数时再加一次生活指数请求
+     */
+    public static int getRefreshRequestCount() {
+        int count = 3;
+        if (!LifeIndexSubscriptions.getRequestedTypes().isEmpty()) {
+            count++;
+        }
+        return count;
+    }
+    
+    /**
+     * 刷新城市的天气数据时逐小时预报发出的请求数
+     * @param includeHourly 刷新时是否包含逐小时预报
+     * @return 包含逐小时预报且缓存已过期时为1，否则为0
+     */
+    public static int getHourlyRefreshRequestCount(Context context, String cityId, boolean includeHourly) {
+        if (!includeHourly) {
+            return 0;
+        }
+        initCache(context);
+        return weatherDataCache.isHourlyForecastExpired(cityId) ? 1 : 0;
+    }
+    
+    /**
+     * 逐小时预报缓存已过期时刷新，单独缓存，不合并到当前天气
+     */
+    private static void refreshHourlyForecastIfExpired(String cityId) {
+        if (!weatherDataCache.isHourlyForecastExpired(cityId)) {
+            return;
+        }
+        try {
+            Weather hourlyWeather = getHourlyForecast(cityId, HOURLY_24H);
+            weatherDataCache.cacheHourlyForecast(cityId, hourlyWeather);
+        } catch (Exception e) {
+            Log.e("WeatherApi", "获取逐小时预报失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 刷新界面订阅的生活指数，没有订阅方时不请求
+     */
+    private static void refreshSubscribedLifeIndices(String cityId, Weather weather) {
+        Set<LifeIndexType> types = LifeIndexSubscriptions.getRequestedTypes();
+        if (types.isEmpty()) {
+            return;
+        }
+        try {
+            getLifeIndices(cityId, weather, types);
+            weatherDataCache.cacheLifeIndices(cityId, weather);
+        } catch (Exception e) {
+            Log.e("WeatherApi", "获取生活指数失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 验证并修复缓存数据
      * 检查指定城市的缓存完整性，尝试修复损坏的缓存
@@ -1056,7 +1368,7 @@ public class WeatherApi {
                 .url(url)
                 .build();
         
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("请求失败: " + response);
             }
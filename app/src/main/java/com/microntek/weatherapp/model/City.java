@@ -34,6 +34,24 @@ public class City {
         this.isCurrentLocation = false;
     }
 
+    /**
+     * 复制构造函数，复制全部字段
+     */
+    public City(City other) {
+        this.name = other.name;
+        this.id = other.id;
+        this.province = other.province;
+        this.district = other.district;
+        this.latitude = other.latitude;
+        this.longitude = other.longitude;
+        this.isCurrentLocation = other.isCurrentLocation;
+        this.temperature = other.temperature;
+        this.weatherDesc = other.weatherDesc;
+        this.weatherIcon = other.weatherIcon;
+        this.airQuality = other.airQuality;
+        this.aqi = other.aqi;
+    }
+
     // Getter和Setter方法
     public String getName() {
         return name;
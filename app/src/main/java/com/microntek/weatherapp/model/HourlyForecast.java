@@ -0,0 +1,303 @@
+package com.microntek.weatherapp.model;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.microntek.weatherapp.util.WeatherIcons;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 逐小时天气预报，不可变
+ * 每小时的数据按列保存在平行的基本类型数组中，24到72小时的预报不需要逐小时创建对象
+ * 缓存中序列化为按列的数字数组，时间保存为第一个小时的epoch秒加上之后各小时的间隔
+ */
+@JsonAdapter(HourlyForecast.GsonAdapter.class)
+public final class HourlyForecast {
+    // 降水概率、风向等缺失时的取值
+    public static final int UNKNOWN = -1;
+
+    private final long[] epochSeconds;
+    private final short[] temperatures;
+    private final byte[] precipitationProbabilities;
+    private final short[] windSpeeds;
+    private final short[] windDirections;
+    private final short[] conditionCodes;
+
+    private HourlyForecast(long[] epochSeconds, short[] temperatures, byte[] precipitationProbabilities,
+                           short[] windSpeeds, short[] windDirections, short[] conditionCodes) {
+        this.epochSeconds = epochSeconds;
+        this.temperatures = temperatures;
+        this.precipitationProbabilities = precipitationProbabilities;
+        this.windSpeeds = windSpeeds;
+        this.windDirections = windDirections;
+        this.conditionCodes = conditionCodes;
+    }
+
+    /**
+     * 预报的小时数
+     */
+    public int size() {
+        return epochSeconds.length;
+    }
+
+    /**
+     * 第index小时的开始时间（epoch秒）
+     */
+    public long getEpochSecond(int index) {
+        return epochSeconds[index];
+    }
+
+    /**
+     * 第index小时的温度（摄氏度）
+     */
+    public int getTemperature(int index) {
+        return temperatures[index];
+    }
+
+    /**
+     * 第index小时的降水概率（0-100）
+     * @return 降水概率；接口未返回时为 {@link #UNKNOWN}
+     */
+    public int getPrecipitationProbability(int index) {
+        return precipitationProbabilities[index];
+    }
+
+    /**
+     * 第index小时的风速（公里/小时）
+     */
+    public int getWindSpeed(int index) {
+        return windSpeeds[index];
+    }
+
+    /**
+     * 第index小时的风向（0-359度）
+     * @return 风向角度；接口未返回时为 {@link #UNKNOWN}
+     */
+    public int getWindDirection(int index) {
+        return windDirections[index];
+    }
+
+    /**
+     * 第index小时的天气状况代码，见WeatherCondition
+     */
+    public int getConditionCode(int index) {
+        return conditionCodes[index];
+    }
+
+    /**
+     * 第index小时的天气图标资源ID
+     */
+    public int getWeatherIconResource(int index) {
+        return WeatherIcons.getIconResource(conditionCodes[index]);
+    }
+
+    /**
+     * 查找包含指定时间的小时，用于从当前时间开始显示预报
+     * @param epochSecond epoch秒
+     * @return 开始时间不晚于指定时间的最后一个小时；指定时间早于第一个小时时返回0，预报为空时返回-1
+     */
+    public int indexOf(long epochSecond) {
+        if (epochSeconds.length == 0) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(epochSeconds, epochSecond);
+        if (index >= 0) {
+            return index;
+        }
+        // 插入点的前一个小时包含该时间
+        return Math.max(0, -index - 2);
+    }
+
+    /**
+     * 按小时顺序逐个添加数据，构建逐小时预报
+     */
+    public static final class Builder {
+        private long[] epochSeconds;
+        private short[] temperatures;
+        private byte[] precipitationProbabilities;
+        private short[] windSpeeds;
+        private short[] windDirections;
+        private short[] conditionCodes;
+        private int size = 0;
+
+        /**
+         * @param capacity 预计的小时数，如24或72
+         */
+        public Builder(int capacity) {
+            allocate(Math.max(capacity, 1));
+        }
+
+        /**
+         * 添加一小时的预报，须晚于已添加的小时
+         * @param epochSecond 开始时间（epoch秒）
+         * @param temperature 温度（摄氏度）
+         * @param precipitationProbability 降水概率（0-100），缺失时为 {@link #UNKNOWN}
+         * @param windSpeed 风速（公里/小时）
+         * @param windDirection 风向（0-359度），缺失时为 {@link #UNKNOWN}
+         * @param conditionCode 天气状况代码
+         */
+        public Builder add(long epochSecond, int temperature, int precipitationProbability,
+                           int windSpeed, int windDirection, int conditionCode) {
+            if (size > 0 && epochSecond <= epochSeconds[size - 1]) {
+                throw new IllegalArgumentException("逐小时预报的时间必须递增");
+            }
+            if (size == epochSeconds.length) {
+                allocate(size * 2);
+            }
+            epochSeconds[size] = epochSecond;
+            temperatures[size] = (short) temperature;
+            precipitationProbabilities[size] = (byte) precipitationProbability;
+            windSpeeds[size] = (short) windSpeed;
+            windDirections[size] = (short) windDirection;
+            conditionCodes[size] = (short) conditionCode;
+            size++;
+            return this;
+        }
+
+        public HourlyForecast build() {
+            return new HourlyForecast(
+                    Arrays.copyOf(epochSeconds, size),
+                    Arrays.copyOf(temperatures, size),
+                    Arrays.copyOf(precipitationProbabilities, size),
+                    Arrays.copyOf(windSpeeds, size),
+                    Arrays.copyOf(windDirections, size),
+                    Arrays.copyOf(conditionCodes, size));
+        }
+
+        private void allocate(int capacity) {
+            epochSeconds = epochSeconds == null ? new long[capacity] : Arrays.copyOf(epochSeconds, capacity);
+            temperatures = temperatures == null ? new short[capacity] : Arrays.copyOf(temperatures, capacity);
+            precipitationProbabilities = precipitationProbabilities == null
+                    ? new byte[capacity] : Arrays.copyOf(precipitationProbabilities, capacity);
+            windSpeeds = windSpeeds == null ? new short[capacity] : Arrays.copyOf(windSpeeds, capacity);
+            windDirections = windDirections == null ? new short[capacity] : Arrays.copyOf(windDirections, capacity);
+            conditionCodes = conditionCodes == null ? new short[capacity] : Arrays.copyOf(conditionCodes, capacity);
+        }
+    }
+
+    /**
+     * 缓存序列化：{"time":[第一个小时, 间隔...], "temp":[...], "pop":[...], "windSpeed":[...], "windDir":[...], "code":[...]}
+     * 读取时各列长度不一致、时间不递增或数据不是整数视为缓存损坏
+     */
+    static final class GsonAdapter extends TypeAdapter<HourlyForecast> {
+        @Override
+        public void write(JsonWriter out, HourlyForecast forecast) throws IOException {
+            if (forecast == null) {
+                out.nullValue();
+                return;
+            }
+            int size = forecast.size();
+            out.beginObject();
+            out.name("time").beginArray();
+            for (int i = 0; i < size; i++) {
+                out.value(i == 0 ? forecast.epochSeconds[0]
+                        : forecast.epochSeconds[i] - forecast.epochSeconds[i - 1]);
+            }
+            out.endArray();
+            writeColumn(out, "temp", forecast.temperatures);
+            out.name("pop").beginArray();
+            for (byte value : forecast.precipitationProbabilities) {
+                out.value(value);
+            }
+            out.endArray();
+            writeColumn(out, "windSpeed", forecast.windSpeeds);
+            writeColumn(out, "windDir", forecast.windDirections);
+            writeColumn(out, "code", forecast.conditionCodes);
+            out.endObject();
+        }
+
+        private static void writeColumn(JsonWriter out, String name, short[] values) throws IOException {
+            out.name(name).beginArray();
+            for (short value : values) {
+                out.value(value);
+            }
+            out.endArray();
+        }
+
+        @Override
+        public HourlyForecast read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            long[] times = null;
+            long[] temps = null;
+            long[] pops = null;
+            long[] speeds = null;
+            long[] directions = null;
+            long[] codes = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "time":
+                        times = readColumn(in);
+                        break;
+                    case "temp":
+                        temps = readColumn(in);
+                        break;
+                    case "pop":
+                        pops = readColumn(in);
+                        break;
+                    case "windSpeed":
+                        speeds = readColumn(in);
+                        break;
+                    case "windDir":
+                        directions = readColumn(in);
+                        break;
+                    case "code":
+                        codes = readColumn(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+
+            if (times == null || temps == null || pops == null || speeds == null
+                    || directions == null || codes == null) {
+                throw new JsonSyntaxException("逐小时预报缺少数据列");
+            }
+            int size = times.length;
+            if (temps.length != size || pops.length != size || speeds.length != size
+                    || directions.length != size || codes.length != size) {
+                throw new JsonSyntaxException("逐小时预报各列长度不一致");
+            }
+
+            Builder builder = new Builder(size);
+            long epochSecond = 0;
+            for (int i = 0; i < size; i++) {
+                if (i > 0 && times[i] <= 0) {
+                    throw new JsonSyntaxException("逐小时预报时间不递增");
+                }
+                epochSecond = i == 0 ? times[0] : epochSecond + times[i];
+                builder.add(epochSecond, (int) temps[i], (int) pops[i],
+                        (int) speeds[i], (int) directions[i], (int) codes[i]);
+            }
+            return builder.build();
+        }
+
+        private static long[] readColumn(JsonReader in) throws IOException {
+            long[] values = new long[32];
+            int size = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                try {
+                    values[size++] = in.nextLong();
+                } catch (NumberFormatException e) {
+                    throw new JsonSyntaxException("逐小时预报数据不是整数", e);
+                }
+            }
+            in.endArray();
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
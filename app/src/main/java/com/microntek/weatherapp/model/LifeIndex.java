@@ -0,0 +1,159 @@
+package com.microntek.weatherapp.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 单项生活指数，不可变
+ * 简短描述来自很小的固定词表（如"适宜"、"较不宜"），保存为词表编号；详细描述在各城市间大量重复，通过共享文本池复用同一个实例
+ * 缓存中序列化为紧凑数组：[编号, 详细描述]，不在词表中的简短描述为[0, 详细描述, 简短描述]
+ */
+@JsonAdapter(LifeIndex.GsonAdapter.class)
+public final class LifeIndex {
+    // 不在词表中的简短描述
+    public static final int CATEGORY_OTHER = 0;
+
+    // 简短描述词表，编号即下标，会写入缓存，只能在末尾追加
+    private static final String[] CATEGORIES = {
+            null,
+            "适宜", "较适宜", "较不宜", "不宜", "不适宜", "一般",
+            "寒冷", "冷", "较冷", "较舒适", "舒适", "热", "炎热",
+            "最弱", "弱", "中等", "强", "很强",
+            "少发", "较易发", "易发", "极易发",
+            "优", "良", "中", "较差", "很差", "良好", "较好",
+            "较不舒适", "不舒适", "很不舒适", "极不舒适", "非常不舒适"
+    };
+
+    private static final Map<String, Integer> CATEGORY_CODES = new HashMap<>();
+
+    static {
+        for (int i = 1; i < CATEGORIES.length; i++) {
+            CATEGORY_CODES.put(CATEGORIES[i], i);
+        }
+    }
+
+    // 共享文本池的容量，超过后清空重建
+    private static final int TEXT_POOL_CAPACITY = 256;
+    private static final Map<String, String> textPool = new HashMap<>();
+
+    private final int categoryCode;
+    private final String otherCategory;
+    private final String text;
+
+    private LifeIndex(int categoryCode, String otherCategory, String text) {
+        this.categoryCode = categoryCode;
+        this.otherCategory = otherCategory;
+        this.text = text;
+    }
+
+    /**
+     * 创建生活指数，简短描述转换为词表编号，详细描述放入共享文本池
+     * @param category 简短描述
+     * @param text 详细描述
+     */
+    public static LifeIndex of(String category, String text) {
+        Integer code = category != null ? CATEGORY_CODES.get(category) : null;
+        if (code != null) {
+            return new LifeIndex(code, null, intern(text));
+        }
+        return new LifeIndex(CATEGORY_OTHER, intern(category), intern(text));
+    }
+
+    private static LifeIndex decode(int categoryCode, String text, String otherCategory) {
+        if (categoryCode > CATEGORY_OTHER && categoryCode < CATEGORIES.length) {
+            return new LifeIndex(categoryCode, null, intern(text));
+        }
+        return new LifeIndex(CATEGORY_OTHER, intern(otherCategory), intern(text));
+    }
+
+    private static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        synchronized (textPool) {
+            String pooled = textPool.get(value);
+            if (pooled != null) {
+                return pooled;
+            }
+            if (textPool.size() >= TEXT_POOL_CAPACITY) {
+                textPool.clear();
+            }
+            textPool.put(value, value);
+            return value;
+        }
+    }
+
+    /**
+     * 获取简短描述的词表编号
+     * @return 编号；不在词表中时返回 {@link #CATEGORY_OTHER}
+     */
+    public int getCategoryCode() {
+        return categoryCode;
+    }
+
+    /**
+     * 获取简短描述
+     */
+    public String getCategory() {
+        return categoryCode != CATEGORY_OTHER ? CATEGORIES[categoryCode] : otherCategory;
+    }
+
+    /**
+     * 获取详细描述
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * 缓存序列化：写为紧凑数组，读取时转换编号并复用共享文本池
+     */
+    static final class GsonAdapter extends TypeAdapter<LifeIndex> {
+        @Override
+        public void write(JsonWriter out, LifeIndex index) throws IOException {
+            if (index == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            out.value(index.categoryCode);
+            out.value(index.text);
+            if (index.categoryCode == CATEGORY_OTHER) {
+                out.value(index.otherCategory);
+            }
+            out.endArray();
+        }
+
+        @Override
+        public LifeIndex read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            in.beginArray();
+            int categoryCode = in.nextInt();
+            String text = readString(in);
+            String otherCategory = in.hasNext() ? readString(in) : null;
+            while (in.hasNext()) {
+                in.skipValue();
+            }
+            in.endArray();
+            return decode(categoryCode, text, otherCategory);
+        }
+
+        private static String readString(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return in.nextString();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.microntek.weatherapp.model;
+
+/**
+ * 应用使用的和风天气生活指数类型
+ * code为接口中的type参数：1.运动 2.洗车 3.穿衣 5.紫外线 6.旅游 8.舒适度 9.感冒 11.空气污染扩散条件 15.交通
+ */
+public enum LifeIndexType {
+    SPORT("1"),
+    CAR_WASH("2"),
+    CLOTHES("3"),
+    UV("5"),
+    TRAVEL("6"),
+    COMFORT("8"),
+    FLU("9"),
+    AIR_POLLUTION("11"),
+    TRAFFIC("15");
+
+    private final String code;
+
+    LifeIndexType(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * 根据接口返回的type查找类型
+     * @return 对应的类型；应用不使用的类型返回null
+     */
+    public static LifeIndexType fromCode(String code) {
+        for (LifeIndexType type : values()) {
+            if (type.code.equals(code)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 读取天气对象中该类型指数的简短描述
+     * @return 简短描述；尚未获取时返回null
+     */
+    public String getCategory(Weather weather) {
+        LifeIndex index = weather.getLifeIndex(this);
+        return index != null ? index.getCategory() : null;
+    }
+}
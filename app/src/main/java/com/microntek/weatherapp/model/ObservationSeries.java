@@ -0,0 +1,157 @@
+package com.microntek.weatherapp.model;
+
+import java.util.Arrays;
+
+/**
+ * 历史天气观测序列，不可变，用于绘制温度、空气质量等趋势图
+ * 每条记录可以是一次原始观测，也可以是一小时或一天的汇总；汇总记录的温度为平均值，并带有最低、最高温度
+ * 数据按列保存在平行的基本类型数组中
+ */
+public final class ObservationSeries {
+    // 空气质量、湿度等缺失时的取值
+    public static final int UNKNOWN = -1;
+
+    private final long[] epochSeconds;
+    private final short[] temperatures;
+    private final short[] minTemperatures;
+    private final short[] maxTemperatures;
+    private final short[] aqis;
+    private final byte[] humidities;
+
+    private ObservationSeries(long[] epochSeconds, short[] temperatures, short[] minTemperatures,
+                              short[] maxTemperatures, short[] aqis, byte[] humidities) {
+        this.epochSeconds = epochSeconds;
+        this.temperatures = temperatures;
+        this.minTemperatures = minTemperatures;
+        this.maxTemperatures = maxTemperatures;
+        this.aqis = aqis;
+        this.humidities = humidities;
+    }
+
+    /**
+     * 记录数
+     */
+    public int size() {
+        return epochSeconds.length;
+    }
+
+    /**
+     * 第index条记录的时间（epoch秒），汇总记录为所在小时或当天的开始时间
+     */
+    public long getEpochSecond(int index) {
+        return epochSeconds[index];
+    }
+
+    /**
+     * 第index条记录的温度（摄氏度），汇总记录为平均温度
+     */
+    public int getTemperature(int index) {
+        return temperatures[index];
+    }
+
+    /**
+     * 第index条记录的最低温度（摄氏度），原始观测与温度相同
+     */
+    public int getMinTemperature(int index) {
+        return minTemperatures[index];
+    }
+
+    /**
+     * 第index条记录的最高温度（摄氏度），原始观测与温度相同
+     */
+    public int getMaxTemperature(int index) {
+        return maxTemperatures[index];
+    }
+
+    /**
+     * 第index条记录的空气质量指数
+     * @return 空气质量指数；没有数据时为 {@link #UNKNOWN}
+     */
+    public int getAqi(int index) {
+        return aqis[index];
+    }
+
+    /**
+     * 第index条记录的湿度百分比（0-100）
+     * @return 湿度；没有数据时为 {@link #UNKNOWN}
+     */
+    public int getHumidity(int index) {
+        return humidities[index];
+    }
+
+    /**
+     * 按时间顺序逐条添加记录，构建观测序列
+     */
+    public static final class Builder {
+        private long[] epochSeconds;
+        private short[] temperatures;
+        private short[] minTemperatures;
+        private short[] maxTemperatures;
+        private short[] aqis;
+        private byte[] humidities;
+        private int size = 0;
+
+        /**
+         * @param capacity 预计的记录数
+         */
+        public Builder(int capacity) {
+            allocate(Math.max(capacity, 1));
+        }
+
+        /**
+         * 添加一条记录，须晚于已添加的记录
+         * @param epochSecond 时间（epoch秒）
+         * @param temperature 温度或平均温度（摄氏度）
+         * @param minTemperature 最低温度（摄氏度）
+         * @param maxTemperature 最高温度（摄氏度）
+         * @param aqi 空气质量指数，缺失时为 {@link #UNKNOWN}
+         * @param humidity 湿度百分比，缺失时为 {@link #UNKNOWN}
+         */
+        public Builder add(long epochSecond, int temperature, int minTemperature, int maxTemperature,
+                           int aqi, int humidity) {
+            if (size > 0 && epochSecond <= epochSeconds[size - 1]) {
+                throw new IllegalArgumentException("观测记录的时间必须递增");
+            }
+            if (size == epochSeconds.length) {
+                allocate(size * 2);
+            }
+            epochSeconds[size] = epochSecond;
+            temperatures[size] = (short) temperature;
+            minTemperatures[size] = (short) minTemperature;
+            maxTemperatures[size] = (short) maxTemperature;
+            aqis[size] = (short) aqi;
+            humidities[size] = (byte) humidity;
+            size++;
+            return this;
+        }
+
+        /**
+         * 最后添加的记录的时间（epoch秒）
+         * @return 时间；尚未添加记录时返回Long.MIN_VALUE
+         */
+        public long getLastEpochSecond() {
+            return size > 0 ? epochSeconds[size - 1] : Long.MIN_VALUE;
+        }
+
+        public ObservationSeries build() {
+            return new ObservationSeries(
+                    Arrays.copyOf(epochSeconds, size),
+                    Arrays.copyOf(temperatures, size),
+                    Arrays.copyOf(minTemperatures, size),
+                    Arrays.copyOf(maxTemperatures, size),
+                    Arrays.copyOf(aqis, size),
+                    Arrays.copyOf(humidities, size));
+        }
+
+        private void allocate(int capacity) {
+            epochSeconds = epochSeconds == null ? new long[capacity] : Arrays.copyOf(epochSeconds, capacity);
+            temperatures = temperatures == null ? new short[capacity] : Arrays.copyOf(temperatures, capacity);
+            minTemperatures = minTemperatures == null
+                    ? new short[capacity] : Arrays.copyOf(minTemperatures, capacity);
+            maxTemperatures = maxTemperatures == null
+                    ? new short[capacity] : Arrays.copyOf(maxTemperatures, capacity);
+            aqis = aqis == null ? new short[capacity] : Arrays.copyOf(aqis, capacity);
+            humidities = humidities == null ? new byte[capacity] : Arrays.copyOf(humidities, capacity);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.microntek.weatherapp.model;
+
+/**
+ * 分钟级降水预报（未来2小时，每5分钟一个时段）
+ * 数据保存在固定大小的基本类型环形缓冲区中，按时段开始时间定位；新一次的预报覆盖重叠的时段，
+ * 时间向后推进时淘汰最早的时段。
+ * 缓存持有两个缓冲区并反复使用：刷新时把已发布的预报复制到另一个缓冲区写入，写入完成后交换，
+ * 刷新过程中不分配对象
+ */
+public final class PrecipitationNowcast {
+    // 时段数与每个时段的长度，与和风天气minutely/5m接口一致
+    public static final int SLOT_COUNT = 24;
+    public static final int SLOT_SECONDS = 5 * 60;
+
+    // 预报范围内没有降水，或没有预报数据
+    public static final int NO_PRECIPITATION = -1;
+
+    // 降水类型
+    public static final int TYPE_UNKNOWN = 0;
+    public static final int TYPE_RAIN = 1;
+    public static final int TYPE_SNOW = 2;
+
+    // 各时段的降水量（0.01毫米），按环形缓冲区存放
+    private final int[] precipitation = new int[SLOT_COUNT];
+    // 各时段的降水类型，TYPE_UNKNOWN表示该时段没有数据
+    private final byte[] types = new byte[SLOT_COUNT];
+    // 最早时段所在的下标
+    private int head = 0;
+    // 最早时段的开始时间（epoch秒），Long.MIN_VALUE表示缓冲区为空
+    private long headEpochSecond = Long.MIN_VALUE;
+    // 最近一次写入预报的时间（毫秒），用于判断缓存是否过期
+    private long updateTime = 0;
+
+    /**
+     * 复制另一个缓冲区的全部预报，用于在写入新预报前保留重叠的时段
+     */
+    public synchronized void copyFrom(PrecipitationNowcast source) {
+        if (source == this) {
+            return;
+        }
+        synchronized (source) {
+            System.arraycopy(source.precipitation, 0, precipitation, 0, SLOT_COUNT);
+            System.arraycopy(source.types, 0, types, 0, SLOT_COUNT);
+            head = source.head;
+            headEpochSecond = source.headEpochSecond;
+            updateTime = source.updateTime;
+        }
+    }
+
+    /**
+     * 清空缓冲区，用于位置变化或清除缓存
+     */
+    public synchronized void clear() {
+        clearSlots();
+        head = 0;
+        headEpochSecond = Long.MIN_VALUE;
+        updateTime = 0;
+    }
+
+    /**
+     * 写入一个时段的预报
+     * 时段早于缓冲区中最早的时段时忽略；超出预报范围时向后推进，淘汰最早的时段
+     * @param epochSecond 时段开始时间（epoch秒）
+     * @param precipitation 降水量（0.01毫米）
+     * @param type 降水类型，TYPE_RAIN或TYPE_SNOW
+     */
+    public synchronized void put(long epochSecond, int precipitation, int type) {
+        if (headEpochSecond == Long.MIN_VALUE) {
+            headEpochSecond = epochSecond;
+        }
+        long offset = Math.floorDiv(epochSecond - headEpochSecond, SLOT_SECONDS);
+        if (offset < 0) {
+            return;
+        }
+        if (offset >= SLOT_COUNT) {
+            advance(offset - SLOT_COUNT + 1);
+            offset = SLOT_COUNT - 1;
+        }
+        int index = (head + (int) offset) % SLOT_COUNT;
+        this.precipitation[index] = Math.max(0, precipitation);
+        this.types[index] = (byte) type;
+    }
+
+    /**
+     * 淘汰最早的若干个时段，被淘汰的位置清空后作为新的最晚时段
+     */
+    private void advance(long slots) {
+        if (slots >= SLOT_COUNT) {
+            // 与缓冲区中的数据没有重叠，整体重置
+            clearSlots();
+            head = 0;
+            headEpochSecond += slots * SLOT_SECONDS;
+            return;
+        }
+        for (int i = 0; i < slots; i++) {
+            precipitation[head] = 0;
+            types[head] = TYPE_UNKNOWN;
+            head = (head + 1) % SLOT_COUNT;
+        }
+        headEpochSecond += slots * SLOT_SECONDS;
+    }
+
+    private void clearSlots() {
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            precipitation[i] = 0;
+            types[i] = TYPE_UNKNOWN;
+        }
+    }
+
+    /**
+     * 记录一次完整的预报已写入
+     * @param updateTime 写入时间（毫秒）
+     */
+    public synchronized void markUpdated(long updateTime) {
+        this.updateTime = updateTime;
+    }
+
+    /**
+     * 最近一次写入预报的时间（毫秒），从未写入时为0
+     */
+    public synchronized long getUpdateTime() {
+        return updateTime;
+    }
+
+    /**
+     * 查找指定时间之后第一个有降水的时段
+     * @return 时段在缓冲区中的偏移；没有降水或没有数据时返回-1
+     */
+    private int findPrecipitation(long nowEpochSecond) {
+        if (headEpochSecond == Long.MIN_VALUE) {
+            return -1;
+        }
+        // 从包含当前时间的时段开始查找，已经过去的时段不计
+        long first = Math.max(0, Math.floorDiv(nowEpochSecond - headEpochSecond, SLOT_SECONDS));
+        for (long offset = first; offset < SLOT_COUNT; offset++) {
+            int index = (head + (int) offset) % SLOT_COUNT;
+            if (types[index] != TYPE_UNKNOWN && precipitation[index] > 0) {
+                return (int) offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 距离开始降水还有多少分钟，如"N分钟后开始下雨"
+     * @param nowEpochSecond 当前时间（epoch秒）
+     * @return 分钟数，正在降水时为0；预报范围内没有降水或没有数据时返回 {@link #NO_PRECIPITATION}
+     */
+    public synchronized int minutesUntilPrecipitation(long nowEpochSecond) {
+        int offset = findPrecipitation(nowEpochSecond);
+        if (offset < 0) {
+            return NO_PRECIPITATION;
+        }
+        long startEpochSecond = headEpochSecond + (long) offset * SLOT_SECONDS;
+        return (int) (Math.max(0, startEpochSecond - nowEpochSecond) / 60);
+    }
+
+    /**
+     * 即将出现的降水类型，与 {@link #minutesUntilPrecipitation(long)} 对应同一个时段
+     * @param nowEpochSecond 当前时间（epoch秒）
+     * @return TYPE_RAIN或TYPE_SNOW；预报范围内没有降水或没有数据时返回TYPE_UNKNOWN
+     */
+    public synchronized int getUpcomingPrecipitationType(long nowEpochSecond) {
+        int offset = findPrecipitation(nowEpochSecond);
+        if (offset < 0) {
+            return TYPE_UNKNOWN;
+        }
+        return types[(head + offset) % SLOT_COUNT];
+    }
+
+    /**
+     * 将接口返回的降水类型转换为类型代码
+     * @param type 接口中的type字段，"rain"或"snow"
+     */
+    public static int parseType(String type) {
+        if ("rain".equals(type)) {
+            return TYPE_RAIN;
+        }
+        if ("snow".equals(type)) {
+            return TYPE_SNOW;
+        }
+        return TYPE_UNKNOWN;
+    }
+
+    /**
+     * 类型代码对应的广播字段取值
+     * @return "rain"、"snow"；未知类型返回空字符串
+     */
+    public static String typeName(int type) {
+        switch (type) {
+            case TYPE_RAIN:
+                return "rain";
+            case TYPE_SNOW:
+                return "snow";
+            default:
+                return "";
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.microntek.weatherapp.model;
 
+import com.microntek.weatherapp.util.WeatherDates;
+import com.microntek.weatherapp.util.WeatherIcons;
+
 import java.util.List;
 
 /**
@@ -20,6 +23,10 @@ public class Weather {
     private String weatherIcon;
     private int weatherIconResource; // 新增图标资源ID属性
     
+    // 天气状况代码和类型，设置图标代码时解析，见WeatherCondition
+    private int conditionCode = WeatherCondition.UNKNOWN_CODE;
+    private int conditionCategory = WeatherCondition.CATEGORY_UNKNOWN;
+    
     // 其他天气信息
     private String wind;
     private int humidity;
@@ -36,29 +43,15 @@ public class Weather {
     private int no2;    // 二氧化氮
     private int o3;     // 臭氧
     
-    // 生活指数
-    private String clothesIndex;    // 穿衣指数
-    private String clothesCategory; // 穿衣指数简洁描述
-    private String sportIndex;      // 运动指数
-    private String sportCategory;   // 运动指数简洁描述
-    private String uvIndex;         // 紫外线指数
-    private String uvCategory;      // 紫外线指数简洁描述
-    private String washCarIndex;    // 洗车指数
-    private String washCarCategory; // 洗车指数简洁描述
-    private String travelIndex;     // 旅游指数
-    private String travelCategory;  // 旅游指数简洁描述
-    private String comfortIndex;    // 舒适度指数
-    private String comfortCategory; // 舒适度指数简洁描述
-    private String airPollutionIndex; // 空气污染扩散条件
-    private String airPollutionCategory; // 空气污染扩散条件简洁描述
-    private String trafficIndex;    // 交通指数
-    private String trafficCategory; // 交通指数简洁描述
-    private String fluIndex;        // 感冒指数
-    private String fluCategory;     // 感冒指数简洁描述
+    // 生活指数，按LifeIndexType.ordinal()存放，null表示该类型尚未获取
+    private LifeIndex[] lifeIndices;
     
     // 天气预报
     private List<DailyForecast> dailyForecasts;
     
+    // 逐小时天气预报
+    private HourlyForecast hourlyForecast;
+    
     // 新增：时间戳字段
     private long updateTimestamp;
     
@@ -124,6 +117,35 @@ public class Weather {
     
     public void setWeatherIcon(String weatherIcon) {
         this.weatherIcon = weatherIcon;
+        this.conditionCode = WeatherCondition.parseCode(weatherIcon);
+        this.conditionCategory = WeatherCondition.getCategory(conditionCode);
+    }
+    
+    /**
+     * 获取天气状况代码
+     * @return 整数代码，如100；未知时返回WeatherCondition.UNKNOWN_CODE
+     */
+    public int getConditionCode() {
+        resolveCondition();
+        return conditionCode;
+    }
+    
+    /**
+     * 获取天气类型，见WeatherCondition.CATEGORY_*
+     */
+    public int getConditionCategory() {
+        resolveCondition();
+        return conditionCategory;
+    }
+    
+    /**
+     * 旧版本缓存中的数据没有保存天气状况代码，首次读取时由图标代码补上
+     */
+    private void resolveCondition() {
+        if (conditionCode == WeatherCondition.UNKNOWN_CODE && weatherIcon != null) {
+            conditionCode = WeatherCondition.parseCode(weatherIcon);
+            conditionCategory = WeatherCondition.getCategory(conditionCode);
+        }
     }
     
     /**
@@ -137,8 +159,13 @@ public class Weather {
         return weatherIcon;
     }
     
+    /**
+     * 获取图标资源ID
+     * 有天气状况代码时按代码查表，缓存中保存的资源ID在应用升级后可能失效
+     */
     public int getWeatherIconResource() {
-        return weatherIconResource;
+        int code = getConditionCode();
+        return code != WeatherCondition.UNKNOWN_CODE ? WeatherIcons.getIconResource(code) : weatherIconResource;
     }
     
     public void setWeatherIconResource(int weatherIconResource) {
@@ -273,148 +300,22 @@ public class Weather {
         this.o3 = o3;
     }
     
-    public String getClothesIndex() {
-        return clothesIndex;
-    }
-    
-    public void setClothesIndex(String clothesIndex) {
-        this.clothesIndex = clothesIndex;
-    }
-    
-    public String getClothesCategory() {
-        return clothesCategory;
-    }
-    
-    public void setClothesCategory(String clothesCategory) {
-        this.clothesCategory = clothesCategory;
-    }
-    
-    public String getSportIndex() {
-        return sportIndex;
-    }
-    
-    public void setSportIndex(String sportIndex) {
-        this.sportIndex = sportIndex;
-    }
-    
-    public String getSportCategory() {
-        return sportCategory;
-    }
-    
-    public void setSportCategory(String sportCategory) {
-        this.sportCategory = sportCategory;
-    }
-    
-    public String getUvIndex() {
-        return uvIndex;
-    }
-    
-    public void setUvIndex(String uvIndex) {
-        this.uvIndex = uvIndex;
-    }
-    
-    public String getUvCategory() {
-        return uvCategory;
-    }
-    
-    public void setUvCategory(String uvCategory) {
-        this.uvCategory = uvCategory;
-    }
-    
-    public String getWashCarIndex() {
-        return washCarIndex;
-    }
-    
-    public void setWashCarIndex(String washCarIndex) {
-        this.washCarIndex = washCarIndex;
-    }
-    
-    public String getWashCarCategory() {
-        return washCarCategory;
-    }
-    
-    public void setWashCarCategory(String washCarCategory) {
-        this.washCarCategory = washCarCategory;
-    }
-    
-    public String getTravelIndex() {
-        return travelIndex;
-    }
-    
-    public void setTravelIndex(String travelIndex) {
-        this.travelIndex = travelIndex;
-    }
-    
-    public String getTravelCategory() {
-        return travelCategory;
-    }
-    
-    public void setTravelCategory(String travelCategory) {
-        this.travelCategory = travelCategory;
-    }
-    
-    public String getComfortIndex() {
-        return comfortIndex;
-    }
-    
-    public void setComfortIndex(String comfortIndex) {
-        this.comfortIndex = comfortIndex;
-    }
-    
-    public String getComfortCategory() {
-        return comfortCategory;
-    }
-    
-    public void setComfortCategory(String comfortCategory) {
-        this.comfortCategory = comfortCategory;
-    }
-    
-    public String getAirPollutionIndex() {
-        return airPollutionIndex;
-    }
-    
-    public void setAirPollutionIndex(String airPollutionIndex) {
-        this.airPollutionIndex = airPollutionIndex;
-    }
-    
-    public String getAirPollutionCategory() {
-        return airPollutionCategory;
-    }
-    
-    public void setAirPollutionCategory(String airPollutionCategory) {
-        this.airPollutionCategory = airPollutionCategory;
-    }
-    
-    public String getTrafficIndex() {
-        return trafficIndex;
-    }
-    
-    public void setTrafficIndex(String trafficIndex) {
-        this.trafficIndex = trafficIndex;
-    }
-    
-    public String getTrafficCategory() {
-        return trafficCategory;
-    }
-    
-    public void setTrafficCategory(String trafficCategory) {
-        this.trafficCategory = trafficCategory;
-    }
-    
-    public String getFluIndex() {
-        return fluIndex;
-    }
-    
-    public void setFluIndex(String fluIndex) {
-        this.fluIndex = fluIndex;
-    }
-    
-    public String getFluCategory() {
-        return fluCategory;
+    /**
+     * 获取指定类型的生活指数
+     * @return 生活指数；尚未获取时返回null
+     */
+    public LifeIndex getLifeIndex(LifeIndexType type) {
+        return lifeIndices != null ? lifeIndices[type.ordinal()] : null;
     }
     
-    public void setFluCategory(String fluCategory) {
-        this.fluCategory = fluCategory;
+    /**
+     * 设置指定类型的生活指数
+     */
+    public void setLifeIndex(LifeIndexType type, LifeIndex index) {
+        if (lifeIndices == null) {
+            lifeIndices = new LifeIndex[LifeIndexType.values().length];
+        }
+        lifeIndices[type.ordinal()] = index;
     }
     
     public List<DailyForecast> getDailyForecasts() {
@@ -425,6 +326,14 @@ public class Weather {
         this.dailyForecasts = dailyForecasts;
     }
     
+    public HourlyForecast getHourlyForecast() {
+        return hourlyForecast;
+    }
+    
+    public void setHourlyForecast(HourlyForecast hourlyForecast) {
+        this.hourlyForecast = hourlyForecast;
+    }
+    
     public long getUpdateTimestamp() {
         return updateTimestamp;
     }
@@ -448,8 +357,7 @@ public class Weather {
             return "未知时间";
         }
         
-        java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm", java.util.Locale.getDefault());
-        return sdf.format(new java.util.Date(updateTimestamp));
+        return WeatherDates.formatUpdateTime(updateTimestamp);
     }
     
     /**
@@ -463,6 +371,7 @@ public class Weather {
         private String weatherDesc;
         private String weatherIcon;
         private int weatherIconResource; // 新增图标资源ID属性
+        private int conditionCode = WeatherCondition.UNKNOWN_CODE;
         
         public String getDate() {
             return date;
@@ -510,10 +419,22 @@ public class Weather {
         
         public void setWeatherIcon(String weatherIcon) {
             this.weatherIcon = weatherIcon;
+            this.conditionCode = WeatherCondition.parseCode(weatherIcon);
+        }
+        
+        /**
+         * 获取天气状况代码，未知时返回WeatherCondition.UNKNOWN_CODE
+         */
+        public int getConditionCode() {
+            if (conditionCode == WeatherCondition.UNKNOWN_CODE && weatherIcon != null) {
+                conditionCode = WeatherCondition.parseCode(weatherIcon);
+            }
+            return conditionCode;
         }
         
         public int getWeatherIconResource() {
-            return weatherIconResource;
+            int code = getConditionCode();
+            return code != WeatherCondition.UNKNOWN_CODE ? WeatherIcons.getIconResource(code) : weatherIconResource;
         }
         
         public void setWeatherIconResource(int weatherIconResource) {
@@ -0,0 +1,74 @@
+package com.microntek.weatherapp.model;
+
+/**
+ * 和风天气的天气状况代码
+ * 代码即图标代码（如"100"晴、"305"小雨），解析天气数据时转换为整数并归类，之后背景、图标和昼夜判断都基于整数代码
+ */
+public final class WeatherCondition {
+    // 未知或无法解析的代码
+    public static final int UNKNOWN_CODE = -1;
+
+    // 天气类型
+    public static final int CATEGORY_UNKNOWN = 0;
+    public static final int CATEGORY_CLEAR = 1;    // 晴
+    public static final int CATEGORY_CLOUDY = 2;   // 多云、阴
+    public static final int CATEGORY_RAIN = 3;     // 雨
+    public static final int CATEGORY_SNOW = 4;     // 雪、雨夹雪
+    public static final int CATEGORY_HAZE = 5;     // 雾、霾、沙尘
+    public static final int CATEGORY_OTHER = 6;    // 热、冷等其他
+
+    private WeatherCondition() {
+    }
+
+    /**
+     * 解析天气代码，不创建任何对象
+     * @return 天气代码；为空或格式不正确时返回 {@link #UNKNOWN_CODE}
+     */
+    public static int parseCode(String code) {
+        if (code == null || code.isEmpty() || code.length() > 3) {
+            return UNKNOWN_CODE;
+        }
+        int value = 0;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') {
+                return UNKNOWN_CODE;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * 根据天气代码判断天气类型
+     */
+    public static int getCategory(int code) {
+        if (code < 0) {
+            return CATEGORY_UNKNOWN;
+        }
+        switch (code / 100) {
+            case 1:
+                return (code == 100 || code == 150) ? CATEGORY_CLEAR : CATEGORY_CLOUDY;
+            case 3:
+                return CATEGORY_RAIN;
+            case 4:
+                return CATEGORY_SNOW;
+            case 5:
+                return CATEGORY_HAZE;
+            default:
+                return CATEGORY_OTHER;
+        }
+    }
+
+    /**
+     * 判断是否是夜间天气代码
+     * 和风天气的夜间代码为150-153、350-351、456-457，即十位为5的晴/云、雨、雪代码
+     */
+    public static boolean isNightCode(int code) {
+        if (code < 0) {
+            return false;
+        }
+        int group = code / 100;
+        return (group == 1 || group == 3 || group == 4) && (code / 10) % 10 == 5;
+    }
+}
@@ -0,0 +1,250 @@
+package com.microntek.weatherapp.model;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.text.TextUtils;
+
+/**
+ * 对外发布的天气数据快照
+ * 只包含广播中携带的字段，创建后不可修改，可在线程间直接传递
+ */
+public final class WeatherSnapshot {
+    private final String cityId;
+    private final String cityName;
+    private final boolean currentLocation;
+    private final int currentTemp;
+    private final int highTemp;
+    private final int lowTemp;
+    private final int feelsLikeTemp;
+    private final String weatherDesc;
+    private final String weatherIcon;
+    private final int humidity;
+    private final String windDirection;
+    private final String windSpeed;
+    private final int aqi;
+    private final String airQuality;
+    // 距离开始降水的分钟数，只在precipitationType不为null时有效
+    private final int precipitationMinutes;
+    // 即将出现的降水类型（"rain"或"snow"），没有分钟级降水预报或预报范围内没有降水时为null
+    private final String precipitationType;
+    // 天气数据的更新时间，不参与内容比较
+    private final long lastUpdateTime;
+
+    private WeatherSnapshot(String cityId, String cityName, boolean currentLocation, Weather weather) {
+        this.cityId = cityId;
+        this.cityName = cityName;
+        this.currentLocation = currentLocation;
+        this.currentTemp = weather.getCurrentTemp();
+        this.highTemp = weather.getHighTemp();
+        this.lowTemp = weather.getLowTemp();
+        this.feelsLikeTemp = weather.getFeelsLikeTemp();
+        this.weatherDesc = weather.getWeatherDesc();
+        this.weatherIcon = weather.getWeatherIcon();
+        this.humidity = weather.getHumidity();
+        this.windDirection = weather.getWindDirection();
+        this.windSpeed = weather.getWindSpeed();
+        this.aqi = weather.getAqi();
+        this.airQuality = weather.getAirQuality();
+        this.precipitationMinutes = PrecipitationNowcast.NO_PRECIPITATION;
+        this.precipitationType = null;
+        this.lastUpdateTime = weather.getUpdateTime();
+    }
+
+    private WeatherSnapshot(WeatherSnapshot source, String cityId, String cityName, boolean currentLocation,
+                            int precipitationMinutes, String precipitationType) {
+        this.cityId = cityId;
+        this.cityName = cityName;
+        this.currentLocation = currentLocation;
+        this.currentTemp = source.currentTemp;
+        this.highTemp = source.highTemp;
+        this.lowTemp = source.lowTemp;
+        this.feelsLikeTemp = source.feelsLikeTemp;
+        this.weatherDesc = source.weatherDesc;
+        this.weatherIcon = source.weatherIcon;
+        this.humidity = source.humidity;
+        this.windDirection = source.windDirection;
+        this.windSpeed = source.windSpeed;
+        this.aqi = source.aqi;
+        this.airQuality = source.airQuality;
+        this.precipitationMinutes = precipitationMinutes;
+        this.precipitationType = precipitationType;
+        this.lastUpdateTime = source.lastUpdateTime;
+    }
+
+    /**
+     * 根据城市和天气数据创建快照
+     */
+    public static WeatherSnapshot from(City city, Weather weather) {
+        return new WeatherSnapshot(city.getId(), city.getName(), city.isCurrentLocation(), weather);
+    }
+
+    /**
+     * 根据缓存ID和天气数据创建快照，用于没有城市对象的场景（如缓存写入时）
+     * 城市名称取自天气数据
+     */
+    public static WeatherSnapshot from(String cacheId, Weather weather) {
+        return new WeatherSnapshot(cacheId, weather.getCityName(), false, weather);
+    }
+
+    /**
+     * 用城市信息替换快照中的城市ID和名称，用于按缓存ID保存的快照
+     */
+    public WeatherSnapshot withCity(City city) {
+        return new WeatherSnapshot(this, city.getId(), city.getName(), city.isCurrentLocation(),
+                precipitationMinutes, precipitationType);
+    }
+
+    /**
+     * 加入分钟级降水预报中"N分钟后开始降水"的信息
+     * @param nowcast 当前城市位置的分钟级降水预报
+     * @param nowEpochSecond 当前时间（epoch秒）
+     */
+    public WeatherSnapshot withNowcast(PrecipitationNowcast nowcast, long nowEpochSecond) {
+        int minutes = nowcast.minutesUntilPrecipitation(nowEpochSecond);
+        String type = minutes != PrecipitationNowcast.NO_PRECIPITATION
+                ? PrecipitationNowcast.typeName(nowcast.getUpcomingPrecipitationType(nowEpochSecond))
+                : null;
+        return new WeatherSnapshot(this, cityId, cityName, currentLocation,
+                type != null ? minutes : PrecipitationNowcast.NO_PRECIPITATION, type);
+    }
+
+    /**
+     * 与另一份快照的显示内容是否相同（忽略更新时间）
+     */
+    public boolean hasSameContent(WeatherSnapshot other) {
+        if (other == null) return false;
+        if (this == other) return true;
+        return currentLocation == other.currentLocation
+                && currentTemp == other.currentTemp
+                && highTemp == other.highTemp
+                && lowTemp == other.lowTemp
+                && feelsLikeTemp == other.feelsLikeTemp
+                && humidity == other.humidity
+                && aqi == other.aqi
+                && getPrecipitationMinutes() == other.getPrecipitationMinutes()
+                && TextUtils.equals(cityId, other.cityId)
+                && TextUtils.equals(cityName, other.cityName)
+                && TextUtils.equals(weatherDesc, other.weatherDesc)
+                && TextUtils.equals(weatherIcon, other.weatherIcon)
+                && TextUtils.equals(windDirection, other.windDirection)
+                && TextUtils.equals(windSpeed, other.windSpeed)
+                && TextUtils.equals(airQuality, other.airQuality)
+                && TextUtils.equals(precipitationType, other.precipitationType);
+    }
+
+    /**
+     * 将快照写入天气广播的Intent，字段名与 ACTION_WEATHER_BROADCAST 的约定一致
+     */
+    public void writeTo(Intent intent) {
+        intent.putExtras(toBundle());
+    }
+
+    /**
+     * 转换为Bundle，键名与天气广播的extra字段一致
+     */
+    public Bundle toBundle() {
+        Bundle bundle = new Bundle();
+
+        // 城市信息
+        bundle.putString("city_name", cityName);
+        bundle.putString("city_id", cityId);
+        bundle.putBoolean("is_current_location", currentLocation);
+
+        // 天气数据
+        bundle.putInt("current_temp", currentTemp);
+        bundle.putInt("high_temp", highTemp);
+        bundle.putInt("low_temp", lowTemp);
+        bundle.putString("weather_desc", weatherDesc);
+        bundle.putString("weather_icon", weatherIcon);
+        bundle.putString("weather_code", weatherIcon != null ? weatherIcon : "");
+        bundle.putInt("humidity", humidity);
+        bundle.putString("wind_direction", windDirection);
+        bundle.putString("wind_speed", windSpeed);
+
+        // 空气质量数据
+        bundle.putInt("aqi", aqi);
+        bundle.putString("air_quality", airQuality);
+
+        // 分钟级降水预报：N分钟后开始降水，正在降水时为0，未来2小时没有降水时为-1
+        bundle.putInt("precipitation_minutes",
+                precipitationType != null ? precipitationMinutes : PrecipitationNowcast.NO_PRECIPITATION);
+        bundle.putString("precipitation_type", precipitationType != null ? precipitationType : "");
+
+        // 其他有用信息
+        bundle.putInt("feels_like_temp", feelsLikeTemp);
+        bundle.putLong("last_update_time", lastUpdateTime);
+        return bundle;
+    }
+
+    public String getCityId() {
+        return cityId;
+    }
+
+    public String getCityName() {
+        return cityName;
+    }
+
+    public boolean isCurrentLocation() {
+        return currentLocation;
+    }
+
+    public int getCurrentTemp() {
+        return currentTemp;
+    }
+
+    public int getHighTemp() {
+        return highTemp;
+    }
+
+    public int getLowTemp() {
+        return lowTemp;
+    }
+
+    public int getFeelsLikeTemp() {
+        return feelsLikeTemp;
+    }
+
+    public String getWeatherDesc() {
+        return weatherDesc;
+    }
+
+    public String getWeatherIcon() {
+        return weatherIcon;
+    }
+
+    public int getHumidity() {
+        return humidity;
+    }
+
+    public String getWindDirection() {
+        return windDirection;
+    }
+
+    public String getWindSpeed() {
+        return windSpeed;
+    }
+
+    public int getAqi() {
+        return aqi;
+    }
+
+    public String getAirQuality() {
+        return airQuality;
+    }
+
+    /**
+     * 距离开始降水的分钟数
+     * @return 分钟数，正在降水时为0；没有预报或预报范围内没有降水时返回 {@link PrecipitationNowcast#NO_PRECIPITATION}
+     */
+    public int getPrecipitationMinutes() {
+        return precipitationType != null ? precipitationMinutes : PrecipitationNowcast.NO_PRECIPITATION;
+    }
+
+    public String getPrecipitationType() {
+        return precipitationType;
+    }
+
+    public long getLastUpdateTime() {
+        return lastUpdateTime;
+    }
+}
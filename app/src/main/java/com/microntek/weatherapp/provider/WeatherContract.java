@@ -0,0 +1,96 @@
+package com.microntek.weatherapp.provider;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+/**
+ * 天气数据ContentProvider的对外约定
+ * 第三方应用通过这里定义的Uri和列名读取天气快照，数据只来自本地缓存，查询不会触发网络请求
+ */
+public final class WeatherContract {
+    private static final String TAG = "WeatherContract";
+
+    public static final String AUTHORITY = "com.microntek.weatherapp.provider";
+
+    public static final Uri BASE_URI = Uri.parse("content://" + AUTHORITY);
+
+    private WeatherContract() {
+    }
+
+    /**
+     * 城市天气快照
+     * content://AUTHORITY/snapshot            所有已保存城市，当前城市排在最前
+     * content://AUTHORITY/snapshot/current    当前城市
+     * content://AUTHORITY/snapshot/{city_id}  指定城市
+     * 数据变化时对 {@link #CONTENT_URI} 发出通知，注册在其下任意Uri的ContentObserver都会收到
+     */
+    public static final class Snapshot {
+        public static final String PATH = "snapshot";
+        public static final String PATH_CURRENT = "current";
+
+        public static final Uri CONTENT_URI = BASE_URI.buildUpon().appendPath(PATH).build();
+        public static final Uri CURRENT_URI = CONTENT_URI.buildUpon().appendPath(PATH_CURRENT).build();
+
+        public static final String CONTENT_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/vnd." + AUTHORITY + "." + PATH;
+        public static final String CONTENT_ITEM_TYPE =
+                ContentResolver.CURSOR_ITEM_BASE_TYPE + "/vnd." + AUTHORITY + "." + PATH;
+
+        // 列名，与天气广播的extra字段名一致
+        public static final String _ID = "_id";
+        public static final String CITY_ID = "city_id";
+        public static final String CITY_NAME = "city_name";
+        public static final String IS_CURRENT_LOCATION = "is_current_location";
+        public static final String IS_CURRENT_CITY = "is_current_city";
+        public static final String CURRENT_TEMP = "current_temp";
+        public static final String HIGH_TEMP = "high_temp";
+        public static final String LOW_TEMP = "low_temp";
+        public static final String FEELS_LIKE_TEMP = "feels_like_temp";
+        public static final String WEATHER_DESC = "weather_desc";
+        public static final String WEATHER_ICON = "weather_icon";
+        public static final String HUMIDITY = "humidity";
+        public static final String WIND_DIRECTION = "wind_direction";
+        public static final String WIND_SPEED = "wind_speed";
+        public static final String AQI = "aqi";
+        public static final String AIR_QUALITY = "air_quality";
+        public static final String LAST_UPDATE_TIME = "last_update_time";
+        // 实时天气缓存是否已过期（数据仍可显示，但应用会在有网络时刷新）
+        public static final String IS_STALE = "is_stale";
+
+        public static final String[] COLUMNS = {
+                _ID, CITY_ID, CITY_NAME, IS_CURRENT_LOCATION, IS_CURRENT_CITY,
+                CURRENT_TEMP, HIGH_TEMP, LOW_TEMP, FEELS_LIKE_TEMP,
+                WEATHER_DESC, WEATHER_ICON, HUMIDITY, WIND_DIRECTION, WIND_SPEED,
+                AQI, AIR_QUALITY, LAST_UPDATE_TIME, IS_STALE
+        };
+
+        /**
+         * call接口：获取单个城市的快照
+         * arg为城市ID，为空时返回当前城市；返回的Bundle使用与列名相同的键，没有数据时返回null
+         */
+        public static final String METHOD_GET_SNAPSHOT = "getSnapshot";
+
+        private Snapshot() {
+        }
+
+        /**
+         * 指定城市的快照Uri
+         */
+        public static Uri buildCityUri(String cityId) {
+            return CONTENT_URI.buildUpon().appendPath(cityId).build();
+        }
+    }
+
+    /**
+     * 通知观察者天气快照已变化，在缓存写入和城市列表变化后调用
+     */
+    public static void notifySnapshotChanged(Context context) {
+        try {
+            context.getContentResolver().notifyChange(Snapshot.CONTENT_URI, null);
+        } catch (Exception e) {
+            Log.e(TAG, "通知天气快照变化失败: " + e.getMessage());
+        }
+    }
+}
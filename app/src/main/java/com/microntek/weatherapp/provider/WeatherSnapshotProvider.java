@@ -0,0 +1,198 @@
+package com.microntek.weatherapp.provider;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.UriMatcher;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.Log;
+
+import com.microntek.weatherapp.model.City;
+import com.microntek.weatherapp.model.Weather;
+import com.microntek.weatherapp.model.WeatherSnapshot;
+import com.microntek.weatherapp.provider.WeatherContract.Snapshot;
+import com.microntek.weatherapp.util.CityPreferences;
+import com.microntek.weatherapp.util.WeatherDataCache;
+import com.microntek.weatherapp.util.WeatherDataHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 只读的天气快照ContentProvider
+ * 从WeatherDataCache读取各城市最近一次缓存的天气，第三方应用可以随时查询而不会唤醒网络；
+ * 缓存或城市列表变化时通过ContentObserver通知
+ */
+public class WeatherSnapshotProvider extends ContentProvider {
+    private static final String TAG = "WeatherSnapshotProvider";
+
+    private static final int MATCH_ALL = 1;
+    private static final int MATCH_CURRENT = 2;
+    private static final int MATCH_CITY = 3;
+
+    private static final UriMatcher URI_MATCHER = new UriMatcher(UriMatcher.NO_MATCH);
+
+    static {
+        URI_MATCHER.addURI(WeatherContract.AUTHORITY, Snapshot.PATH, MATCH_ALL);
+        URI_MATCHER.addURI(WeatherContract.AUTHORITY, Snapshot.PATH + "/" + Snapshot.PATH_CURRENT, MATCH_CURRENT);
+        URI_MATCHER.addURI(WeatherContract.AUTHORITY, Snapshot.PATH + "/*", MATCH_CITY);
+    }
+
+    @Override
+    public boolean onCreate() {
+        // 缓存和城市设置在首次查询时再初始化，避免拖慢应用启动
+        return true;
+    }
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection,
+                        String[] selectionArgs, String sortOrder) {
+        Context context = getContext();
+        CityPreferences preferences = new CityPreferences(context);
+        City currentCity = preferences.getCurrentCity();
+
+        List<City> cities = new ArrayList<>();
+        switch (URI_MATCHER.match(uri)) {
+            case MATCH_ALL:
+                cities.addAll(WeatherDataHelper.sortCitiesList(preferences.getSavedCities(), currentCity));
+                break;
+            case MATCH_CURRENT:
+                if (currentCity != null) {
+                    cities.add(currentCity);
+                }
+                break;
+            case MATCH_CITY:
+                City city = findCity(preferences, currentCity, uri.getLastPathSegment());
+                if (city != null) {
+                    cities.add(city);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("未知的Uri: " + uri);
+        }
+
+        WeatherDataCache cache = WeatherDataCache.getInstance(context);
+        MatrixCursor cursor = new MatrixCursor(projection != null ? projection : Snapshot.COLUMNS);
+        int rowId = 0;
+        for (City city : cities) {
+            String cacheId = WeatherDataHelper.getCacheId(city);
+            Weather weather = cache.getLastKnownCurrentWeather(cacheId);
+            if (weather == null) {
+                continue;
+            }
+            addRow(cursor, rowId++, WeatherSnapshot.from(city, weather),
+                    isSameCity(city, currentCity), cache.isCurrentWeatherExpired(cacheId));
+        }
+
+        // 注册到父Uri，缓存或城市列表变化时游标会收到通知
+        cursor.setNotificationUri(context.getContentResolver(), Snapshot.CONTENT_URI);
+        return cursor;
+    }
+
+    @Override
+    public Bundle call(String method, String arg, Bundle extras) {
+        if (!Snapshot.METHOD_GET_SNAPSHOT.equals(method)) {
+            return super.call(method, arg, extras);
+        }
+
+        CityPreferences preferences = new CityPreferences(getContext());
+        City currentCity = preferences.getCurrentCity();
+        City city = arg == null ? currentCity : findCity(preferences, currentCity, arg);
+        if (city == null) {
+            return null;
+        }
+
+        WeatherDataCache cache = WeatherDataCache.getInstance(getContext());
+        String cacheId = WeatherDataHelper.getCacheId(city);
+        Weather weather = cache.getLastKnownCurrentWeather(cacheId);
+        if (weather == null) {
+            Log.d(TAG, "城市 " + city.getName() + " 没有缓存的天气数据");
+            return null;
+        }
+
+        Bundle result = WeatherSnapshot.from(city, weather).toBundle();
+        result.putBoolean(Snapshot.IS_CURRENT_CITY, isSameCity(city, currentCity));
+        result.putBoolean(Snapshot.IS_STALE, cache.isCurrentWeatherExpired(cacheId));
+        return result;
+    }
+
+    @Override
+    public String getType(Uri uri) {
+        switch (URI_MATCHER.match(uri)) {
+            case MATCH_ALL:
+                return Snapshot.CONTENT_TYPE;
+            case MATCH_CURRENT:
+            case MATCH_CITY:
+                return Snapshot.CONTENT_ITEM_TYPE;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public Uri insert(Uri uri, ContentValues values) {
+        throw new UnsupportedOperationException("天气快照为只读数据");
+    }
+
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs) {
+        throw new UnsupportedOperationException("天气快照为只读数据");
+    }
+
+    @Override
+    public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        throw new UnsupportedOperationException("天气快照为只读数据");
+    }
+
+    /**
+     * 按城市ID或缓存ID（经度,纬度）查找已保存的城市
+     */
+    private static City findCity(CityPreferences preferences, City currentCity, String id) {
+        if (id == null) {
+            return null;
+        }
+        if (currentCity != null && matchesId(currentCity, id)) {
+            return currentCity;
+        }
+        for (City city : preferences.getSavedCities()) {
+            if (matchesId(city, id)) {
+                return city;
+            }
+        }
+        return null;
+    }
+
+    private static boolean matchesId(City city, String id) {
+        return id.equals(city.getId()) || id.equals(WeatherDataHelper.getCacheId(city));
+    }
+
+    private static boolean isSameCity(City city, City currentCity) {
+        return currentCity != null && city.getId().equals(currentCity.getId());
+    }
+
+    private static void addRow(MatrixCursor cursor, int rowId, WeatherSnapshot snapshot,
+                               boolean isCurrentCity, boolean isStale) {
+        MatrixCursor.RowBuilder row = cursor.newRow();
+        row.add(Snapshot._ID, rowId);
+        row.add(Snapshot.CITY_ID, snapshot.getCityId());
+        row.add(Snapshot.CITY_NAME, snapshot.getCityName());
+        row.add(Snapshot.IS_CURRENT_LOCATION, snapshot.isCurrentLocation() ? 1 : 0);
+        row.add(Snapshot.IS_CURRENT_CITY, isCurrentCity ? 1 : 0);
+        row.add(Snapshot.CURRENT_TEMP, snapshot.getCurrentTemp());
+        row.add(Snapshot.HIGH_TEMP, snapshot.getHighTemp());
+        row.add(Snapshot.LOW_TEMP, snapshot.getLowTemp());
+        row.add(Snapshot.FEELS_LIKE_TEMP, snapshot.getFeelsLikeTemp());
+        row.add(Snapshot.WEATHER_DESC, snapshot.getWeatherDesc());
+        row.add(Snapshot.WEATHER_ICON, snapshot.getWeatherIcon());
+        row.add(Snapshot.HUMIDITY, snapshot.getHumidity());
+        row.add(Snapshot.WIND_DIRECTION, snapshot.getWindDirection());
+        row.add(Snapshot.WIND_SPEED, snapshot.getWindSpeed());
+        row.add(Snapshot.AQI, snapshot.getAqi());
+        row.add(Snapshot.AIR_QUALITY, snapshot.getAirQuality());
+        row.add(Snapshot.LAST_UPDATE_TIME, snapshot.getLastUpdateTime());
+        row.add(Snapshot.IS_STALE, isStale ? 1 : 0);
+    }
+}
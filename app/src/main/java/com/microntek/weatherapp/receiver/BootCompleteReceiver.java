@@ -6,6 +6,8 @@ import android.content.Intent;
 import android.util.Log;
 
 import com.microntek.weatherapp.service.WeatherDataService;
+import com.microntek.weatherapp.util.BootMetrics;
+import com.microntek.weatherapp.util.NetworkMonitor;
 
 /**
  * 开机启动接收器 - 自动启动天气服务
@@ -21,7 +23,13 @@ public class BootCompleteReceiver extends BroadcastReceiver {
             
             Log.i(TAG, "系统启动完成，启动天气数据服务");
             
-            // 启动天气数据服务
+            // 开始记录开机到显示数据的耗时
+            BootMetrics.markBootCompleted(context);
+            if (NetworkMonitor.getInstance(context).isNetworkValidated()) {
+                BootMetrics.markNetworkValidated(context);
+            }
+            
+            // 启动天气数据服务，服务会先发布上次保存的快照，网络就绪后再刷新
             Intent serviceIntent = new Intent(context, WeatherDataService.class);
             context.startService(serviceIntent);
         }
@@ -0,0 +1,126 @@
+package com.microntek.weatherapp.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.microntek.weatherapp.api.WeatherApi;
+
+import java.util.Calendar;
+
+/**
+ * 后台刷新预算
+ * 限制每次唤醒刷新的城市数和每天的网络请求数，并记录上次刷新的时间以控制唤醒间隔；
+ * 上限保存在设置中，可以调整
+ */
+public class RefreshBudget {
+    private static final String SETTINGS_PREFS_NAME = "weather_settings";
+    private static final String KEY_MAX_CITIES_PER_CYCLE = "refresh_max_cities_per_cycle";
+    private static final String KEY_DAILY_REQUEST_LIMIT = "refresh_daily_request_limit";
+
+    private static final String PREFS_NAME = "refresh_budget";
+    private static final String KEY_BUDGET_DAY = "budget_day";
+    private static final String KEY_REQUESTS_TODAY = "requests_today";
+    private static final String KEY_LAST_CYCLE_TIME = "last_cycle_time";
+
+    // 默认上限
+    private static final int DEFAULT_MAX_CITIES_PER_CYCLE = 5;
+    private static final int DEFAULT_DAILY_REQUEST_LIMIT = 400;
+
+    // 两次后台刷新之间的最短间隔，未刷完的城市留到下一次，避免频繁唤醒网络
+    static final long MIN_CYCLE_INTERVAL_MILLIS = 15 * 60 * 1000;
+
+    private final SharedPreferences settings;
+    private final SharedPreferences preferences;
+
+    public RefreshBudget(Context context) {
+        Context appContext = context.getApplicationContext();
+        settings = appContext.getSharedPreferences(SETTINGS_PREFS_NAME, Context.MODE_PRIVATE);
+        preferences = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public int getMaxCitiesPerCycle() {
+        return settings.getInt(KEY_MAX_CITIES_PER_CYCLE, DEFAULT_MAX_CITIES_PER_CYCLE);
+    }
+
+    public void setMaxCitiesPerCycle(int maxCities) {
+        settings.edit().putInt(KEY_MAX_CITIES_PER_CYCLE, Math.max(1, maxCities)).apply();
+    }
+
+    public int getDailyRequestLimit() {
+        return settings.getInt(KEY_DAILY_REQUEST_LIMIT, DEFAULT_DAILY_REQUEST_LIMIT);
+    }
+
+    public void setDailyRequestLimit(int limit) {
+        settings.edit().putInt(KEY_DAILY_REQUEST_LIMIT, Math.max(getRequestsPerCity(), limit)).apply();
+    }
+
+    /**
+     * 今天剩余的请求数
+     */
+    public synchronized int getRemainingRequests() {
+        return Math.max(0, getDailyRequestLimit() - getRequestsToday());
+    }
+
+    /**
+     * 刷新一个城市的请求数，按刷新时实际发出的请求计算
+     */
+    public int getRequestsPerCity() {
+        return WeatherApi.getRefreshRequestCount();
+    }
+
+    /**
+     * 今天剩余的请求数还能刷新多少个城市
+     */
+    public int getRemainingCities() {
+        return getRemainingRequests() / getRequestsPerCity();
+    }
+
+    /**
+     * 记录已发出的请求
+     */
+    public synchronized void recordRequests(int count) {
+        preferences.edit()
+                .putInt(KEY_BUDGET_DAY, today())
+                .putInt(KEY_REQUESTS_TODAY, getRequestsToday() + count)
+                .apply();
+    }
+
+    /**
+     * 记录一次后台刷新开始
+     */
+    public void markCycle() {
+        preferences.edit().putLong(KEY_LAST_CYCLE_TIME, System.currentTimeMillis()).apply();
+    }
+
+    /**
+     * 下一次允许后台刷新的最早时间
+     */
+    public long getNextCycleTime() {
+        return preferences.getLong(KEY_LAST_CYCLE_TIME, 0) + MIN_CYCLE_INTERVAL_MILLIS;
+    }
+
+    /**
+     * 每日预算重置的时间（明天零点）
+     */
+    public long getNextResetTime() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.DAY_OF_YEAR, 1);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    private int getRequestsToday() {
+        if (preferences.getInt(KEY_BUDGET_DAY, 0) != today()) {
+            return 0;
+        }
+        return preferences.getInt(KEY_REQUESTS_TODAY, 0);
+    }
+
+    private static int today() {
+        Calendar calendar = Calendar.getInstance();
+        return calendar.get(Calendar.YEAR) * 1000 + calendar.get(Calendar.DAY_OF_YEAR);
+    }
+}
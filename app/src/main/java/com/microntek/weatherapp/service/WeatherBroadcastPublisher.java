@@ -0,0 +1,195 @@
+package com.microntek.weatherapp.service;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.microntek.weatherapp.model.City;
+import com.microntek.weatherapp.model.Weather;
+import com.microntek.weatherapp.model.WeatherSnapshot;
+import com.microntek.weatherapp.util.ExecutorManager;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 天气数据发布器
+ * 将新的天气数据与上一次发布的内容比较，只在内容变化时发送全局广播；
+ * 合并窗口内的多次发布只发送最后一次。应用内页面可注册观察者直接接收快照，无需经过广播
+ */
+public class WeatherBroadcastPublisher {
+    private static final String TAG = "WeatherBroadcastPublisher";
+
+    // 合并窗口：窗口内连续发布的数据只广播最后一份
+    private static final long COALESCE_WINDOW_MILLIS = 1000;
+
+    // 内容未变化时的最长静默时间，超过后重发一次，让第三方应用知道服务仍在运行
+    private static final long HEARTBEAT_INTERVAL_MILLIS = 60 * 60 * 1000;
+
+    /**
+     * 应用内观察者，在主线程回调
+     */
+    public interface Observer {
+        /**
+         * 发布的天气内容发生变化
+         */
+        void onWeatherChanged(WeatherSnapshot snapshot);
+    }
+
+    // 单例模式
+    private static WeatherBroadcastPublisher instance;
+
+    private final Context context;
+    private final CopyOnWriteArrayList<Observer> observers = new CopyOnWriteArrayList<>();
+    private final Runnable flushRunnable = this::flush;
+
+    // 最近一次发布的快照和广播
+    private WeatherSnapshot lastPublished;
+    private Intent lastBroadcastIntent;
+    private long lastBroadcastTime = 0;
+
+    // 合并窗口内等待发布的快照
+    private WeatherSnapshot pending;
+    private boolean flushScheduled = false;
+
+    // 统计：内容未变化被跳过的次数、被合并的次数
+    private int skippedCount = 0;
+    private int coalescedCount = 0;
+
+    /**
+     * 获取WeatherBroadcastPublisher实例
+     */
+    public static synchronized WeatherBroadcastPublisher getInstance(Context context) {
+        if (instance == null) {
+            instance = new WeatherBroadcastPublisher(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private WeatherBroadcastPublisher(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * 发布城市的天气数据，可在任意线程调用
+     * 内容与上一次发布相同时直接跳过，否则在合并窗口结束后发送
+     */
+    public void publish(City city, Weather weather) {
+        publish(WeatherSnapshot.from(city, weather));
+    }
+
+    /**
+     * 发布天气快照，规则同 {@link #publish(City, Weather)}
+     */
+    public synchronized void publish(WeatherSnapshot snapshot) {
+        if (pending == null && !shouldBroadcast(snapshot)) {
+            skippedCount++;
+            Log.d(TAG, "天气内容未变化，跳过广播: " + snapshot.getCityName() + "（累计跳过 " + skippedCount + " 次）");
+            return;
+        }
+
+        if (pending != null) {
+            coalescedCount++;
+        }
+        pending = snapshot;
+
+        if (!flushScheduled) {
+            flushScheduled = true;
+            ExecutorManager.getMainHandler().postDelayed(flushRunnable, COALESCE_WINDOW_MILLIS);
+        }
+    }
+
+    /**
+     * 立即发布天气快照，不等待合并窗口
+     * 用于启动时尽快让小部件和仪表等接收方显示上次保存的数据；
+     * 已经有更新的数据在发布或等待发布时不覆盖
+     */
+    public synchronized void publishNow(WeatherSnapshot snapshot) {
+        if (pending != null || lastPublished != null) {
+            return;
+        }
+        pending = snapshot;
+        flushScheduled = true;
+        ExecutorManager.getMainHandler().removeCallbacks(flushRunnable);
+        ExecutorManager.getMainHandler().post(flushRunnable);
+    }
+
+    /**
+     * 获取最近一次发送的广播副本，用于响应新连接的客户端
+     * @return 广播Intent；尚未发布过时返回null
+     */
+    public synchronized Intent getLastBroadcastIntent() {
+        return lastBroadcastIntent != null ? new Intent(lastBroadcastIntent) : null;
+    }
+
+    /**
+     * 获取最近一次发布的快照
+     */
+    public synchronized WeatherSnapshot getLastSnapshot() {
+        return lastPublished;
+    }
+
+    /**
+     * 注册应用内观察者，之后每次内容变化都会在主线程回调
+     */
+    public void addObserver(Observer observer) {
+        observers.addIfAbsent(observer);
+    }
+
+    /**
+     * 注销应用内观察者，应在onDestroy中调用
+     */
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    private boolean shouldBroadcast(WeatherSnapshot snapshot) {
+        if (!snapshot.hasSameContent(lastPublished)) {
+            return true;
+        }
+        return SystemClock.elapsedRealtime() - lastBroadcastTime >= HEARTBEAT_INTERVAL_MILLIS;
+    }
+
+    /**
+     * 合并窗口结束，在主线程发送等待中的快照
+     */
+    private void flush() {
+        WeatherSnapshot snapshot;
+        Intent intent;
+        boolean changed;
+        synchronized (this) {
+            flushScheduled = false;
+            snapshot = pending;
+            pending = null;
+            // 窗口内数据可能已变回上一次发布的内容
+            if (snapshot == null || !shouldBroadcast(snapshot)) {
+                skippedCount++;
+                return;
+            }
+
+            changed = !snapshot.hasSameContent(lastPublished);
+            intent = new Intent(WeatherDataService.ACTION_WEATHER_BROADCAST);
+            snapshot.writeTo(intent);
+            intent.putExtra("update_time", System.currentTimeMillis());
+
+            lastPublished = snapshot;
+            lastBroadcastIntent = new Intent(intent);
+            lastBroadcastTime = SystemClock.elapsedRealtime();
+        }
+
+        context.sendBroadcast(intent);
+        Log.i(TAG, "已发送天气广播: " + snapshot.getCityName() + ", " + snapshot.getWeatherDesc() + ", "
+                + snapshot.getCurrentTemp() + "°C" + (changed ? "" : "（内容未变化，定时重发）")
+                + "；累计跳过 " + skippedCount + " 次，合并 " + coalescedCount + " 次");
+
+        if (changed) {
+            for (Observer observer : observers) {
+                try {
+                    observer.onWeatherChanged(snapshot);
+                } catch (Exception e) {
+                    Log.e(TAG, "通知观察者失败: " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+}
@@ -10,9 +10,18 @@ import android.util.Log;
 
 import com.microntek.weatherapp.api.WeatherApi;
 import com.microntek.weatherapp.model.City;
+import com.microntek.weatherapp.model.PrecipitationNowcast;
 import com.microntek.weatherapp.model.Weather;
+import com.microntek.weatherapp.model.WeatherSnapshot;
+import com.microntek.weatherapp.util.BootMetrics;
 import com.microntek.weatherapp.util.CityPreferences;
-import com.microntek.weatherapp.util.ExecutorManager;
+import com.microntek.weatherapp.util.NetworkMonitor;
+import com.microntek.weatherapp.util.PriorityTaskScheduler.Priority;
+import com.microntek.weatherapp.util.TaskGroup;
+import com.microntek.weatherapp.util.WeatherDataHelper;
+import com.microntek.weatherapp.util.WeatherSnapshotStore;
+
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 天气数据广播服务 - 系统级服务，开机自启动，常驻后台
@@ -26,21 +35,36 @@ public class WeatherDataService extends Service {
     public static final String ACTION_REQUEST_UPDATE = "com.microntek.weatherapp.REQUEST_UPDATE";
     public static final String ACTION_CITY_CHANGED = "com.microntek.weatherapp.CITY_CHANGED";
     public static final String ACTION_SERVICE_STATUS = "com.microntek.weatherapp.SERVICE_STATUS";
+    // 应用内部广播：定时刷新作业已更新缓存
+    public static final String ACTION_CACHE_REFRESHED = "com.microntek.weatherapp.CACHE_REFRESHED";
     
-    // 更新间隔 (1小时)
-    private static final long UPDATE_INTERVAL = 60 * 60 * 1000;
-    
-    // 最近一次广播的天气数据，用于快速响应新连接的客户端
-    private Intent lastBroadcastIntent = null;
-    
-    // 更新线程
-    private Thread updateThread;
-    private final Object threadLock = new Object();
-    private boolean shouldContinue = true;
+    // 天气数据发布器，只在内容变化时广播，并保存最近一次广播用于快速响应新连接的客户端
+    private WeatherBroadcastPublisher publisher;
     
     // 网络状态广播接收器
     private BroadcastReceiver networkReceiver;
     
+    // 城市偏好设置，服务生命周期内复用
+    private CityPreferences cityPreferences;
+    
+    // 服务提交的后台任务，服务销毁时取消
+    private final TaskGroup taskGroup = new TaskGroup("WeatherDataService");
+    
+    // 网络验证通过后的首次更新
+    private final Runnable networkReadyTask = () -> {
+        Log.i(TAG, "网络已就绪，开始首次天气更新");
+        updateWeatherBroadcast();
+    };
+    
+    // 已安排的分钟级降水预报刷新，同一时间只安排一次
+    private final AtomicBoolean nowcastRefreshPending = new AtomicBoolean(false);
+    
+    // 预报范围内有降水时按时段长度重新发布，刷新降水预报并按当前时间重新计算距离降水的分钟数
+    private final Runnable nowcastRefreshTask = () -> {
+        nowcastRefreshPending.set(false);
+        updateWeatherBroadcast();
+    };
+    
     // 接收更新请求的广播接收器
     private final BroadcastReceiver updateRequestReceiver = new BroadcastReceiver() {
         @Override
@@ -60,9 +84,13 @@ public class WeatherDataService extends Service {
             } else if (ACTION_CITY_CHANGED.equals(action)) {
                 Log.d(TAG, "当前城市已更改，延迟2秒后更新天气数据");
                 // 延迟2秒更新天气数据，确保城市数据加载完成
-                ExecutorManager.executeOnMainDelayed(() -> {
+                taskGroup.postDelayed(() -> {
                     updateWeatherBroadcast();
+                    scheduleNextRefresh();
                 }, 2000);
+            } else if (ACTION_CACHE_REFRESHED.equals(action)) {
+                Log.d(TAG, "定时刷新已更新缓存，发布最新天气数据");
+                updateWeatherBroadcast();
             }
         }
     };
@@ -72,10 +100,14 @@ public class WeatherDataService extends Service {
         super.onCreate();
         Log.i(TAG, "天气数据服务已启动");
         
+        cityPreferences = new CityPreferences(this);
+        publisher = WeatherBroadcastPublisher.getInstance(this);
+        
         // 注册接收更新请求广播
         IntentFilter filter = new IntentFilter();
         filter.addAction(ACTION_REQUEST_UPDATE);
         filter.addAction(ACTION_CITY_CHANGED);
+        filter.addAction(ACTION_CACHE_REFRESHED);
         registerReceiver(updateRequestReceiver, filter);
         
         // 注册网络状态恢复广播接收器
@@ -85,7 +117,7 @@ public class WeatherDataService extends Service {
                 if (com.microntek.weatherapp.util.NetworkMonitor.ACTION_NETWORK_RESTORED.equals(intent.getAction())) {
                     Log.i(TAG, "收到网络恢复广播，5秒后开始更新天气数据");
                     // 网络恢复时，延迟5秒后更新天气数据
-                    ExecutorManager.executeOnMainDelayed(() -> {
+                    taskGroup.postDelayed(() -> {
                         forceUpdateWeatherData();
                     }, 5000);
                 }
@@ -94,52 +126,40 @@ public class WeatherDataService extends Service {
         IntentFilter networkFilter = new IntentFilter(com.microntek.weatherapp.util.NetworkMonitor.ACTION_NETWORK_RESTORED);
         registerReceiver(networkReceiver, networkFilter);
         
-        // 启动时立即广播一次当前天气
-        updateWeatherBroadcast();
+        // 启动时立即发布上次保存的快照，不等待网络
+        publishLastSnapshot();
+        
+        // 首次网络请求推迟到网络验证通过之后，避免开机时网络未就绪导致请求失败
+        NetworkMonitor.getInstance(this).runWhenValidated(networkReadyTask);
         
-        // 设置定时更新
-        startUpdateThread();
+        // 按缓存过期时间安排定时刷新
+        scheduleNextRefresh();
     }
     
-    private void startUpdateThread() {
-        synchronized (threadLock) {
-            if (updateThread != null && updateThread.isAlive()) {
+    /**
+     * 发布当前城市上次保存的天气快照，只读取本地数据
+     */
+    private void publishLastSnapshot() {
+        taskGroup.executeSingle(() -> {
+            City currentCity = cityPreferences.getCurrentCity();
+            if (currentCity == null) {
                 return;
             }
-            
-            shouldContinue = true;
-            updateThread = new Thread(() -> {
-                while (shouldContinue) {
-                    try {
-                        Thread.sleep(UPDATE_INTERVAL);
-                        updateWeatherBroadcast();
-                    } catch (InterruptedException e) {
-                        Log.i(TAG, "更新线程被中断");
-                        break;
-                    } catch (Exception e) {
-                        Log.e(TAG, "更新过程中发生错误: " + e.getMessage(), e);
-                        try {
-                            // 出错后短暂延迟再试
-                            Thread.sleep(30000);
-                        } catch (InterruptedException ie) {
-                            break;
-                        }
-                    }
-                }
-            }, "WeatherUpdateThread");
-            
-            updateThread.start();
-        }
+            WeatherSnapshot snapshot = WeatherSnapshotStore.getInstance(this)
+                    .get(WeatherDataHelper.getCacheId(currentCity));
+            if (snapshot != null) {
+                publisher.publishNow(snapshot.withCity(currentCity));
+                BootMetrics.markSnapshotPublished(this);
+                Log.i(TAG, "已发布上次保存的天气快照: " + currentCity.getName());
+            }
+        });
     }
     
-    private void stopUpdateThread() {
-        synchronized (threadLock) {
-            shouldContinue = false;
-            if (updateThread != null) {
-                updateThread.interrupt();
-                updateThread = null;
-            }
-        }
+    /**
+     * 根据所有城市的缓存过期时间安排下一次定时刷新
+     */
+    private void scheduleNextRefresh() {
+        taskGroup.execute(() -> WeatherRefreshScheduler.scheduleNext(this), Priority.MAINTENANCE);
     }
     
     @Override
@@ -170,7 +190,8 @@ public class WeatherDataService extends Service {
             if (networkReceiver != null) {
                 unregisterReceiver(networkReceiver);
             }
-            stopUpdateThread();
+            NetworkMonitor.getInstance(this).cancelWhenValidated(networkReadyTask);
+            taskGroup.cancelAll();
         } catch (Exception e) {
             Log.e(TAG, "服务销毁时发生错误: " + e.getMessage(), e);
         }
@@ -190,6 +211,7 @@ public class WeatherDataService extends Service {
      * 发送服务状态信息
      */
     private void sendServiceStatus() {
+        Intent lastBroadcastIntent = publisher.getLastBroadcastIntent();
         Intent statusIntent = new Intent(ACTION_SERVICE_STATUS);
         statusIntent.putExtra("is_running", true);
         statusIntent.putExtra("last_update_time", System.currentTimeMillis());
@@ -206,10 +228,9 @@ public class WeatherDataService extends Service {
      * 更新并广播天气数据
      */
     private void updateWeatherBroadcast() {
-        ExecutorManager.executeSingle(() -> {
+        taskGroup.executeSingle(() -> {
             try {
-                CityPreferences preferences = new CityPreferences(this);
-                City currentCity = preferences.getCurrentCity();
+                City currentCity = cityPreferences.getCurrentCity();
                 
                 if (currentCity == null) {
                     Log.w(TAG, "当前无选定城市，无法广播天气数据");
@@ -233,6 +254,7 @@ public class WeatherDataService extends Service {
                 // 天气数据获取成功，发送广播
                 if (weather != null) {
                     sendWeatherBroadcast(currentCity, weather);
+                    BootMetrics.markFreshDataPublished(this);
                 }
             } catch (Exception e) {
                 Log.e(TAG, "天气数据更新失败: " + e.getMessage(), e);
@@ -250,31 +272,33 @@ public class WeatherDataService extends Service {
             return;
         }
         
-        ExecutorManager.executeSingle(() -> {
+        taskGroup.executeSingle(() -> {
             try {
-                CityPreferences preferences = new CityPreferences(this);
-                City currentCity = preferences.getCurrentCity();
+                City currentCity = cityPreferences.getCurrentCity();
                 
                 if (currentCity == null) {
                     Log.w(TAG, "当前无选定城市，无法更新天气数据");
                     return;
                 }
                 
-                // 强制从网络刷新数据
+                // 强制从网络刷新数据，当前城市同时刷新逐小时预报
                 Weather weather;
                 if (currentCity.isCurrentLocation()) {
                     weather = WeatherApi.refreshWeatherDataByLocation(
                         this,
                         currentCity.getLatitude(),
-                        currentCity.getLongitude()
+                        currentCity.getLongitude(),
+                        true
                     );
                 } else {
-                    weather = WeatherApi.refreshWeatherData(this, currentCity.getId());
+                    weather = WeatherApi.refreshWeatherData(this, currentCity.getId(), true);
                 }
                 
                 // 刷新完成后发送广播
                 if (weather != null) {
                     sendWeatherBroadcast(currentCity, weather);
+                    // 缓存时间戳已更新，重新计算下一次定时刷新
+                    WeatherRefreshScheduler.scheduleNext(this);
                 }
             } catch (Exception e) {
                 Log.e(TAG, "强制更新天气数据失败: " + e.getMessage(), e);
@@ -283,42 +307,64 @@ public class WeatherDataService extends Service {
     }
     
     /**
-     * 发送天气数据广播
+     * 发布天气数据，附带城市位置的分钟级降水预报，内容未变化时不会重复广播
+     * 在后台线程调用，降水预报获取失败时仍发布天气数据
      */
     private void sendWeatherBroadcast(City city, Weather weather) {
-        Intent intent = new Intent(ACTION_WEATHER_BROADCAST);
-        
-        // 城市信息
-        intent.putExtra("city_name", city.getName());
-        intent.putExtra("city_id", city.getId());
-        intent.putExtra("is_current_location", city.isCurrentLocation());
-        
-        // 天气数据
-        intent.putExtra("current_temp", weather.getCurrentTemp());
-        intent.putExtra("high_temp", weather.getHighTemp());
-        intent.putExtra("low_temp", weather.getLowTemp());
-        intent.putExtra("weather_desc", weather.getWeatherDesc());
-        intent.putExtra("weather_icon", weather.getWeatherIcon());
-        intent.putExtra("weather_code", weather.getWeatherCode());
-        intent.putExtra("humidity", weather.getHumidity());
-        intent.putExtra("wind_direction", weather.getWindDirection());
-        intent.putExtra("wind_speed", weather.getWindSpeed());
-        
-        // 空气质量数据
-        intent.putExtra("aqi", weather.getAqi());
-        intent.putExtra("air_quality", weather.getAirQuality());
-        
-        // 其他有用信息
-        intent.putExtra("feels_like_temp", weather.getFeelsLikeTemp());
-        intent.putExtra("last_update_time", weather.getUpdateTime());
-        intent.putExtra("update_time", System.currentTimeMillis());
-        
-        // 发送广播
-        sendBroadcast(intent);
-        
-        // 缓存最近一次广播内容
-        lastBroadcastIntent = new Intent(intent);
+        WeatherSnapshot snapshot = WeatherSnapshot.from(city, weather);
+        PrecipitationNowcast nowcast = loadNowcast(city);
+        if (nowcast != null) {
+            snapshot = snapshot.withNowcast(nowcast, System.currentTimeMillis() / 1000);
+        }
+        publisher.publish(snapshot);
+        scheduleNowcastRefresh(snapshot);
+    }
+    
+    /**
+     * 预报范围内有降水时，一个时段后重新发布天气数据
+     * 降水预报的缓存有效期与时段长度相同，重新发布时会刷新预报；没有降水时不单独刷新，
+     * 跟随定时刷新作业和更新请求发布。今天的请求预算用完后不再安排
+     */
+    private void scheduleNowcastRefresh(WeatherSnapshot snapshot) {
+        if (snapshot.getPrecipitationMinutes() == PrecipitationNowcast.NO_PRECIPITATION) {
+            return;
+        }
+        if (new RefreshBudget(this).getRemainingRequests() <= 0) {
+            return;
+        }
+        if (nowcastRefreshPending.compareAndSet(false, true)) {
+            taskGroup.postDelayed(nowcastRefreshTask, PrecipitationNowcast.SLOT_SECONDS * 1000L);
+        }
+    }
+    
+    /**
+     * 获取城市位置的分钟级降水预报
+     * 在发布天气数据时获取，预报范围内有降水时由 {@link #scheduleNowcastRefresh} 按时段长度定时发布；
+     * 缓存过期时才请求网络，请求计入后台刷新预算，今天的预算用完后不再请求
+     * @return 预报；没有有效的预报时返回null
+     */
+    private PrecipitationNowcast loadNowcast(City city) {
+        PrecipitationNowcast nowcast = WeatherApi.getCachedNowcast(
+            this,
+            city.getLatitude(),
+            city.getLongitude()
+        );
+        if (nowcast != null) {
+            return nowcast;
+        }
         
-        Log.i(TAG, "已发送天气广播: " + city.getName() + ", " + weather.getWeatherDesc() + ", " + weather.getCurrentTemp() + "°C");
+        RefreshBudget budget = new RefreshBudget(this);
+        if (budget.getRemainingRequests() <= 0) {
+            Log.d(TAG, "今天的请求预算已用完，不获取分钟级降水预报");
+            return null;
+        }
+        try {
+            return WeatherApi.getNowcastWithCache(this, city.getLatitude(), city.getLongitude());
+        } catch (Exception e) {
+            Log.w(TAG, "获取分钟级降水预报失败: " + e.getMessage());
+            return null;
+        } finally {
+            budget.recordRequests(1);
+        }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.microntek.weatherapp.service;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.content.Intent;
+import android.util.Log;
+
+import com.microntek.weatherapp.api.WeatherApi;
+import com.microntek.weatherapp.model.City;
+import com.microntek.weatherapp.util.CityPreferences;
+import com.microntek.weatherapp.util.PriorityTaskScheduler.Priority;
+import com.microntek.weatherapp.util.TaskGroup;
+import com.microntek.weatherapp.util.WeatherDataHelper;
+
+import java.util.List;
+
+/**
+ * 定时刷新天气数据的作业
+ * 由 {@link WeatherRefreshScheduler} 安排，在网络可用时批量刷新已过期或即将过期的城市数据，
+ * 刷新的城市和顺序由 {@link WeatherRefreshScheduler#planCycle} 按预算决定
+ */
+public class WeatherRefreshJobService extends JobService {
+    private static final String TAG = "WeatherRefreshJob";
+
+    // 当前作业的任务组，每次执行新建，作业被系统中止时取消
+    private TaskGroup taskGroup;
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        final TaskGroup group = new TaskGroup("WeatherRefreshJob");
+        taskGroup = group;
+        group.execute(() -> {
+            boolean refreshed = false;
+            try {
+                long dueBefore = System.currentTimeMillis() + WeatherRefreshScheduler.BATCH_WINDOW_MILLIS;
+                List<City> dueCities = WeatherRefreshScheduler.planCycle(this, dueBefore);
+                Log.i(TAG, "本次唤醒需要刷新 " + dueCities.size() + " 个城市");
+
+                City currentCity = new CityPreferences(this).getCurrentCity();
+                RefreshBudget budget = new RefreshBudget(this);
+                if (!dueCities.isEmpty()) {
+                    budget.markCycle();
+                }
+
+                // 所有城市连续刷新，使网络请求集中在同一个活跃窗口内
+                for (City city : dueCities) {
+                    if (group.isCancelled()) {
+                        return;
+                    }
+                    // 当前城市同时刷新逐小时预报，逐小时预报未过期时不请求
+                    boolean includeHourly = WeatherRefreshScheduler.isSameCity(city, currentCity);
+                    int requests = budget.getRequestsPerCity() + WeatherApi.getHourlyRefreshRequestCount(
+                            this, WeatherDataHelper.getCacheId(city), includeHourly);
+                    try {
+                        WeatherDataHelper.refreshCityWeather(this, city, includeHourly);
+                        refreshed = true;
+                    } catch (Exception e) {
+                        Log.e(TAG, "刷新城市 " + city.getName() + " 失败: " + e.getMessage());
+                    } finally {
+                        budget.recordRequests(requests);
+                    }
+                }
+
+                if (refreshed) {
+                    // 通知广播服务从缓存发布最新数据
+                    Intent intent = new Intent(WeatherDataService.ACTION_CACHE_REFRESHED);
+                    intent.setPackage(getPackageName());
+                    sendBroadcast(intent);
+                }
+            } finally {
+                if (!group.isCancelled()) {
+                    // 先结束本次作业再安排下一次，安排相同ID的作业会中止正在运行的作业
+                    jobFinished(params, false);
+                    WeatherRefreshScheduler.scheduleNext(this);
+                }
+            }
+        }, Priority.BACKGROUND);
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // 系统中止作业（如网络断开），取消刷新并按原条件重新安排
+        if (taskGroup != null) {
+            taskGroup.cancelAll();
+        }
+        return true;
+    }
+}
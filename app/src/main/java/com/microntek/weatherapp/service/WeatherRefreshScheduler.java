@@ -0,0 +1,163 @@
+package com.microntek.weatherapp.service;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.util.Log;
+
+import com.microntek.weatherapp.model.City;
+import com.microntek.weatherapp.util.CityPreferences;
+import com.microntek.weatherapp.util.CityViewTracker;
+import com.microntek.weatherapp.util.WeatherDataCache;
+import com.microntek.weatherapp.util.WeatherDataHelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 天气数据刷新调度器
+ * 根据所有已保存城市的缓存过期时间计算下一次唤醒时间，通过JobScheduler在有网络时执行刷新；
+ * 批处理窗口内即将过期的城市在同一次唤醒中一起刷新，刷新的城市数和请求数受 {@link RefreshBudget} 限制
+ */
+public class WeatherRefreshScheduler {
+    private static final String TAG = "WeatherRefreshScheduler";
+
+    private static final int JOB_ID = 1001;
+
+    // 批处理窗口：在此时间内将要过期的数据与已过期的数据一起刷新，系统也可在此窗口内推迟唤醒以合并作业
+    static final long BATCH_WINDOW_MILLIS = 10 * 60 * 1000;
+
+    // 两次唤醒之间的最短间隔，避免数据缺失或刷新失败时频繁唤醒
+    private static final long MIN_DELAY_MILLIS = 60 * 1000;
+
+    /**
+     * 根据缓存过期时间和刷新预算重新安排下一次刷新
+     * 在城市列表变化、数据刷新后调用
+     */
+    public static void scheduleNext(Context context) {
+        Context appContext = context.getApplicationContext();
+        JobScheduler jobScheduler = appContext.getSystemService(JobScheduler.class);
+        if (jobScheduler == null) {
+            Log.e(TAG, "无法获取JobScheduler");
+            return;
+        }
+
+        CityPreferences preferences = new CityPreferences(appContext);
+        City currentCity = preferences.getCurrentCity();
+        List<City> cities = WeatherDataHelper.sortCitiesList(preferences.getSavedCities(), currentCity);
+        if (cities.isEmpty()) {
+            jobScheduler.cancel(JOB_ID);
+            Log.i(TAG, "没有需要刷新的城市，取消定时刷新");
+            return;
+        }
+
+        // 今天的请求预算用完后只按当前城市安排，其他城市等到预算重置
+        RefreshBudget budget = new RefreshBudget(appContext);
+        boolean budgetAvailable = budget.getRemainingCities() > 0;
+
+        WeatherDataCache cache = WeatherDataCache.getInstance(appContext);
+        long earliestExpiry = Long.MAX_VALUE;
+        for (City city : cities) {
+            boolean isCurrent = isSameCity(city, currentCity);
+            if (budgetAvailable || isCurrent) {
+                // 当前城市的逐小时预报也由后台刷新保持更新
+                earliestExpiry = Math.min(earliestExpiry,
+                        cache.getEarliestExpiryTime(WeatherDataHelper.getCacheId(city), isCurrent));
+            }
+        }
+        if (earliestExpiry == Long.MAX_VALUE) {
+            earliestExpiry = budget.getNextResetTime();
+        }
+
+        // 与上一次后台刷新保持最短间隔
+        long now = System.currentTimeMillis();
+        long delay = Math.max(MIN_DELAY_MILLIS, earliestExpiry - now);
+        delay = Math.max(delay, budget.getNextCycleTime() - now);
+
+        JobInfo jobInfo = new JobInfo.Builder(JOB_ID,
+                new ComponentName(appContext, WeatherRefreshJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setMinimumLatency(delay)
+                .setOverrideDeadline(delay + BATCH_WINDOW_MILLIS)
+                .setPersisted(true)
+                .build();
+
+        int result = jobScheduler.schedule(jobInfo);
+        if (result == JobScheduler.RESULT_SUCCESS) {
+            Log.i(TAG, "已安排 " + (delay / 1000) + " 秒后刷新天气数据");
+        } else {
+            Log.e(TAG, "安排定时刷新失败");
+        }
+    }
+
+    /**
+     * 取消已安排的刷新
+     */
+    public static void cancel(Context context) {
+        JobScheduler jobScheduler = context.getApplicationContext().getSystemService(JobScheduler.class);
+        if (jobScheduler != null) {
+            jobScheduler.cancel(JOB_ID);
+        }
+    }
+
+    /**
+     * 计划本次唤醒要刷新的城市
+     * 在指定时间之前过期的城市按优先级排序：当前城市始终第一个且不受预算限制，
+     * 其他城市按过期时长和查看频率排序，数量受每次刷新上限和今天剩余请求数限制
+     * @param dueBefore 过期时间上限（毫秒时间戳）
+     */
+    static List<City> planCycle(Context context, long dueBefore) {
+        CityPreferences preferences = new CityPreferences(context);
+        City currentCity = preferences.getCurrentCity();
+        WeatherDataCache cache = WeatherDataCache.getInstance(context);
+        CityViewTracker viewTracker = new CityViewTracker(context);
+
+        City dueCurrentCity = null;
+        List<City> dueCities = new ArrayList<>();
+        final Map<String, Double> scores = new HashMap<>();
+        long now = System.currentTimeMillis();
+        for (City city : preferences.getSavedCities()) {
+            boolean isCurrent = isSameCity(city, currentCity);
+            long expiry = cache.getEarliestExpiryTime(WeatherDataHelper.getCacheId(city), isCurrent);
+            if (expiry > dueBefore) {
+                continue;
+            }
+            if (isCurrent) {
+                dueCurrentCity = city;
+                continue;
+            }
+            // 过期越久、查看越频繁的城市越先刷新；没有缓存的城市过期时间为0，排在最前
+            double staleness = dueBefore - expiry + MIN_DELAY_MILLIS;
+            scores.put(city.getId(), staleness * (1 + viewTracker.getViewScore(city.getId(), now)));
+            dueCities.add(city);
+        }
+        Collections.sort(dueCities, (a, b) -> Double.compare(scores.get(b.getId()), scores.get(a.getId())));
+
+        RefreshBudget budget = new RefreshBudget(context);
+        int limit = Math.min(budget.getMaxCitiesPerCycle(), budget.getRemainingCities());
+
+        // 当前城市不受预算限制，也不占用其他城市的名额
+        List<City> plan = new ArrayList<>();
+        if (dueCurrentCity != null) {
+            plan.add(dueCurrentCity);
+        }
+        int planned = 0;
+        for (City city : dueCities) {
+            if (planned >= limit) {
+                Log.i(TAG, "刷新预算不足，" + (dueCities.size() - planned) + " 个城市留到下一次刷新");
+                break;
+            }
+            plan.add(city);
+            planned++;
+        }
+        return plan;
+    }
+
+    static boolean isSameCity(City city, City currentCity) {
+        return currentCity != null && city.getId().equals(currentCity.getId());
+    }
+}
@@ -15,6 +15,7 @@ import com.microntek.weatherapp.model.City;
 import com.microntek.weatherapp.model.Weather;
 import com.microntek.weatherapp.util.CityPreferences;
 import com.microntek.weatherapp.util.MessageManager;
+import com.microntek.weatherapp.util.TaskGroup;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import android.view.MenuItem;
@@ -22,10 +23,6 @@ import android.view.MenuItem;
 import org.json.JSONException;
 
 import java.io.IOException;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import android.os.Handler;
-import android.os.Looper;
 import android.graphics.drawable.GradientDrawable;
 
 /**
@@ -49,8 +46,7 @@ public class AirQualityActivity extends AppCompatActivity implements BottomNavig
     
     // 数据处理
     private CityPreferences cityPreferences;
-    private final Executor executor = Executors.newSingleThreadExecutor();
-    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final TaskGroup taskGroup = new TaskGroup("AirQualityActivity");
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -135,14 +131,14 @@ public class AirQualityActivity extends AppCompatActivity implements BottomNavig
         tvCityName.setText(city.getName());
         
         // 在后台线程加载数据
-        executor.execute(() -> {
+        taskGroup.execute(() -> {
             try {
                 // 使用带缓存的API获取天气数据
                 final Weather weather = WeatherApi.getCurrentWeatherByLocationWithCache(
                         AirQualityActivity.this, city.getLatitude(), city.getLongitude());
                 
                 if (weather == null) {
-                    mainHandler.post(() -> MessageManager.showError(AirQualityActivity.this, 
+                    taskGroup.post(() -> MessageManager.showError(AirQualityActivity.this, 
                             "无可用的天气数据，请连接网络后重试"));
                     return;
                 }
@@ -157,10 +153,10 @@ public class AirQualityActivity extends AppCompatActivity implements BottomNavig
                 }
                 
                 // 在主线程更新UI
-                mainHandler.post(() -> updateUI(weather));
+                taskGroup.post(() -> updateUI(weather));
             } catch (IOException | JSONException e) {
                 e.printStackTrace();
-                mainHandler.post(() -> MessageManager.showError(AirQualityActivity.this, 
+                taskGroup.post(() -> MessageManager.showError(AirQualityActivity.this, 
                         "数据加载失败: " + e.getMessage()));
             }
         });
@@ -223,6 +219,13 @@ public class AirQualityActivity extends AppCompatActivity implements BottomNavig
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        // 取消未完成的加载任务
+        taskGroup.cancelAll();
+        super.onDestroy();
+    }
+
     @Override
     public void finish() {
         // 在返回MainActivity之前，设置标志位
@@ -27,12 +27,14 @@ import com.microntek.weatherapp.R;
 import com.microntek.weatherapp.adapter.CityAdapter;
 import com.microntek.weatherapp.api.WeatherApi;
 import com.microntek.weatherapp.model.City;
+import com.microntek.weatherapp.model.Weather;
 import com.microntek.weatherapp.util.CityOperationHelper;
+import com.microntek.weatherapp.util.CitySearchPipeline;
+import com.microntek.weatherapp.util.TaskManager;
 import com.microntek.weatherapp.util.CityPreferences;
 import com.microntek.weatherapp.util.WeatherDataHelper;
 import com.microntek.weatherapp.util.ExecutorManager;
 import com.microntek.weatherapp.util.MessageManager;
-import com.microntek.weatherapp.util.TaskManager;
 import com.microntek.weatherapp.util.LocationHelper;
 import com.microntek.weatherapp.util.LocationHelper.LocationCallback;
 
@@ -77,6 +79,12 @@ public class CityManagerActivity extends AppCompatActivity implements
     // 添加位置工具类
     private LocationHelper locationHelper;
     
+    // 城市搜索管线（防抖、取消过期请求）
+    private CitySearchPipeline searchPipeline;
+    
+    // 城市天气加载订阅，页面销毁时退订
+    private TaskManager.Subscription<List<City>> citiesWeatherSubscription;
+    
     // 搜索模式标志 - 移动到适配器中管理
     // private boolean isSearchMode = false;
     
@@ -316,6 +324,35 @@ public class CityManagerActivity extends AppCompatActivity implements
      * 设置搜索栏
      */
     private void setupSearchBar() {
+        searchPipeline = new CitySearchPipeline(this::performSearch, 
+                new CitySearchPipeline.Listener() {
+                    @Override
+                    public void onSearchStarted(String query) {
+                        // 设置搜索模式标志
+                        cityAdapter.setSearchMode(true);
+                        showLoading();
+                    }
+                    
+                    @Override
+                    public void onSearchResults(String query, List<City> results, Runnable resultsShown) {
+                        // 更新搜索结果，差异计算提交后才算显示完成
+                        cityAdapter.setSearchResults(results, resultsShown);
+                        hideLoading();
+                        showSearchResults();
+                    }
+                    
+                    @Override
+                    public void onSearchError(String query, Exception e) {
+                        Log.e(TAG, "搜索城市失败: " + e.getMessage());
+                        hideLoading();
+                        MessageManager.showActionMessage(
+                                findViewById(android.R.id.content),
+                                "搜索城市失败: " + e.getMessage(),
+                                "重试",
+                                v -> searchCity(query));
+                    }
+                });
+        
         searchEditText.addTextChangedListener(new TextWatcher() {
             @Override
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
@@ -325,7 +362,8 @@ public class CityManagerActivity extends AppCompatActivity implements
             
             @Override
             public void afterTextChanged(Editable s) {
-                // 这里可以实现实时搜索功能
+                // 实时搜索，防抖后执行，并取消已过期的搜索
+                searchPipeline.onQueryChanged(s.toString());
             }
         });
         
@@ -347,7 +385,7 @@ public class CityManagerActivity extends AppCompatActivity implements
     }
     
     /**
-     * 搜索城市
+     * 立即搜索城市（键盘搜索键或重试）
      */
     private void searchCity(String cityName) {
         if (TextUtils.isEmpty(cityName)) {
@@ -360,81 +398,45 @@ public class CityManagerActivity extends AppCompatActivity implements
             imm.hideSoftInputFromWindow(getCurrentFocus().getWindowToken(), 0);
         }
 
-        // 设置搜索模式标志
-        cityAdapter.setSearchMode(true);
-        showLoading();
-
-        // 使用TaskManager执行搜索任务
-        final String taskId = "SEARCH_CITY_" + cityName;
-        TaskManager.executeParallelTask(taskId, () -> {
-            List<City> results = new ArrayList<>();
-            try {
-                results = WeatherApi.searchCity(cityName);
-            } catch (Exception e) {
-                e.printStackTrace();
-                ExecutorManager.executeOnMain(() -> {
-                    hideLoading();
-                    MessageManager.showActionMessage(
-                            findViewById(android.R.id.content),
-                            "搜索城市失败: " + e.getMessage(),
-                            "重试",
-                            v -> searchCity(cityName));
-                });
-                return;
-            }
+        searchPipeline.searchNow(cityName);
+    }
+    
+    /**
+     * 执行搜索并加载结果城市的天气，在后台线程调用
+     */
+    private List<City> performSearch(String cityName, Object requestTag, 
+                                     CitySearchPipeline.CancellationToken token) throws Exception {
+        List<City> results = WeatherApi.searchCity(cityName, requestTag);
+        if (token.isCancelled()) {
+            return new ArrayList<>();
+        }
 
-            List<City> exactMatches = new ArrayList<>();
-            // 精确匹配城市名
-            for (City city : results) {
-                if (city.getName().equals(cityName)) {
-                    exactMatches.add(city);
-                    break;
-                }
+        List<City> exactMatches = new ArrayList<>();
+        // 精确匹配城市名
+        for (City city : results) {
+            if (city.getName().equals(cityName)) {
+                exactMatches.add(city);
+                break;
             }
+        }
 
-            // 如果有精确匹配则使用精确匹配结果，否则使用第一个结果
-            final List<City> finalResults = !exactMatches.isEmpty() ? exactMatches : 
-                                          !results.isEmpty() ? Collections.singletonList(results.get(0)) : 
-                                          new ArrayList<>();
-            
-            if (finalResults.isEmpty()) {
-                ExecutorManager.executeOnMain(() -> {
-                    hideLoading();
-                    // 更新搜索结果
-                    cityAdapter.setSearchResults(new ArrayList<>());
-                    showSearchResults();
-                });
-                return;
+        // 如果有精确匹配则使用精确匹配结果，否则使用第一个结果
+        final List<City> finalResults = !exactMatches.isEmpty() ? exactMatches : 
+                                      !results.isEmpty() ? Collections.singletonList(results.get(0)) : 
+                                      new ArrayList<>();
+        
+        // 加载每个搜索结果城市的天气数据（优先使用缓存），失败时仍保留城市
+        for (City city : finalResults) {
+            if (token.isCancelled()) {
+                break;
             }
-            
-            // 使用WeatherDataHelper加载每个搜索结果城市的天气数据
-            WeatherDataHelper.loadCitiesWeather(
-                    getApplicationContext(),
-                    finalResults,
-                    true, // 优先使用缓存
-                    new WeatherDataHelper.WeatherDataCallback() {
-                        @Override
-                        public void onDataLoaded(List<City> updatedCities) {
-                            // 更新搜索结果
-                            cityAdapter.setSearchResults(updatedCities);
-                            
-                            // 执行UI更新
-                            hideLoading();
-                            showSearchResults();
-                        }
-                        
-                        @Override
-                        public void onError(String errorMessage) {
-                            // 即使加载天气失败，也显示搜索结果
-                            cityAdapter.setSearchResults(finalResults);
-                            
-                            hideLoading();
-                            showSearchResults();
-                            
-                            Log.e(TAG, "加载搜索城市天气失败: " + errorMessage);
-                        }
-                    });
-        });
+            // 天气请求同样附带搜索标签，查询被取代时与城市搜索请求一起取消
+            Weather weather = WeatherApi.withRequestTag(requestTag,
+                    () -> WeatherDataHelper.getCityWeather(getApplicationContext(), city, true));
+            WeatherDataHelper.updateCityWithWeatherData(city, weather);
+        }
+        
+        return finalResults;
     }
     
     /**
@@ -444,7 +446,7 @@ public class CityManagerActivity extends AppCompatActivity implements
         recyclerView.setAdapter(cityAdapter);
         
         // 根据搜索结果显示或隐藏无结果提示
-        if (cityAdapter.getItemCount() == 0) {
+        if (cityAdapter.isEmpty()) {
             noResultsText.setVisibility(View.VISIBLE);
         } else {
             noResultsText.setVisibility(View.GONE);
@@ -458,6 +460,7 @@ public class CityManagerActivity extends AppCompatActivity implements
      * 隐藏搜索结果
      */
     private void hideSearchResult() {
+        searchPipeline.cancel();
         cityAdapter.setSearchMode(false);
         
         // 隐藏结果提示和清除按钮
@@ -475,8 +478,11 @@ public class CityManagerActivity extends AppCompatActivity implements
         
         showLoading();
         
+        // 先订阅新的加载再退订上一次，相同城市列表的请求会合并到同一次执行而不会被取消
+        TaskManager.Subscription<List<City>> previousSubscription = citiesWeatherSubscription;
+        
         // 使用城市操作辅助类加载城市天气数据
-        cityOperationHelper.loadCitiesWeather(cities, 
+        citiesWeatherSubscription = cityOperationHelper.loadCitiesWeather(cities, 
                 new CityOperationHelper.OperationCallback<List<City>>() {
                     @Override
                     public void onSuccess(List<City> sortedCities) {
@@ -502,6 +508,10 @@ public class CityManagerActivity extends AppCompatActivity implements
                                 v -> loadCitiesWeather());
                     }
                 });
+        
+        if (previousSubscription != null) {
+            previousSubscription.detach();
+        }
     }
     
     /**
@@ -649,6 +659,17 @@ public class CityManagerActivity extends AppCompatActivity implements
 
     @Override
     protected void onDestroy() {
+        // 取消进行中的搜索
+        if (searchPipeline != null) {
+            searchPipeline.cancel();
+        }
+        
+        // 退订城市天气加载，无其他订阅者时任务会被取消
+        if (citiesWeatherSubscription != null) {
+            citiesWeatherSubscription.detach();
+            citiesWeatherSubscription = null;
+        }
+        
         // 清理资源
         if (cityPreferences != null) {
             cityPreferences.onDestroy();
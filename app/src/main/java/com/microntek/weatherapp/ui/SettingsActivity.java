@@ -6,8 +6,6 @@ import android.content.SharedPreferences;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
 import android.view.MenuItem;
 import android.view.View;
@@ -24,15 +22,13 @@ import com.microntek.weatherapp.MainActivity;
 import com.microntek.weatherapp.api.WeatherApi;
 import com.microntek.weatherapp.model.City;
 import com.microntek.weatherapp.util.CityPreferences;
+import com.microntek.weatherapp.util.ExecutorManager;
 import com.microntek.weatherapp.util.MessageManager;
 import com.microntek.weatherapp.util.ThemeHelper;
 import com.microntek.weatherapp.util.WeatherDataCache;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
-import com.microntek.weatherapp.util.ExecutorManager;
-
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ExecutorService;
+import com.microntek.weatherapp.util.PriorityTaskScheduler.Priority;
+import com.microntek.weatherapp.util.TaskGroup;
 
 public class SettingsActivity extends AppCompatActivity implements BottomNavigationView.OnNavigationItemSelectedListener {
     
@@ -48,8 +44,7 @@ public class SettingsActivity extends AppCompatActivity implements BottomNavigat
     
     // 缓存操作所需
     private CityPreferences cityPreferences;
-    private final Executor executor = Executors.newSingleThreadExecutor();
-    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final TaskGroup taskGroup = new TaskGroup("SettingsActivity");
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -104,25 +99,18 @@ public class SettingsActivity extends AppCompatActivity implements BottomNavigat
     
     @Override
     protected void onDestroy() {
+        // 取消本页面提交的后台任务；共享执行器由应用统一管理，不在此关闭
+        taskGroup.cancelAll();
+        
         super.onDestroy();
         
         // 关闭资源，防止泄漏
         if (!isChangingConfigurations()) { 
             // 只有在应用完全退出时才关闭资源，避免因旋转屏幕等配置变化导致的临时销毁
             try {
-                // 关闭executor
-                if (executor instanceof ExecutorService) {
-                    ((ExecutorService) executor).shutdown();
-                    Log.i("SettingsActivity", "已关闭ExecutorService");
-                }
-                
                 // 关闭全局缓存管理器
                 WeatherDataCache.shutdown();
                 Log.i("SettingsActivity", "已关闭WeatherDataCache");
-
-                // 关闭所有执行器
-                ExecutorManager.shutdownAll();
-                Log.i("SettingsActivity", "已关闭所有执行器");
             } catch (Exception e) {
                 Log.e("SettingsActivity", "关闭资源失败: " + e.getMessage());
             }
@@ -172,13 +160,14 @@ public class SettingsActivity extends AppCompatActivity implements BottomNavigat
         
         MessageManager.showMessage(this, "正在验证缓存数据...");
         
-        // 在后台线程验证缓存
-        executor.execute(() -> {
+        // 在后台线程验证缓存，修复会写入缓存，不放入页面的任务组以免离开页面时被中断
+        final Context appContext = getApplicationContext();
+        ExecutorManager.executeParallel(() -> {
             try {
                 boolean repaired = WeatherApi.verifyAndRepairCacheByLocation(
-                        SettingsActivity.this, currentCity.getLatitude(), currentCity.getLongitude());
+                        appContext, currentCity.getLatitude(), currentCity.getLongitude());
                 
-                mainHandler.post(() -> {
+                taskGroup.post(() -> {
                     if (repaired) {
                         MessageManager.showSuccess(SettingsActivity.this, "已修复部分缓存数据");
                     } else {
@@ -187,11 +176,11 @@ public class SettingsActivity extends AppCompatActivity implements BottomNavigat
                 });
             } catch (Exception e) {
                 Log.e("SettingsActivity", "验证缓存失败: " + e.getMessage());
-                mainHandler.post(() -> {
+                taskGroup.post(() -> {
                     MessageManager.showError(SettingsActivity.this, "验证缓存失败: " + e.getMessage());
                 });
             }
-        });
+        }, Priority.INTERACTIVE, "VERIFY_CACHE");
     }
     
     /**
@@ -210,24 +199,26 @@ public class SettingsActivity extends AppCompatActivity implements BottomNavigat
      * 清除所有缓存
      */
     private void clearAllCache() {
-        // 在后台线程清除缓存
-        executor.execute(() -> {
+        // 在后台线程清除缓存，与其他缓存写入顺序执行
+        // 不放入页面的任务组，离开页面时清除也会完整执行，只丢弃结果提示
+        final Context appContext = getApplicationContext();
+        ExecutorManager.executeSingle(() -> {
             try {
                 // 初始化缓存管理器
-                WeatherApi.initCache(SettingsActivity.this);
+                WeatherApi.initCache(appContext);
                 // 获取缓存管理器实例并清除所有缓存
-                WeatherDataCache.getInstance(SettingsActivity.this).clearAllCache();
+                WeatherDataCache.getInstance(appContext).clearAllCache();
                 
-                mainHandler.post(() -> {
+                taskGroup.post(() -> {
                     MessageManager.showSuccess(SettingsActivity.this, "所有缓存已清除");
                 });
             } catch (Exception e) {
                 Log.e("SettingsActivity", "清除缓存失败: " + e.getMessage());
-                mainHandler.post(() -> {
+                taskGroup.post(() -> {
                     MessageManager.showError(SettingsActivity.this, "清除缓存失败: " + e.getMessage());
                 });
             }
-        });
+        }, "CLEAR_CACHE");
     }
     
     /**
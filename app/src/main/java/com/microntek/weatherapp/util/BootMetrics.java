@@ -0,0 +1,90 @@
+package com.microntek.weatherapp.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * 开机到首次显示数据的耗时统计
+ * 记录开机后几个关键时间点（均为开机以来的毫秒数），保存最近一次开机的结果
+ */
+public final class BootMetrics {
+    private static final String TAG = "BootMetrics";
+    private static final String PREFS_NAME = "boot_metrics";
+
+    private static final String KEY_BOOT_COMPLETED = "boot_completed_ms";
+    private static final String KEY_SNAPSHOT_PUBLISHED = "snapshot_published_ms";
+    private static final String KEY_NETWORK_VALIDATED = "network_validated_ms";
+    private static final String KEY_FRESH_DATA_PUBLISHED = "fresh_data_published_ms";
+
+    // 本进程是否因开机广播启动，只有开机流程才记录
+    private static volatile boolean tracking = false;
+
+    private BootMetrics() {
+    }
+
+    /**
+     * 收到开机广播，开始记录本次开机
+     */
+    public static void markBootCompleted(Context context) {
+        tracking = true;
+        getPreferences(context).edit()
+                .clear()
+                .putLong(KEY_BOOT_COMPLETED, SystemClock.elapsedRealtime())
+                .apply();
+    }
+
+    /**
+     * 已发布上次保存的天气快照
+     */
+    public static void markSnapshotPublished(Context context) {
+        markOnce(context, KEY_SNAPSHOT_PUBLISHED, "发布缓存快照");
+    }
+
+    /**
+     * 网络已通过验证
+     */
+    public static void markNetworkValidated(Context context) {
+        markOnce(context, KEY_NETWORK_VALIDATED, "网络验证通过");
+    }
+
+    /**
+     * 网络就绪后已发布最新天气数据，本次开机记录结束
+     */
+    public static void markFreshDataPublished(Context context) {
+        if (markOnce(context, KEY_FRESH_DATA_PUBLISHED, "发布最新数据")) {
+            tracking = false;
+            Log.i(TAG, "开机耗时统计: " + getLastBootSummary(context));
+        }
+    }
+
+    /**
+     * 获取最近一次开机的耗时统计
+     */
+    public static String getLastBootSummary(Context context) {
+        SharedPreferences preferences = getPreferences(context);
+        return "boot_completed=" + preferences.getLong(KEY_BOOT_COMPLETED, -1) + "ms"
+                + ", snapshot_published=" + preferences.getLong(KEY_SNAPSHOT_PUBLISHED, -1) + "ms"
+                + ", network_validated=" + preferences.getLong(KEY_NETWORK_VALIDATED, -1) + "ms"
+                + ", fresh_data_published=" + preferences.getLong(KEY_FRESH_DATA_PUBLISHED, -1) + "ms";
+    }
+
+    private static boolean markOnce(Context context, String key, String label) {
+        if (!tracking) {
+            return false;
+        }
+        SharedPreferences preferences = getPreferences(context);
+        if (preferences.contains(key)) {
+            return false;
+        }
+        long now = SystemClock.elapsedRealtime();
+        preferences.edit().putLong(key, now).apply();
+        Log.i(TAG, "开机后 " + now + "ms " + label);
+        return true;
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -41,7 +41,7 @@ public class CityOperationHelper {
     public void processLocationResult(double latitude, double longitude, 
                                      OperationCallback<City> callback) {
         // 在后台线程获取城市信息
-        ExecutorManager.getThreadPoolExecutor().execute(() -> {
+        ExecutorManager.executeParallel(() -> {
             try {
                 // 获取当前城市信息
                 City city = WeatherApi.getCityByLocation(latitude, longitude);
@@ -80,22 +80,24 @@ public class CityOperationHelper {
                     }
                 });
             }
-        });
+        }, PriorityTaskScheduler.Priority.INTERACTIVE, "LOCATE_CITY");
     }
     
     /**
      * 加载城市天气数据
+     * @return 订阅对象，页面销毁时应调用detach；城市列表为空时返回null
      */
-    public void loadCitiesWeather(List<City> cities, OperationCallback<List<City>> callback) {
+    public TaskManager.Subscription<List<City>> loadCitiesWeather(List<City> cities,
+                                                                  OperationCallback<List<City>> callback) {
         if (cities == null || cities.isEmpty()) {
             if (callback != null) {
                 callback.onError("城市列表为空");
             }
-            return;
+            return null;
         }
         
         // 使用WeatherDataHelper加载城市天气数据
-        WeatherDataHelper.loadCitiesWeather(
+        return WeatherDataHelper.loadCitiesWeather(
                 context,
                 new ArrayList<>(cities),
                 true, // 优先使用缓存
@@ -243,7 +245,7 @@ public class CityOperationHelper {
                     }
                 });
             }
-        });
+        }, taskId);
     }
     
     /**
@@ -341,7 +343,7 @@ public class CityOperationHelper {
                     }
                 });
             }
-        });
+        }, taskId);
     }
     
     /**
@@ -438,7 +440,7 @@ public class CityOperationHelper {
                     }
                 });
             }
-        });
+        }, taskId);
     }
     
     /**
@@ -1,83 +1,68 @@
 package com.microntek.weatherapp.util;
 
 import android.content.Context;
-import android.content.SharedPreferences;
-import android.text.TextUtils;
 import android.util.Log;
 
 import com.microntek.weatherapp.model.City;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.microntek.weatherapp.provider.WeatherContract;
+import com.microntek.weatherapp.widget.WeatherWidgetProvider;
+import com.microntek.weatherapp.util.PriorityTaskScheduler.Priority;
 
-import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * 城市偏好设置工具类，用于管理用户保存的城市列表
+ * 数据保存在进程内的 {@link CityRegistry} 中，读取返回副本，调用方可以自由修改
  */
 public class CityPreferences {
     private static final String TAG = "CityPreferences";
-    private static final String PREFS_NAME = "weather_prefs";
-    private static final String KEY_CITIES = "saved_cities";
-    private static final String KEY_CURRENT_CITY = "current_city";
     
-    private final SharedPreferences preferences;
-    private final Gson gson;
+    private final CityRegistry registry;
     private final Context context;
     
     // 缓存管理器引用
     private WeatherDataCache weatherDataCache;
-    // 线程池用于后台预加载
-    private final ExecutorService executor;
     
     public CityPreferences(Context context) {
         this.context = context.getApplicationContext();
-        preferences = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        gson = new Gson();
+        registry = CityRegistry.getInstance(this.context);
         // 初始化缓存管理器
         weatherDataCache = WeatherDataCache.getInstance(context);
-        // 创建有界线程池，避免过多任务积压
-        executor = Executors.newSingleThreadExecutor();
     }
     
     /**
      * 清理资源，在Activity或应用销毁时调用
+     * 预加载和缓存校验任务由ExecutorManager统一调度，已提交的任务允许继续完成
      */
     public void onDestroy() {
-        try {
-            if (executor != null && !executor.isShutdown()) {
-                // 关闭线程池但允许已提交任务完成
-                executor.shutdown();
-                Log.i(TAG, "城市线程池已正常关闭");
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "关闭城市线程池出错: " + e.getMessage());
-        }
     }
     
     /**
      * 获取保存的城市列表
      */
     public List<City> getSavedCities() {
-        String citiesJson = preferences.getString(KEY_CITIES, null);
-        if (TextUtils.isEmpty(citiesJson)) {
-            return new ArrayList<>();
+        List<City> savedCities = registry.getSnapshot().getCities();
+        List<City> cities = new ArrayList<>(savedCities.size());
+        for (City city : savedCities) {
+            cities.add(new City(city));
         }
-        
-        Type type = new TypeToken<List<City>>(){}.getType();
-        List<City> cities = gson.fromJson(citiesJson, type);
-        return cities != null ? cities : new ArrayList<>();
+        return cities;
+    }
+    
+    /**
+     * 城市是否已保存
+     */
+    public boolean containsCity(String cityId) {
+        return registry.getSnapshot().contains(cityId);
     }
     
     /**
      * 保存城市列表
      */
     public void saveCities(List<City> cities) {
-        String citiesJson = gson.toJson(cities);
-        preferences.edit().putString(KEY_CITIES, citiesJson).apply();
+        registry.setCities(cities);
+        WeatherContract.notifySnapshotChanged(context);
     }
     
     /**
@@ -91,27 +76,15 @@ public class CityPreferences {
             return false;
         }
         
-        List<City> cities = getSavedCities();
-        
-        // 检查是否已存在相同城市
-        boolean exists = false;
-        for (City existingCity : cities) {
-            if (existingCity.getId().equals(city.getId())) {
-                exists = true;
-                break;
-            }
-        }
-        
-        if (!exists) {
-            // 添加到列表
-            cities.add(city);
-            saveCities(cities);
+        // 已存在相同城市时不添加
+        if (registry.addCity(city)) {
+            WeatherContract.notifySnapshotChanged(context);
             
             // 在后台预加载城市天气数据并缓存
             preloadCityWeatherData(city, true);
             
             // 如果没有当前城市，则设置该城市为当前城市
-            if (getCurrentCity() == null) {
+            if (registry.getSnapshot().getCurrentCity() == null) {
                 setCurrentCity(city);
             }
             
@@ -134,22 +107,13 @@ public class CityPreferences {
             return false;
         }
         
-        List<City> cities = getSavedCities();
-        boolean removed = false;
-        
-        for (int i = 0; i < cities.size(); i++) {
-            if (cities.get(i).getId().equals(city.getId())) {
-                cities.remove(i);
-                removed = true;
-                break;
-            }
-        }
-        
-        if (removed) {
-            saveCities(cities);
+        if (registry.removeCity(city.getId())) {
+            WeatherContract.notifySnapshotChanged(context);
+            List<City> cities = registry.getSnapshot().getCities();
             
             // 在后台清除被删除城市的所有缓存数据
             clearCityCache(city);
+            new CityViewTracker(context).remove(city.getId());
             
             // 如果删除的是当前选中的城市，则清除当前城市或选择新的当前城市
             City currentCity = getCurrentCity();
@@ -174,12 +138,8 @@ public class CityPreferences {
      * 获取当前选中的城市
      */
     public City getCurrentCity() {
-        String cityJson = preferences.getString(KEY_CURRENT_CITY, null);
-        if (TextUtils.isEmpty(cityJson)) {
-            return null;
-        }
-        
-        return gson.fromJson(cityJson, City.class);
+        City currentCity = registry.getSnapshot().getCurrentCity();
+        return currentCity != null ? new City(currentCity) : null;
     }
     
     /**
@@ -193,8 +153,9 @@ public class CityPreferences {
             return false;
         }
         
-        String cityJson = gson.toJson(city);
-        preferences.edit().putString(KEY_CURRENT_CITY, cityJson).apply();
+        registry.setCurrentCity(city);
+        WeatherContract.notifySnapshotChanged(context);
+        WeatherWidgetProvider.requestUpdate(context, null);
         
         // 优先预加载当前城市的天气数据
         preloadCityWeatherData(city, true);
@@ -207,14 +168,16 @@ public class CityPreferences {
      * 清除当前选中的城市
      */
     public void clearCurrentCity() {
-        preferences.edit().remove(KEY_CURRENT_CITY).apply();
+        registry.setCurrentCity(null);
+        WeatherContract.notifySnapshotChanged(context);
+        WeatherWidgetProvider.requestUpdate(context, null);
         Log.i(TAG, "已清除当前城市");
     }
     
     /**
      * 预加载城市天气数据并缓存
      * @param city 城市对象
-     * @param highPriority 是否高优先级
+     * @param highPriority 是否高优先级，高优先级按VISIBLE通道调度，否则按BACKGROUND通道调度
      */
     public void preloadCityWeatherData(City city, boolean highPriority) {
         if (city == null) {
@@ -251,12 +214,9 @@ public class CityPreferences {
             }
         };
         
-        // 高优先级任务直接执行，低优先级任务提交到线程池
-        if (highPriority) {
-            executor.submit(preloadTask);
-        } else {
-            executor.execute(preloadTask);
-        }
+        // 低优先级预加载在界面加载期间暂停，不会阻塞可见数据的加载
+        ExecutorManager.executeParallel(preloadTask,
+                highPriority ? Priority.VISIBLE : Priority.BACKGROUND, "PRELOAD_CITY");
     }
     
     /**
@@ -273,12 +233,14 @@ public class CityPreferences {
             String cityId = city.getId();
             
             // 如果是经纬度类型的城市ID，使用经纬度格式
+            String locationId = city.getLongitude() + "," + city.getLatitude();
             if (city.isCurrentLocation() || cityId.contains(",")) {
-                String locationId = city.getLongitude() + "," + city.getLatitude();
                 weatherDataCache.clearCache(locationId);
             } else {
                 weatherDataCache.clearCache(cityId);
             }
+            // 分钟级降水预报总是按经纬度缓存
+            weatherDataCache.clearNowcast(locationId);
             
             Log.i(TAG, "已清除城市 " + city.getName() + " 的缓存数据");
         } catch (Exception e) {
@@ -323,7 +285,7 @@ public class CityPreferences {
      * 验证并修复所有城市的缓存数据
      */
     public void verifyAndRepairAllCitiesCache() {
-        executor.execute(() -> {
+        ExecutorManager.executeParallel(() -> {
             try {
                 List<City> cities = getSavedCities();
                 for (City city : cities) {
@@ -344,6 +306,6 @@ public class CityPreferences {
             } catch (Exception e) {
                 Log.e(TAG, "验证修复城市缓存时出错: " + e.getMessage());
             }
-        });
+        }, Priority.MAINTENANCE, "VERIFY_ALL_CITIES");
     }
 } 
\ No newline at end of file
@@ -0,0 +1,258 @@
+package com.microntek.weatherapp.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.microntek.weatherapp.model.City;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内的城市注册表
+ * 保存的城市列表和当前城市只在首次使用时从SharedPreferences解析一次，之后全部在内存中读写；
+ * 每次修改生成新的不可变快照，读取无需加锁，修改后在后台线程把两个键一次性写回
+ */
+public final class CityRegistry {
+    private static final String TAG = "CityRegistry";
+    private static final String PREFS_NAME = "weather_prefs";
+    private static final String KEY_CITIES = "saved_cities";
+    private static final String KEY_CURRENT_CITY = "current_city";
+
+    /**
+     * 城市列表或当前城市变化的观察者，在主线程回调
+     */
+    public interface Observer {
+        void onCitiesChanged(Snapshot snapshot);
+    }
+
+    /**
+     * 某一时刻的城市列表和当前城市，创建后不再修改
+     * 其中的City对象归注册表所有，调用方不能修改；需要修改时先复制
+     */
+    public static final class Snapshot {
+        private final List<City> cities;
+        private final Map<String, City> citiesById;
+        private final City currentCity;
+
+        private Snapshot(List<City> cities, City currentCity) {
+            Map<String, City> byId = new LinkedHashMap<>();
+            for (City city : cities) {
+                byId.put(city.getId(), city);
+            }
+            this.cities = Collections.unmodifiableList(cities);
+            this.citiesById = Collections.unmodifiableMap(byId);
+            this.currentCity = currentCity;
+        }
+
+        /**
+         * 保存的城市，按添加顺序排列
+         */
+        public List<City> getCities() {
+            return cities;
+        }
+
+        public City getCity(String cityId) {
+            return cityId != null ? citiesById.get(cityId) : null;
+        }
+
+        public boolean contains(String cityId) {
+            return cityId != null && citiesById.containsKey(cityId);
+        }
+
+        public City getCurrentCity() {
+            return currentCity;
+        }
+    }
+
+    // 单例模式
+    private static CityRegistry instance;
+
+    private final SharedPreferences preferences;
+    private final Gson gson = new Gson();
+    private final CopyOnWriteArrayList<Observer> observers = new CopyOnWriteArrayList<>();
+
+    private volatile Snapshot snapshot;
+
+    // 内存数据的版本和已写回的版本，写回任务只写最新的快照
+    private long version = 0;
+    private long persistedVersion = 0;
+    private boolean persistScheduled = false;
+
+    /**
+     * 获取CityRegistry实例
+     */
+    public static synchronized CityRegistry getInstance(Context context) {
+        if (instance == null) {
+            instance = new CityRegistry(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private CityRegistry(Context context) {
+        preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        snapshot = load();
+    }
+
+    /**
+     * 获取当前快照
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public void addObserver(Observer observer) {
+        observers.addIfAbsent(observer);
+    }
+
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * 替换保存的城市列表
+     */
+    public void setCities(List<City> cities) {
+        List<City> copies = new ArrayList<>();
+        if (cities != null) {
+            for (City city : cities) {
+                if (city != null) {
+                    copies.add(new City(city));
+                }
+            }
+        }
+        synchronized (this) {
+            update(new Snapshot(copies, snapshot.currentCity));
+        }
+    }
+
+    /**
+     * 添加城市，已存在相同ID的城市时不做修改
+     * @return 是否添加
+     */
+    public boolean addCity(City city) {
+        synchronized (this) {
+            Snapshot current = snapshot;
+            if (current.contains(city.getId())) {
+                return false;
+            }
+            List<City> cities = new ArrayList<>(current.cities.size() + 1);
+            cities.addAll(current.cities);
+            cities.add(new City(city));
+            update(new Snapshot(cities, current.currentCity));
+            return true;
+        }
+    }
+
+    /**
+     * 删除城市
+     * @return 是否删除
+     */
+    public boolean removeCity(String cityId) {
+        synchronized (this) {
+            Snapshot current = snapshot;
+            if (!current.contains(cityId)) {
+                return false;
+            }
+            List<City> cities = new ArrayList<>(current.cities.size());
+            for (City city : current.cities) {
+                if (!city.getId().equals(cityId)) {
+                    cities.add(city);
+                }
+            }
+            update(new Snapshot(cities, current.currentCity));
+            return true;
+        }
+    }
+
+    /**
+     * 设置当前城市，为null时清除
+     */
+    public void setCurrentCity(City city) {
+        City copy = city != null ? new City(city) : null;
+        synchronized (this) {
+            update(new Snapshot(new ArrayList<>(snapshot.cities), copy));
+        }
+    }
+
+    private void update(Snapshot newSnapshot) {
+        snapshot = newSnapshot;
+        version++;
+        if (!persistScheduled) {
+            persistScheduled = true;
+            ExecutorManager.executeSingle(this::persist, "PERSIST_CITIES");
+        }
+        // 总是投递到主线程消息队列，不在持有注册表锁时回调
+        for (Observer observer : observers) {
+            ExecutorManager.getMainHandler().post(() -> observer.onCitiesChanged(newSnapshot));
+        }
+    }
+
+    /**
+     * 在后台线程写回最新快照，两个键在同一次提交中写入
+     */
+    private void persist() {
+        Snapshot toWrite;
+        long writingVersion;
+        synchronized (this) {
+            persistScheduled = false;
+            if (persistedVersion == version) {
+                return;
+            }
+            toWrite = snapshot;
+            writingVersion = version;
+        }
+
+        SharedPreferences.Editor editor = preferences.edit()
+                .putString(KEY_CITIES, gson.toJson(toWrite.cities));
+        if (toWrite.currentCity != null) {
+            editor.putString(KEY_CURRENT_CITY, gson.toJson(toWrite.currentCity));
+        } else {
+            editor.remove(KEY_CURRENT_CITY);
+        }
+
+        if (editor.commit()) {
+            synchronized (this) {
+                persistedVersion = Math.max(persistedVersion, writingVersion);
+            }
+        } else {
+            Log.e(TAG, "保存城市列表失败");
+        }
+    }
+
+    private Snapshot load() {
+        List<City> cities = new ArrayList<>();
+        City currentCity = null;
+        try {
+            String citiesJson = preferences.getString(KEY_CITIES, null);
+            if (!TextUtils.isEmpty(citiesJson)) {
+                Type type = new TypeToken<List<City>>(){}.getType();
+                List<City> saved = gson.fromJson(citiesJson, type);
+                if (saved != null) {
+                    for (City city : saved) {
+                        if (city != null && city.getId() != null) {
+                            cities.add(city);
+                        }
+                    }
+                }
+            }
+
+            String cityJson = preferences.getString(KEY_CURRENT_CITY, null);
+            if (!TextUtils.isEmpty(cityJson)) {
+                currentCity = gson.fromJson(cityJson, City.class);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "读取城市列表失败: " + e.getMessage(), e);
+        }
+        return new Snapshot(cities, currentCity);
+    }
+}
@@ -0,0 +1,188 @@
+package com.microntek.weatherapp.util;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.microntek.weatherapp.api.WeatherApi;
+import com.microntek.weatherapp.model.City;
+
+import java.util.List;
+
+/**
+ * 城市搜索管线
+ * 负责输入防抖、取消过期的搜索请求，并保证搜索结果按输入顺序应用
+ */
+public class CitySearchPipeline {
+    private static final String TAG = "CitySearchPipeline";
+
+    // 默认防抖时长
+    private static final long DEFAULT_DEBOUNCE_MILLIS = 350;
+
+    private final long debounceMillis;
+    private final Searcher searcher;
+    private final Listener listener;
+
+    // 网络请求标签，用于取消本管线发出的请求
+    private final Object requestTag = new Object();
+
+    // 搜索代数，只在主线程修改；结果返回时代数不一致说明已被新查询取代
+    private volatile long generation = 0;
+    private long lastKeystrokeTime = 0;
+    private long lastLatencyMillis = -1;
+    private Runnable pendingSearch;
+
+    /**
+     * 搜索执行接口，在后台线程调用
+     */
+    public interface Searcher {
+        /**
+         * @param query 查询关键字
+         * @param requestTag 网络请求应附带的标签，以便查询变更时取消
+         * @param token 取消令牌，耗时步骤之间应检查是否已被取代
+         */
+        List<City> search(String query, Object requestTag, CancellationToken token) throws Exception;
+    }
+
+    /**
+     * 搜索结果回调，在主线程调用
+     */
+    public interface Listener {
+        void onSearchStarted(String query);
+
+        /**
+         * @param resultsShown 结果实际显示到界面后调用（如列表差异计算提交之后），用于统计按键到结果显示的耗时
+         */
+        void onSearchResults(String query, List<City> results, Runnable resultsShown);
+
+        void onSearchError(String query, Exception e);
+    }
+
+    /**
+     * 取消令牌，对应一次具体的搜索
+     */
+    public final class CancellationToken {
+        private final long tokenGeneration;
+
+        private CancellationToken(long tokenGeneration) {
+            this.tokenGeneration = tokenGeneration;
+        }
+
+        public boolean isCancelled() {
+            return tokenGeneration != generation;
+        }
+    }
+
+    public CitySearchPipeline(Searcher searcher, Listener listener) {
+        this(searcher, listener, DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    public CitySearchPipeline(Searcher searcher, Listener listener, long debounceMillis) {
+        this.searcher = searcher;
+        this.listener = listener;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * 输入变化时调用，防抖后执行搜索
+     * 必须在主线程调用
+     */
+    public void onQueryChanged(String query) {
+        lastKeystrokeTime = SystemClock.uptimeMillis();
+        cancel();
+
+        if (query == null || query.trim().isEmpty()) {
+            return;
+        }
+
+        final String trimmed = query.trim();
+        pendingSearch = () -> {
+            pendingSearch = null;
+            start(trimmed);
+        };
+        ExecutorManager.executeOnMainDelayed(pendingSearch, debounceMillis);
+    }
+
+    /**
+     * 立即执行搜索（例如用户点击了键盘上的搜索键）
+     * 必须在主线程调用
+     */
+    public void searchNow(String query) {
+        if (query == null || query.trim().isEmpty()) {
+            return;
+        }
+        if (lastKeystrokeTime == 0) {
+            lastKeystrokeTime = SystemClock.uptimeMillis();
+        }
+        cancel();
+        start(query.trim());
+    }
+
+    /**
+     * 取消等待中的防抖任务和正在执行的搜索
+     * 必须在主线程调用
+     */
+    public void cancel() {
+        if (pendingSearch != null) {
+            ExecutorManager.getMainHandler().removeCallbacks(pendingSearch);
+            pendingSearch = null;
+        }
+        generation++;
+        WeatherApi.cancelCalls(requestTag);
+    }
+
+    /**
+     * 获取最近一次搜索从按键到结果显示的耗时
+     * @return 毫秒，尚无数据时返回-1
+     */
+    public long getLastLatencyMillis() {
+        return lastLatencyMillis;
+    }
+
+    /**
+     * 记录按键到结果显示的耗时，在主线程调用
+     */
+    private void recordLatency(String query, long keystrokeTime) {
+        lastLatencyMillis = SystemClock.uptimeMillis() - keystrokeTime;
+        lastKeystrokeTime = 0;
+        Log.i(TAG, "搜索 \"" + query + "\" 完成，按键到结果显示耗时 " + lastLatencyMillis + "ms");
+    }
+
+    private void start(String query) {
+        final long searchGeneration = generation;
+        final long keystrokeTime = lastKeystrokeTime;
+        final CancellationToken token = new CancellationToken(searchGeneration);
+
+        listener.onSearchStarted(query);
+
+        ExecutorManager.executeParallel(() -> {
+            List<City> results = null;
+            Exception error = null;
+            try {
+                results = searcher.search(query, requestTag, token);
+            } catch (Exception e) {
+                error = e;
+            }
+
+            final List<City> finalResults = results;
+            final Exception finalError = error;
+            ExecutorManager.executeOnMain(() -> {
+                // 已被新的查询取代，丢弃结果，避免乱序覆盖
+                if (searchGeneration != generation) {
+                    Log.d(TAG, "丢弃过期的搜索结果: " + query);
+                    return;
+                }
+
+                if (finalError != null) {
+                    listener.onSearchError(query, finalError);
+                    recordLatency(query, keystrokeTime);
+                } else {
+                    listener.onSearchResults(query, finalResults, () -> {
+                        if (searchGeneration == generation) {
+                            recordLatency(query, keystrokeTime);
+                        }
+                    });
+                }
+            });
+        }, PriorityTaskScheduler.Priority.INTERACTIVE, "CITY_SEARCH");
+    }
+}
@@ -0,0 +1,61 @@
+package com.microntek.weatherapp.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * 城市查看频率统计
+ * 每个城市保存一个随时间衰减的查看次数（半衰期7天），用于决定后台刷新的先后顺序
+ */
+public class CityViewTracker {
+    private static final String PREFS_NAME = "city_views";
+    private static final String KEY_PREFIX_SCORE = "score_";
+    private static final String KEY_PREFIX_TIME = "time_";
+
+    // 查看次数的半衰期
+    private static final long HALF_LIFE_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    private final SharedPreferences preferences;
+
+    public CityViewTracker(Context context) {
+        preferences = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * 记录一次城市查看
+     */
+    public void recordView(String cityId) {
+        if (cityId == null) return;
+
+        long now = System.currentTimeMillis();
+        float score = getViewScore(cityId, now) + 1f;
+        preferences.edit()
+                .putFloat(KEY_PREFIX_SCORE + cityId, score)
+                .putLong(KEY_PREFIX_TIME + cityId, now)
+                .apply();
+    }
+
+    /**
+     * 获取城市在指定时间的查看分数（衰减后的查看次数）
+     */
+    public float getViewScore(String cityId, long now) {
+        if (cityId == null) return 0f;
+
+        float score = preferences.getFloat(KEY_PREFIX_SCORE + cityId, 0f);
+        if (score == 0f) {
+            return 0f;
+        }
+        long elapsed = Math.max(0, now - preferences.getLong(KEY_PREFIX_TIME + cityId, now));
+        return (float) (score * Math.pow(0.5, (double) elapsed / HALF_LIFE_MILLIS));
+    }
+
+    /**
+     * 删除城市的查看记录
+     */
+    public void remove(String cityId) {
+        preferences.edit()
+                .remove(KEY_PREFIX_SCORE + cityId)
+                .remove(KEY_PREFIX_TIME + cityId)
+                .apply();
+    }
+}
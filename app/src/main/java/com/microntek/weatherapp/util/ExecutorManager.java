@@ -4,13 +4,19 @@ import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
+import com.microntek.weatherapp.util.PriorityTaskScheduler.Priority;
+
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 统一的线程执行器管理类
  * 用于管理应用中所有的异步任务执行
+ * 页面和服务不应自行创建执行器，而是通过 {@link TaskGroup} 提交任务，以便随生命周期取消
  */
 public class ExecutorManager {
     private static final String TAG = "ExecutorManager";
@@ -18,19 +24,47 @@ public class ExecutorManager {
     // 单线程执行器，用于顺序执行任务
     private static ExecutorService singleThreadExecutor;
     
-    // 有限线程池，用于并行执行任务
-    private static ExecutorService threadPoolExecutor;
+    // 并行线程数
+    private static final int PARALLEL_THREAD_COUNT = 3;
+    
+    // 带优先级通道的有限线程池，用于并行执行任务
+    private static PriorityTaskScheduler threadPoolExecutor;
     
     // 主线程Handler
     private static Handler mainHandler;
     
+    // 由本类创建且仍存活的线程数
+    private static final AtomicInteger liveThreads = new AtomicInteger(0);
+    
+    // 执行器运行指标，执行器重建后继续累计
+    private static final ExecutorMetrics serialMetrics = new ExecutorMetrics("serial");
+    private static final ExecutorMetrics parallelMetrics = new ExecutorMetrics("parallel");
+    
+    // 单线程执行器中等待执行的任务数
+    private static final AtomicInteger serialQueueDepth = new AtomicInteger(0);
+    
+    /**
+     * 创建带名称并统计存活数量的线程
+     */
+    private static ThreadFactory countingThreadFactory(String prefix) {
+        AtomicInteger index = new AtomicInteger(0);
+        return runnable -> new Thread(() -> {
+            liveThreads.incrementAndGet();
+            try {
+                runnable.run();
+            } finally {
+                liveThreads.decrementAndGet();
+            }
+        }, prefix + "-" + index.incrementAndGet());
+    }
+    
     /**
      * 获取单线程执行器
      * 用于需要顺序执行的任务，比如文件操作、数据库操作等
      */
     public static synchronized ExecutorService getSingleThreadExecutor() {
         if (singleThreadExecutor == null || singleThreadExecutor.isShutdown()) {
-            singleThreadExecutor = Executors.newSingleThreadExecutor();
+            singleThreadExecutor = Executors.newSingleThreadExecutor(countingThreadFactory("weather-serial"));
         }
         return singleThreadExecutor;
     }
@@ -38,11 +72,13 @@ public class ExecutorManager {
     /**
      * 获取线程池执行器
      * 用于可以并行执行的任务，比如网络请求、图片加载等
+     * 直接调用execute时任务按VISIBLE优先级调度
      */
-    public static synchronized ExecutorService getThreadPoolExecutor() {
+    public static synchronized PriorityTaskScheduler getThreadPoolExecutor() {
         if (threadPoolExecutor == null || threadPoolExecutor.isShutdown()) {
             // 使用固定大小的线程池，避免无限增长
-            threadPoolExecutor = Executors.newFixedThreadPool(3);
+            threadPoolExecutor = new PriorityTaskScheduler(PARALLEL_THREAD_COUNT,
+                    countingThreadFactory("weather-worker"), parallelMetrics);
         }
         return threadPoolExecutor;
     }
@@ -61,14 +97,69 @@ public class ExecutorManager {
      * 在单线程执行器上执行任务
      */
     public static void executeSingle(Runnable task) {
-        getSingleThreadExecutor().execute(task);
+        executeSingle(task, null);
     }
     
     /**
-     * 在线程池上执行任务
+     * 在单线程执行器上执行任务，并按标签统计等待和运行时间
+     * @param tag 任务标签，如TaskManager的任务ID或提交任务的页面名称
+     */
+    public static void executeSingle(Runnable task, String tag) {
+        final int tagIndex = serialMetrics.tagIndex(tag);
+        final long enqueueNanos = ExecutorMetrics.now();
+        serialMetrics.recordQueueDepth(serialQueueDepth.incrementAndGet());
+        try {
+            getSingleThreadExecutor().execute(() -> {
+                serialMetrics.recordQueueDepth(serialQueueDepth.decrementAndGet());
+                long startNanos = ExecutorMetrics.now();
+                try {
+                    task.run();
+                } finally {
+                    serialMetrics.recordTask(tagIndex, Priority.VISIBLE.ordinal(), startNanos,
+                            startNanos - enqueueNanos, ExecutorMetrics.now() - startNanos);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            serialMetrics.recordQueueDepth(serialQueueDepth.decrementAndGet());
+            serialMetrics.recordRejection(tagIndex);
+            throw e;
+        }
+    }
+    
+    /**
+     * 在线程池上按VISIBLE优先级执行任务
      */
     public static void executeParallel(Runnable task) {
-        getThreadPoolExecutor().execute(task);
+        executeParallel(task, Priority.VISIBLE);
+    }
+    
+    /**
+     * 在线程池上按指定优先级执行任务
+     */
+    public static void executeParallel(Runnable task, Priority priority) {
+        executeParallel(task, priority, null);
+    }
+    
+    /**
+     * 在线程池上按指定优先级执行任务，并按标签统计等待和运行时间
+     * @param tag 任务标签，如TaskManager的任务ID或提交任务的页面名称
+     */
+    public static void executeParallel(Runnable task, Priority priority, String tag) {
+        getThreadPoolExecutor().execute(task, priority, tag);
+    }
+    
+    /**
+     * 暂停后台通道，界面加载开始时调用，必须与 {@link #resumeBackgroundWork()} 成对调用
+     */
+    public static void pauseBackgroundWork() {
+        getThreadPoolExecutor().pauseBackground();
+    }
+    
+    /**
+     * 恢复后台通道，界面加载结束时调用
+     */
+    public static void resumeBackgroundWork() {
+        getThreadPoolExecutor().resumeBackground();
     }
     
     /**
@@ -89,9 +180,40 @@ public class ExecutorManager {
         getMainHandler().postDelayed(task, delayMillis);
     }
     
+    /**
+     * 导出所有执行器的运行指标（CSV文本），用于分析界面慢是网络耗时还是排队等待
+     */
+    public static String exportMetrics() {
+        return parallelMetrics.export() + serialMetrics.export();
+    }
+    
+    /**
+     * 把运行指标输出到日志
+     */
+    public static void logMetrics() {
+        for (String line : exportMetrics().split("\n")) {
+            Log.i(TAG, line);
+        }
+    }
+    
+    /**
+     * 清空运行指标
+     */
+    public static void resetMetrics() {
+        parallelMetrics.reset();
+        serialMetrics.reset();
+    }
+    
+    /**
+     * 获取由ExecutorManager创建且仍存活的线程数
+     */
+    public static int getLiveThreadCount() {
+        return liveThreads.get();
+    }
+    
     /**
      * 关闭所有执行器
-     * 应在应用退出时调用
+     * 执行器由整个应用共享，只应在应用退出时调用，页面销毁时应使用 {@link TaskGroup#cancelAll()}
      */
     public static void shutdownAll() {
         shutdownExecutor(singleThreadExecutor, "单线程执行器");
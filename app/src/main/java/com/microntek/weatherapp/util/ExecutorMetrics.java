@@ -0,0 +1,249 @@
+package com.microntek.weatherapp.util;
+
+import android.os.SystemClock;
+
+import java.util.HashMap;
+
+/**
+ * 执行器运行指标
+ * 按任务标签统计排队等待时间、运行时间和拒绝次数，并记录队列深度变化
+ * 所有数据保存在固定大小的环形缓冲区和基本类型数组中，记录时不分配对象
+ */
+public class ExecutorMetrics {
+    // 最多区分的任务标签数，超出后归入OTHER_TAG
+    private static final int MAX_TAGS = 64;
+
+    // 原始标签到标签序号的映射上限，超出后每次重新归一化
+    private static final int MAX_TAG_ALIASES = 256;
+
+    // 最近任务记录和队列深度记录的容量
+    private static final int SAMPLE_CAPACITY = 512;
+    private static final int DEPTH_CAPACITY = 512;
+
+    private static final String OTHER_TAG = "other";
+    private static final String UNTAGGED = "untagged";
+
+    private final String name;
+
+    // 标签表
+    private final String[] tagNames = new String[MAX_TAGS];
+    private final HashMap<String, Integer> tagIndexes = new HashMap<>();
+    private int tagCount = 0;
+
+    // 按标签累计的统计
+    private final long[] taskCounts = new long[MAX_TAGS];
+    private final long[] totalWaitNanos = new long[MAX_TAGS];
+    private final long[] maxWaitNanos = new long[MAX_TAGS];
+    private final long[] totalRunNanos = new long[MAX_TAGS];
+    private final long[] maxRunNanos = new long[MAX_TAGS];
+    private final long[] rejections = new long[MAX_TAGS];
+
+    // 最近任务的环形缓冲区
+    private final int[] sampleTags = new int[SAMPLE_CAPACITY];
+    private final int[] samplePriorities = new int[SAMPLE_CAPACITY];
+    private final long[] sampleStartNanos = new long[SAMPLE_CAPACITY];
+    private final long[] sampleWaitNanos = new long[SAMPLE_CAPACITY];
+    private final long[] sampleRunNanos = new long[SAMPLE_CAPACITY];
+    private long samplesWritten = 0;
+
+    // 队列深度的环形缓冲区
+    private final long[] depthTimeNanos = new long[DEPTH_CAPACITY];
+    private final int[] depthValues = new int[DEPTH_CAPACITY];
+    private long depthsWritten = 0;
+    private int maxDepth = 0;
+
+    public ExecutorMetrics(String name) {
+        this.name = name;
+        registerTag(OTHER_TAG);
+    }
+
+    /**
+     * 当前时间，所有耗时都以此为基准
+     */
+    public static long now() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * 获取任务标签的序号
+     * 标签中的城市ID等参数部分（第一个':'、'|'或数字之后）会被去掉，避免标签数量无限增长
+     */
+    public synchronized int tagIndex(String tag) {
+        if (tag == null) {
+            tag = UNTAGGED;
+        }
+        Integer alias = tagIndexes.get(tag);
+        if (alias != null) {
+            return alias;
+        }
+
+        // 超出映射上限后，未见过的标签每次都会走到这里，只扫描字符查找已有标签，不截取子串
+        int length = normalizedLength(tag);
+        int index;
+        if (length == 0) {
+            index = 0;
+        } else {
+            index = findTag(tag, length);
+            if (index < 0) {
+                index = tagCount < MAX_TAGS ? registerTag(tag.substring(0, length)) : 0;
+            }
+        }
+        if (tagIndexes.size() < MAX_TAG_ALIASES) {
+            tagIndexes.put(tag, index);
+        }
+        return index;
+    }
+
+    /**
+     * 记录一次任务执行
+     * @param tagIndex 标签序号
+     * @param priority 优先级序号
+     * @param startNanos 开始执行的时间
+     * @param waitNanos 入队到开始执行的等待时间
+     * @param runNanos 运行时间
+     */
+    public synchronized void recordTask(int tagIndex, int priority, long startNanos,
+                                        long waitNanos, long runNanos) {
+        taskCounts[tagIndex]++;
+        totalWaitNanos[tagIndex] += waitNanos;
+        totalRunNanos[tagIndex] += runNanos;
+        if (waitNanos > maxWaitNanos[tagIndex]) {
+            maxWaitNanos[tagIndex] = waitNanos;
+        }
+        if (runNanos > maxRunNanos[tagIndex]) {
+            maxRunNanos[tagIndex] = runNanos;
+        }
+
+        int slot = (int) (samplesWritten % SAMPLE_CAPACITY);
+        sampleTags[slot] = tagIndex;
+        samplePriorities[slot] = priority;
+        sampleStartNanos[slot] = startNanos;
+        sampleWaitNanos[slot] = waitNanos;
+        sampleRunNanos[slot] = runNanos;
+        samplesWritten++;
+    }
+
+    /**
+     * 记录一次任务被拒绝
+     */
+    public synchronized void recordRejection(int tagIndex) {
+        rejections[tagIndex]++;
+    }
+
+    /**
+     * 记录当前队列深度
+     */
+    public synchronized void recordQueueDepth(int depth) {
+        int slot = (int) (depthsWritten % DEPTH_CAPACITY);
+        depthTimeNanos[slot] = now();
+        depthValues[slot] = depth;
+        depthsWritten++;
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+    }
+
+    /**
+     * 清空所有统计，标签表保留
+     */
+    public synchronized void reset() {
+        for (int i = 0; i < MAX_TAGS; i++) {
+            taskCounts[i] = 0;
+            totalWaitNanos[i] = 0;
+            maxWaitNanos[i] = 0;
+            totalRunNanos[i] = 0;
+            maxRunNanos[i] = 0;
+            rejections[i] = 0;
+        }
+        samplesWritten = 0;
+        depthsWritten = 0;
+        maxDepth = 0;
+    }
+
+    /**
+     * 导出为CSV文本，包含按标签汇总、最近任务和队列深度三部分
+     * 时间单位为微秒，时间点相对于导出时刻（负数表示导出前）
+     */
+    public synchronized String export() {
+        long exportTime = now();
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("# executor=").append(name).append(", max_queue_depth=").append(maxDepth).append('\n');
+        sb.append("tag,count,avg_wait_us,max_wait_us,avg_run_us,max_run_us,rejections\n");
+        for (int i = 0; i < tagCount; i++) {
+            if (taskCounts[i] == 0 && rejections[i] == 0) {
+                continue;
+            }
+            long count = taskCounts[i];
+            sb.append(tagNames[i]).append(',')
+                    .append(count).append(',')
+                    .append(count > 0 ? totalWaitNanos[i] / count / 1000 : 0).append(',')
+                    .append(maxWaitNanos[i] / 1000).append(',')
+                    .append(count > 0 ? totalRunNanos[i] / count / 1000 : 0).append(',')
+                    .append(maxRunNanos[i] / 1000).append(',')
+                    .append(rejections[i]).append('\n');
+        }
+
+        sb.append("# recent tasks\n");
+        sb.append("start_us,tag,priority,wait_us,run_us\n");
+        long sampleCount = Math.min(samplesWritten, SAMPLE_CAPACITY);
+        for (long n = samplesWritten - sampleCount; n < samplesWritten; n++) {
+            int slot = (int) (n % SAMPLE_CAPACITY);
+            sb.append((sampleStartNanos[slot] - exportTime) / 1000).append(',')
+                    .append(tagNames[sampleTags[slot]]).append(',')
+                    .append(samplePriorities[slot]).append(',')
+                    .append(sampleWaitNanos[slot] / 1000).append(',')
+                    .append(sampleRunNanos[slot] / 1000).append('\n');
+        }
+
+        sb.append("# queue depth\n");
+        sb.append("time_us,depth\n");
+        long depthCount = Math.min(depthsWritten, DEPTH_CAPACITY);
+        for (long n = depthsWritten - depthCount; n < depthsWritten; n++) {
+            int slot = (int) (n % DEPTH_CAPACITY);
+            sb.append((depthTimeNanos[slot] - exportTime) / 1000).append(',')
+                    .append(depthValues[slot]).append('\n');
+        }
+
+        return sb.toString();
+    }
+
+    private int registerTag(String tag) {
+        int index = tagCount++;
+        tagNames[index] = tag;
+        tagIndexes.put(tag, index);
+        return index;
+    }
+
+    /**
+     * 在已登记的标签中查找与tag前length个字符相同的标签
+     * @return 标签序号；没有找到时返回-1
+     */
+    private int findTag(String tag, int length) {
+        for (int i = 0; i < tagCount; i++) {
+            String name = tagNames[i];
+            if (name.length() == length && tag.regionMatches(0, name, 0, length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 标签去掉参数部分后的长度
+     * @return 参数前的字符数；标签以参数开头时返回0，归入OTHER_TAG
+     */
+    private static int normalizedLength(String tag) {
+        for (int i = 0; i < tag.length(); i++) {
+            char c = tag.charAt(i);
+            if (c == ':' || c == '|' || (c >= '0' && c <= '9')) {
+                int end = i;
+                while (end > 0 && (tag.charAt(end - 1) == '_' || tag.charAt(end - 1) == '-')) {
+                    end--;
+                }
+                return end;
+            }
+        }
+        return tag.length();
+    }
+}
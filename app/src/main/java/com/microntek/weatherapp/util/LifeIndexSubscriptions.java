@@ -0,0 +1,47 @@
+package com.microntek.weatherapp.util;
+
+import com.microntek.weatherapp.model.LifeIndexType;
+
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 生活指数订阅
+ * 只有界面等使用方订阅后，天气刷新才会请求生活指数，且只请求各订阅方需要的类型的并集
+ */
+public final class LifeIndexSubscriptions {
+    private static final Map<Object, Set<LifeIndexType>> subscriptions = new IdentityHashMap<>();
+
+    private LifeIndexSubscriptions() {
+    }
+
+    /**
+     * 订阅生活指数，同一订阅方再次订阅时替换需要的类型
+     * @param owner 订阅方，如Activity
+     * @param types 需要的指数类型
+     */
+    public static synchronized void subscribe(Object owner, Set<LifeIndexType> types) {
+        subscriptions.put(owner, EnumSet.copyOf(types));
+    }
+
+    /**
+     * 取消订阅，订阅方不再显示生活指数时调用
+     */
+    public static synchronized void unsubscribe(Object owner) {
+        subscriptions.remove(owner);
+    }
+
+    /**
+     * 当前所有订阅方需要的指数类型
+     * @return 类型集合的副本；没有订阅方时为空
+     */
+    public static synchronized Set<LifeIndexType> getRequestedTypes() {
+        EnumSet<LifeIndexType> types = EnumSet.noneOf(LifeIndexType.class);
+        for (Set<LifeIndexType> subscribed : subscriptions.values()) {
+            types.addAll(subscribed);
+        }
+        return types;
+    }
+}
@@ -10,6 +10,9 @@ import android.net.NetworkInfo;
 import android.os.Build;
 import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * 网络状态监控工具类
  * 使用现代的NetworkCallback API监控网络状态变化
@@ -24,8 +27,13 @@ public class NetworkMonitor {
     private final ConnectivityManager connectivityManager;
     private final NetworkCallback networkCallback;
     private boolean isNetworkAvailable = false;
+    // 当前网络是否已通过系统验证（确认可以访问互联网）
+    private volatile boolean isNetworkValidated = false;
     private NetworkMonitorCallback callback;
     
+    // 等待网络验证通过后执行的任务
+    private final List<Runnable> validatedTasks = new ArrayList<>();
+    
     // 单例模式
     private static NetworkMonitor instance;
     
@@ -57,6 +65,7 @@ public class NetworkMonitor {
         
         // 初始化时检查一次网络状态
         isNetworkAvailable = isNetworkAvailable();
+        isNetworkValidated = checkNetworkValidated();
         Log.i(TAG, "初始化网络监控，当前网络状态：" + (isNetworkAvailable ? "可用" : "不可用"));
     }
     
@@ -123,6 +132,61 @@ public class NetworkMonitor {
         }
     }
     
+    /**
+     * 当前网络是否已通过系统验证
+     */
+    public boolean isNetworkValidated() {
+        return isNetworkValidated;
+    }
+    
+    /**
+     * 在网络验证通过后于主线程执行任务，当前已验证时立即投递
+     * 用于推迟启动时的首次网络请求，避免在网络就绪前请求失败
+     */
+    public void runWhenValidated(Runnable task) {
+        synchronized (validatedTasks) {
+            if (!isNetworkValidated) {
+                validatedTasks.add(task);
+                return;
+            }
+        }
+        ExecutorManager.executeOnMain(task);
+    }
+    
+    /**
+     * 取消尚未执行的等待任务
+     */
+    public void cancelWhenValidated(Runnable task) {
+        synchronized (validatedTasks) {
+            validatedTasks.remove(task);
+        }
+    }
+    
+    private boolean checkNetworkValidated() {
+        if (connectivityManager == null) return false;
+        NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(
+                connectivityManager.getActiveNetwork());
+        return capabilities != null
+                && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+    }
+    
+    private void onNetworkValidated() {
+        List<Runnable> tasks;
+        synchronized (validatedTasks) {
+            if (isNetworkValidated) {
+                return;
+            }
+            isNetworkValidated = true;
+            tasks = new ArrayList<>(validatedTasks);
+            validatedTasks.clear();
+        }
+        Log.i(TAG, "网络已通过验证，执行 " + tasks.size() + " 个等待中的任务");
+        BootMetrics.markNetworkValidated(context);
+        for (Runnable task : tasks) {
+            ExecutorManager.executeOnMain(task);
+        }
+    }
+    
     /**
      * 网络回调内部类
      */
@@ -148,10 +212,18 @@ public class NetworkMonitor {
             }
         }
         
+        @Override
+        public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+            if (capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED)) {
+                onNetworkValidated();
+            }
+        }
+        
         @Override
         public void onLost(Network network) {
             Log.i(TAG, "网络连接已断开");
             isNetworkAvailable = false;
+            isNetworkValidated = checkNetworkValidated();
         }
     }
 } 
\ No newline at end of file
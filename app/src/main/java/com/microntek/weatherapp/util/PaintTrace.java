@@ -0,0 +1,59 @@
+package com.microntek.weatherapp.util;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+
+/**
+ * 界面分区绘制耗时统计
+ * 从开始加载起计时，各区域绑定数据后在下一帧记录耗时；主要区域第一次绘制的耗时即首次有效绘制时间
+ * 所有方法须在主线程调用
+ */
+public final class PaintTrace {
+    private static final String TAG = "PaintTrace";
+
+    // 最近一次的首次有效绘制耗时，-1表示尚未记录
+    private static volatile long lastFirstMeaningfulPaintMillis = -1;
+
+    private final String name;
+    private final long startTime;
+    private boolean firstMeaningfulPaintRecorded = false;
+
+    public PaintTrace(String name) {
+        this.name = name;
+        this.startTime = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * 主要区域已绑定数据，下一帧绘制时记为首次有效绘制，只记录一次
+     * @param source 数据来源，如"缓存"、"网络"
+     */
+    public void markFirstMeaningfulPaint(String source) {
+        if (firstMeaningfulPaintRecorded) {
+            return;
+        }
+        firstMeaningfulPaintRecorded = true;
+        Choreographer.getInstance().postFrameCallback(frameTimeNanos -> {
+            long elapsed = SystemClock.elapsedRealtime() - startTime;
+            lastFirstMeaningfulPaintMillis = elapsed;
+            Log.i(TAG, name + " 首次有效绘制: " + elapsed + "ms（" + source + "）");
+        });
+    }
+
+    /**
+     * 其他区域已绑定数据，下一帧绘制时记录耗时
+     */
+    public void markSection(String section) {
+        Choreographer.getInstance().postFrameCallback(frameTimeNanos ->
+                Log.d(TAG, name + " " + section + " 绘制: "
+                        + (SystemClock.elapsedRealtime() - startTime) + "ms"));
+    }
+
+    /**
+     * 获取最近一次的首次有效绘制耗时
+     * @return 毫秒数；尚未记录时返回-1
+     */
+    public static long getLastFirstMeaningfulPaintMillis() {
+        return lastFirstMeaningfulPaintMillis;
+    }
+}
@@ -0,0 +1,264 @@
+package com.microntek.weatherapp.util;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+
+/**
+ * 城市拼音模糊匹配器
+ * 基于BK树实现，对城市拼音词表只构建一次，用于修正用户输入的拼音错误。
+ * 词表包含全部地级行政区和常见县级市，输入本身是词表中的城市时原样返回，不会被"修正"成相近的其他城市
+ */
+public class PinyinMatcher {
+    // 拼音长度不超过5时只允许1处编辑差异，更长时允许2处
+    private static final int SHORT_WORD_LENGTH = 5;
+    private static final int MAX_DISTANCE_SHORT = 1;
+    private static final int MAX_DISTANCE_LONG = 2;
+
+    // 超过该长度的输入不再尝试修正，保证查询时间有界
+    private static final int MAX_INPUT_LENGTH = 24;
+
+    // 常见城市拼音词表，按城市热度排序，距离相同时优先返回靠前的城市
+    private static final String[] CITY_PINYIN = {
+            "beijing", "shanghai", "guangzhou", "shenzhen", "tianjin", "chongqing",
+            "chengdu", "hangzhou", "wuhan", "xian", "nanjing", "suzhou",
+            "changsha", "zhengzhou", "dongguan", "qingdao", "shenyang", "ningbo",
+            "kunming", "hefei", "foshan", "wuxi", "xiamen", "fuzhou",
+            "jinan", "dalian", "harbin", "changchun", "shijiazhuang", "taiyuan",
+            "nanning", "guiyang", "nanchang", "lanzhou", "urumqi", "hohhot",
+            "yinchuan", "xining", "lhasa", "haikou", "sanya", "zhuhai",
+            "shantou", "zhongshan", "huizhou", "jiangmen", "zhanjiang", "shaoguan",
+            "wenzhou", "jiaxing", "shaoxing", "jinhua", "taizhou", "huzhou",
+            "changzhou", "nantong", "yangzhou", "xuzhou", "yancheng", "lianyungang",
+            "zhenjiang", "huaian", "yantai", "weifang", "linyi", "zibo",
+            "jining", "weihai", "rizhao", "tangshan", "baoding", "handan",
+            "langfang", "qinhuangdao", "zhangjiakou", "luoyang", "kaifeng", "xinxiang",
+            "nanyang", "anyang", "yichang", "xiangyang", "jingzhou", "shiyan",
+            "zhuzhou", "xiangtan", "hengyang", "yueyang", "changde", "zhangjiajie",
+            "ganzhou", "jiujiang", "jingdezhen", "quanzhou", "zhangzhou", "putian",
+            "wuhu", "bengbu", "anqing", "maanshan", "guilin", "liuzhou",
+            "beihai", "zunyi", "dali", "lijiang", "xishuangbanna", "mianyang",
+            "deyang", "yibin", "leshan", "luzhou", "baoji", "xianyang",
+            "yanan", "hanzhong", "datong", "jinzhong", "changzhi", "baotou",
+            "ordos", "chifeng", "anshan", "fushun", "dandong", "jinzhou",
+            "jilin", "siping", "daqing", "qiqihar", "mudanjiang", "jiamusi",
+            "tianshui", "jiuquan", "dunhuang", "karamay", "kashgar", "turpan",
+            "shigatse", "yulin", "dezhou", "liaocheng", "heze", "taian"
+    };
+
+    // 其余地级行政区及常见县级市的拼音，排在热门城市之后；与热门城市重复的词条只保留一个
+    private static final String[] OTHER_CITY_PINYIN = {
+            // 华北
+            "xingtai", "chengde", "cangzhou", "hengshui", "yangquan", "jincheng",
+            "shuozhou", "yuncheng", "xinzhou", "linfen", "lvliang", "wuhai",
+            "tongliao", "hulunbuir", "bayannur", "ulanqab", "hinggan", "xilinhot",
+            // 东北
+            "benxi", "yingkou", "fuxin", "liaoyang", "panjin", "tieling",
+            "chaoyang", "huludao", "liaoyuan", "tonghua", "baishan", "songyuan",
+            "baicheng", "yanji", "jixi", "hegang", "shuangyashan", "yichun",
+            "qitaihe", "heihe", "suihua",
+            // 华东
+            "suqian", "quzhou", "zhoushan", "lishui", "huainan", "huaibei",
+            "tongling", "huangshan", "chuzhou", "fuyang", "luan", "bozhou",
+            "chizhou", "xuancheng", "sanming", "nanping", "longyan", "ningde",
+            "pingxiang", "xinyu", "yingtan", "jian", "shangrao", "zaozhuang",
+            "dongying", "binzhou",
+            // 华中
+            "pingdingshan", "hebi", "jiaozuo", "puyang", "xuchang", "luohe",
+            "sanmenxia", "shangqiu", "xinyang", "zhoukou", "zhumadian", "jiyuan",
+            "huangshi", "ezhou", "jingmen", "xiaogan", "huanggang", "xianning",
+            "suizhou", "enshi", "xiantao", "qianjiang", "tianmen", "shaoyang",
+            "yiyang", "chenzhou", "yongzhou", "huaihua", "loudi", "jishou",
+            // 华南
+            "maoming", "zhaoqing", "meizhou", "shanwei", "heyuan", "yangjiang",
+            "qingyuan", "chaozhou", "jieyang", "yunfu", "wuzhou", "fangchenggang",
+            "qinzhou", "guigang", "baise", "hezhou", "hechi", "laibin",
+            "chongzuo", "sansha", "danzhou", "wanning", "qionghai",
+            // 西南
+            "zigong", "panzhihua", "guangyuan", "suining", "neijiang", "nanchong",
+            "meishan", "guangan", "dazhou", "yaan", "bazhong", "ziyang",
+            "xichang", "kangding", "maerkang", "liupanshui", "anshun", "bijie",
+            "tongren", "kaili", "duyun", "xingyi", "qujing", "yuxi",
+            "baoshan", "zhaotong", "puer", "lincang", "chuxiong", "mengzi",
+            "wenshan", "jinghong", "mangshi", "lushui", "shangrila", "qamdo",
+            "nyingchi", "shannan", "nagqu", "ngari",
+            // 西北
+            "tongchuan", "weinan", "ankang", "shangluo", "jiayuguan", "jinchang",
+            "baiyin", "wuwei", "zhangye", "pingliang", "qingyang", "dingxi",
+            "longnan", "linxia", "hezuo", "haidong", "golmud", "delingha",
+            "yushu", "shizuishan", "wuzhong", "guyuan", "zhongwei", "hami",
+            "changji", "bole", "korla", "aksu", "artux", "hotan",
+            "yining", "tacheng", "altay", "shihezi",
+            // 港澳台
+            "xianggang", "hongkong", "aomen", "macau", "taibei",
+            // 常见县级市
+            "yiwu", "wuyi", "wuyishan", "kunshan", "jiangyin", "changshu",
+            "zhangjiagang", "cixi", "yuyao", "jinjiang", "shishi", "qufu",
+            "shouguang", "emeishan", "dujiangyan", "yangshuo"
+    };
+
+    private static volatile PinyinMatcher instance;
+
+    private final Node root;
+
+    /**
+     * BK树节点，子节点按与父节点的编辑距离索引
+     */
+    private static final class Node {
+        final String word;
+        final int rank;
+        Node[] children;
+
+        Node(String word, int rank) {
+            this.word = word;
+            this.rank = rank;
+        }
+
+        Node child(int distance) {
+            return (children != null && distance < children.length) ? children[distance] : null;
+        }
+
+        void putChild(int distance, Node node) {
+            if (children == null || distance >= children.length) {
+                Node[] grown = new Node[Math.max(distance + 1, 8)];
+                if (children != null) {
+                    System.arraycopy(children, 0, grown, 0, children.length);
+                }
+                children = grown;
+            }
+            children[distance] = node;
+        }
+    }
+
+    private PinyinMatcher(String[] vocabulary) {
+        Node rootNode = null;
+        for (int i = 0; i < vocabulary.length; i++) {
+            String word = vocabulary[i];
+            if (rootNode == null) {
+                rootNode = new Node(word, i);
+                continue;
+            }
+            Node current = rootNode;
+            while (true) {
+                int distance = editDistance(word, current.word);
+                if (distance == 0) {
+                    break; // 重复词条
+                }
+                Node next = current.child(distance);
+                if (next == null) {
+                    current.putChild(distance, new Node(word, i));
+                    break;
+                }
+                current = next;
+            }
+        }
+        root = rootNode;
+    }
+
+    /**
+     * 获取共享的匹配器实例，首次调用时构建BK树
+     */
+    public static PinyinMatcher getInstance() {
+        if (instance == null) {
+            synchronized (PinyinMatcher.class) {
+                if (instance == null) {
+                    String[] vocabulary = new String[CITY_PINYIN.length + OTHER_CITY_PINYIN.length];
+                    System.arraycopy(CITY_PINYIN, 0, vocabulary, 0, CITY_PINYIN.length);
+                    System.arraycopy(OTHER_CITY_PINYIN, 0, vocabulary, CITY_PINYIN.length, OTHER_CITY_PINYIN.length);
+                    instance = new PinyinMatcher(vocabulary);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 修正城市拼音输入
+     * 只处理纯字母输入；中文、城市ID或经纬度原样返回
+     * @param input 用户输入
+     * @return 修正后的拼音；输入本身是词表中的城市或找不到足够接近的城市时原样返回输入
+     */
+    public String correct(String input) {
+        if (input == null || root == null) {
+            return input;
+        }
+
+        String query = input.trim().toLowerCase(Locale.ROOT);
+        if (query.isEmpty() || query.length() > MAX_INPUT_LENGTH || !isAsciiLetters(query)) {
+            return input;
+        }
+
+        int maxDistance = query.length() <= SHORT_WORD_LENGTH ? MAX_DISTANCE_SHORT : MAX_DISTANCE_LONG;
+
+        Node best = null;
+        int bestDistance = maxDistance + 1;
+
+        ArrayDeque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = editDistance(query, node.word);
+            if (distance == 0) {
+                return input; // 精确命中，原样查询
+            }
+            if (distance < bestDistance || (distance == bestDistance && best != null && node.rank < best.rank)) {
+                best = node;
+                bestDistance = distance;
+            }
+            if (node.children == null) {
+                continue;
+            }
+            // 三角不等式：只有距离落在 [d - max, d + max] 的子树可能包含结果
+            int low = Math.max(1, distance - maxDistance);
+            int high = Math.min(node.children.length - 1, distance + maxDistance);
+            for (int d = low; d <= high; d++) {
+                Node child = node.children[d];
+                if (child != null) {
+                    pending.push(child);
+                }
+            }
+        }
+
+        if (best != null && bestDistance <= maxDistance) {
+            return best.word;
+        }
+        return input;
+    }
+
+    private static boolean isAsciiLetters(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 'a' || c > 'z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 计算两个字符串的编辑距离（Levenshtein）
+     * BK树剪枝依赖精确距离，因此不做提前截断；输入长度已由MAX_INPUT_LENGTH限制
+     */
+    static int editDistance(String a, String b) {
+        int n = a.length();
+        int m = b.length();
+
+        int[] prev = new int[m + 1];
+        int[] curr = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            prev[j] = j;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            curr[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                curr[j] = Math.min(Math.min(curr[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+            }
+            int[] tmp = prev;
+            prev = curr;
+            curr = tmp;
+        }
+        return prev[m];
+    }
+}
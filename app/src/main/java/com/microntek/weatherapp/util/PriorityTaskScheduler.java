@@ -0,0 +1,361 @@
+package com.microntek.weatherapp.util;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带优先级通道的任务调度器
+ * 按优先级通道分发任务，低优先级任务随等待时间逐步提升优先级（老化），避免饿死；
+ * 界面加载期间可暂停后台通道
+ */
+public class PriorityTaskScheduler extends AbstractExecutorService {
+    private static final String TAG = "PriorityTaskScheduler";
+
+    // 任务每等待该时长，有效优先级提升一级
+    private static final long AGING_STEP_MILLIS = 2000;
+
+    // 后台通道最长暂停时间，防止调用方忘记恢复导致后台任务永久挂起
+    private static final long MAX_PAUSE_MILLIS = 15000;
+
+    /**
+     * 任务优先级通道，按声明顺序从高到低
+     */
+    public enum Priority {
+        INTERACTIVE,   // 用户直接触发并等待结果的操作，如下拉刷新、搜索
+        VISIBLE,       // 当前界面可见数据的加载
+        BACKGROUND,    // 预加载等后台任务
+        MAINTENANCE;   // 缓存校验、备份等维护任务
+
+        /**
+         * 该通道是否会在界面加载期间暂停
+         */
+        boolean isPausable() {
+            return this == BACKGROUND || this == MAINTENANCE;
+        }
+    }
+
+    /**
+     * 排队中的任务
+     */
+    private static final class QueuedTask {
+        final Runnable runnable;
+        final Priority priority;
+        final long enqueueTime;
+        final int tagIndex;
+        final long enqueueNanos;
+
+        QueuedTask(Runnable runnable, Priority priority, long enqueueTime, int tagIndex, long enqueueNanos) {
+            this.runnable = runnable;
+            this.priority = priority;
+            this.enqueueTime = enqueueTime;
+            this.tagIndex = tagIndex;
+            this.enqueueNanos = enqueueNanos;
+        }
+    }
+
+    private final Object lock = new Object();
+    private final ArrayDeque<QueuedTask>[] lanes;
+    private final Thread[] workers;
+    private final ExecutorMetrics metrics;
+
+    private int queuedTasks;
+    private int liveWorkers;
+    private int runningTasks;
+    private boolean shutdown;
+    private boolean terminated;
+
+    // 后台通道暂停计数，支持嵌套暂停
+    private int pauseCount;
+    private long pauseDeadline;
+
+    public PriorityTaskScheduler(String name, int threadCount) {
+        this(threadCount, runnable -> new Thread(runnable, name), new ExecutorMetrics(name));
+    }
+
+    @SuppressWarnings("unchecked")
+    public PriorityTaskScheduler(int threadCount, ThreadFactory threadFactory, ExecutorMetrics metrics) {
+        this.metrics = metrics;
+        Priority[] priorities = Priority.values();
+        lanes = new ArrayDeque[priorities.length];
+        for (int i = 0; i < priorities.length; i++) {
+            lanes[i] = new ArrayDeque<>();
+        }
+
+        workers = new Thread[threadCount];
+        liveWorkers = threadCount;
+        for (int i = 0; i < threadCount; i++) {
+            workers[i] = threadFactory.newThread(this::workerLoop);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * 以VISIBLE优先级执行任务
+     */
+    @Override
+    public void execute(Runnable command) {
+        execute(command, Priority.VISIBLE);
+    }
+
+    /**
+     * 以指定优先级执行任务
+     */
+    public void execute(Runnable command, Priority priority) {
+        execute(command, priority, null);
+    }
+
+    /**
+     * 以指定优先级执行任务，并按标签统计等待和运行时间
+     * @param tag 任务标签，如TaskManager的任务ID或提交任务的页面名称
+     */
+    public void execute(Runnable command, Priority priority, String tag) {
+        if (command == null || priority == null) {
+            throw new NullPointerException();
+        }
+        int tagIndex = metrics.tagIndex(tag);
+        synchronized (lock) {
+            if (shutdown) {
+                metrics.recordRejection(tagIndex);
+                throw new RejectedExecutionException("调度器已关闭");
+            }
+            lanes[priority.ordinal()].addLast(new QueuedTask(command, priority,
+                    SystemClock.uptimeMillis(), tagIndex, ExecutorMetrics.now()));
+            queuedTasks++;
+            metrics.recordQueueDepth(queuedTasks);
+            lock.notify();
+        }
+    }
+
+    /**
+     * 以指定优先级提交任务
+     */
+    public Future<?> submit(Runnable task, Priority priority) {
+        RunnableFuture<Void> future = newTaskFor(task, null);
+        execute(future, priority);
+        return future;
+    }
+
+    /**
+     * 暂停后台通道（BACKGROUND、MAINTENANCE），必须与 {@link #resumeBackground()} 成对调用
+     * 暂停最长持续 MAX_PAUSE_MILLIS，超时后自动恢复
+     */
+    public void pauseBackground() {
+        synchronized (lock) {
+            pauseCount++;
+            pauseDeadline = SystemClock.uptimeMillis() + MAX_PAUSE_MILLIS;
+        }
+    }
+
+    /**
+     * 恢复后台通道
+     */
+    public void resumeBackground() {
+        synchronized (lock) {
+            if (pauseCount > 0) {
+                pauseCount--;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * 获取运行指标
+     */
+    public ExecutorMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 获取指定通道的排队任务数
+     */
+    public int getQueueSize(Priority priority) {
+        synchronized (lock) {
+            return lanes[priority.ordinal()].size();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = new ArrayList<>();
+        synchronized (lock) {
+            shutdown = true;
+            for (ArrayDeque<QueuedTask> lane : lanes) {
+                for (QueuedTask task : lane) {
+                    pending.add(task.runnable);
+                }
+                lane.clear();
+            }
+            queuedTasks = 0;
+            metrics.recordQueueDepth(0);
+            lock.notifyAll();
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        synchronized (lock) {
+            return shutdown;
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        synchronized (lock) {
+            return terminated;
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = SystemClock.uptimeMillis() + unit.toMillis(timeout);
+        synchronized (lock) {
+            while (!terminated) {
+                long remaining = deadline - SystemClock.uptimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                lock.wait(remaining);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 工作线程主循环
+     */
+    private void workerLoop() {
+        try {
+            while (true) {
+                QueuedTask task;
+                synchronized (lock) {
+                    while (true) {
+                        long now = SystemClock.uptimeMillis();
+                        task = pollNextLocked(now);
+                        if (task != null) {
+                            break;
+                        }
+                        if (shutdown && isEmptyLocked()) {
+                            return;
+                        }
+                        try {
+                            // 后台通道暂停且有任务等待时，最多等到暂停到期
+                            lock.wait(isPausedLocked(now) ? Math.max(1, pauseDeadline - now) : 0);
+                        } catch (InterruptedException e) {
+                            if (shutdown) {
+                                return;
+                            }
+                        }
+                    }
+                    runningTasks++;
+                }
+
+                runTask(task);
+
+                synchronized (lock) {
+                    runningTasks--;
+                }
+            }
+        } finally {
+            synchronized (lock) {
+                liveWorkers--;
+                if (liveWorkers == 0) {
+                    terminated = true;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void runTask(QueuedTask task) {
+        // 后台通道任务使用后台线程优先级，避免与界面线程争抢CPU
+        try {
+            Process.setThreadPriority(task.priority.isPausable()
+                    ? Process.THREAD_PRIORITY_BACKGROUND
+                    : Process.THREAD_PRIORITY_DEFAULT);
+        } catch (Exception e) {
+            Log.w(TAG, "设置线程优先级失败: " + e.getMessage());
+        }
+
+        long startNanos = ExecutorMetrics.now();
+        try {
+            task.runnable.run();
+        } catch (Throwable t) {
+            // 包括OutOfMemoryError、StackOverflowError等错误，否则工作线程会退出且不会补充，线程池逐渐萎缩
+            Log.e(TAG, "任务执行出错", t);
+        } finally {
+            // 清除任务遗留的中断状态，避免影响后续任务
+            Thread.interrupted();
+            metrics.recordTask(task.tagIndex, task.priority.ordinal(), startNanos,
+                    startNanos - task.enqueueNanos, ExecutorMetrics.now() - startNanos);
+        }
+    }
+
+    /**
+     * 选出下一个要执行的任务
+     * 比较各通道队首任务的有效优先级（通道序号减去老化提升），取最小者；相同则取高优先级通道
+     */
+    private QueuedTask pollNextLocked(long now) {
+        boolean paused = isPausedLocked(now);
+        int bestLane = -1;
+        long bestRank = Long.MAX_VALUE;
+
+        for (int i = 0; i < lanes.length; i++) {
+            QueuedTask head = lanes[i].peekFirst();
+            if (head == null || (paused && head.priority.isPausable())) {
+                continue;
+            }
+            long rank = i - (now - head.enqueueTime) / AGING_STEP_MILLIS;
+            if (rank < bestRank) {
+                bestRank = rank;
+                bestLane = i;
+            }
+        }
+
+        if (bestLane < 0) {
+            return null;
+        }
+        queuedTasks--;
+        metrics.recordQueueDepth(queuedTasks);
+        return lanes[bestLane].pollFirst();
+    }
+
+    private boolean isPausedLocked(long now) {
+        if (pauseCount > 0 && now >= pauseDeadline) {
+            Log.w(TAG, "后台通道暂停超时，自动恢复");
+            pauseCount = 0;
+        }
+        return pauseCount > 0;
+    }
+
+    private boolean isEmptyLocked() {
+        for (ArrayDeque<QueuedTask> lane : lanes) {
+            if (!lane.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
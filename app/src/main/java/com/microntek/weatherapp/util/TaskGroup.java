@@ -0,0 +1,225 @@
+package com.microntek.weatherapp.util;
+
+import android.util.Log;
+
+import com.microntek.weatherapp.util.PriorityTaskScheduler.Priority;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 生命周期范围内的任务组
+ * Activity或Service持有一个任务组，所有后台任务通过它提交到ExecutorManager的共享执行器，
+ * 在onDestroy时调用 {@link #cancelAll()} 取消尚未完成的任务，并丢弃之后投递到主线程的回调。
+ * 删除缓存等破坏性或持久化的写入不应放入任务组，应直接提交到ExecutorManager，避免离开页面时被中途取消
+ */
+public class TaskGroup {
+    private static final String TAG = "TaskGroup";
+
+    // 所属任务组已取消但仍在运行的任务数（通常是无法中断的网络或IO操作）
+    private static final AtomicInteger orphanedTasks = new AtomicInteger(0);
+
+    private final String name;
+    private final Set<GroupTask> tasks = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private volatile boolean cancelled = false;
+
+    public TaskGroup(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 以VISIBLE优先级在共享线程池上执行任务
+     */
+    public Future<?> execute(Runnable task) {
+        return execute(task, Priority.VISIBLE);
+    }
+
+    /**
+     * 以指定优先级在共享线程池上执行任务
+     * @return 任务的Future；任务组已取消时返回null
+     */
+    public Future<?> execute(Runnable task, Priority priority) {
+        GroupTask groupTask = track(task, true);
+        if (groupTask != null) {
+            try {
+                ExecutorManager.executeParallel(groupTask, priority, name);
+            } catch (Exception e) {
+                tasks.remove(groupTask);
+                Log.e(TAG, name + " 提交任务失败: " + e.getMessage());
+                return null;
+            }
+        }
+        return groupTask;
+    }
+
+    /**
+     * 在共享的单线程执行器上顺序执行任务
+     * 取消时只丢弃排队中的任务，运行中的任务不会被中断，以免中断其他组件共用的顺序通道上的写入
+     * @return 任务的Future；任务组已取消时返回null
+     */
+    public Future<?> executeSingle(Runnable task) {
+        GroupTask groupTask = track(task, false);
+        if (groupTask != null) {
+            try {
+                ExecutorManager.executeSingle(groupTask, name);
+            } catch (Exception e) {
+                tasks.remove(groupTask);
+                Log.e(TAG, name + " 提交顺序任务失败: " + e.getMessage());
+                return null;
+            }
+        }
+        return groupTask;
+    }
+
+    /**
+     * 在主线程执行回调，任务组已取消时直接丢弃
+     */
+    public void post(Runnable uiTask) {
+        ExecutorManager.getMainHandler().post(() -> {
+            if (!cancelled) {
+                uiTask.run();
+            }
+        });
+    }
+
+    /**
+     * 在主线程延迟执行回调，任务组已取消时直接丢弃
+     */
+    public void postDelayed(Runnable uiTask, long delayMillis) {
+        ExecutorManager.getMainHandler().postDelayed(() -> {
+            if (!cancelled) {
+                uiTask.run();
+            }
+        }, delayMillis);
+    }
+
+    /**
+     * 任务组是否已取消，长任务可在步骤之间检查以便尽早退出
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 获取任务组中尚未结束的任务数
+     */
+    public int getActiveTaskCount() {
+        return tasks.size();
+    }
+
+    /**
+     * 取消任务组中的所有任务，应在onDestroy中调用
+     * 排队中的任务不会再执行；并行执行器上运行中的任务会被中断，顺序执行器上的任务运行完成，未能及时退出的计为孤儿任务
+     */
+    public void cancelAll() {
+        cancelled = true;
+
+        List<GroupTask> snapshot = new ArrayList<>(tasks);
+        tasks.clear();
+
+        int cancelledCount = 0;
+        int orphanedCount = 0;
+        for (GroupTask task : snapshot) {
+            if (task.markOrphanedIfRunning()) {
+                orphanedCount++;
+            }
+            if (task.cancel(task.interruptible)) {
+                cancelledCount++;
+            }
+        }
+
+        if (cancelledCount > 0 || orphanedCount > 0) {
+            Log.i(TAG, name + " 已取消 " + cancelledCount + " 个任务，其中 " + orphanedCount
+                    + " 个仍在运行；当前孤儿任务 " + getOrphanedTaskCount()
+                    + " 个，执行器线程 " + ExecutorManager.getLiveThreadCount() + " 个");
+        }
+    }
+
+    /**
+     * 获取全局孤儿任务数：所属任务组已取消但仍在运行的任务
+     */
+    public static int getOrphanedTaskCount() {
+        return orphanedTasks.get();
+    }
+
+    private GroupTask track(Runnable task, boolean interruptible) {
+        if (cancelled) {
+            Log.w(TAG, name + " 已取消，忽略新任务");
+            return null;
+        }
+        GroupTask groupTask = new GroupTask(task, interruptible);
+        tasks.add(groupTask);
+        return groupTask;
+    }
+
+    /**
+     * 任务组中的单个任务，记录运行状态以统计孤儿任务
+     */
+    private final class GroupTask extends FutureTask<Void> {
+        private static final int STATE_QUEUED = 0;
+        private static final int STATE_RUNNING = 1;
+        private static final int STATE_FINISHED = 2;
+
+        // 取消时是否中断运行中的任务
+        final boolean interruptible;
+        private int state = STATE_QUEUED;
+        private boolean orphaned = false;
+
+        GroupTask(Runnable runnable, boolean interruptible) {
+            super(runnable, null);
+            this.interruptible = interruptible;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (isCancelled()) {
+                    return;
+                }
+                state = STATE_RUNNING;
+            }
+            try {
+                super.run();
+            } finally {
+                synchronized (this) {
+                    state = STATE_FINISHED;
+                    if (orphaned) {
+                        orphanedTasks.decrementAndGet();
+                    }
+                }
+                tasks.remove(this);
+            }
+        }
+
+        synchronized boolean markOrphanedIfRunning() {
+            if (state == STATE_RUNNING && !orphaned) {
+                orphaned = true;
+                orphanedTasks.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                get();
+            } catch (ExecutionException e) {
+                Log.e(TAG, name + " 任务执行出错", e.getCause());
+            } catch (InterruptedException | CancellationException e) {
+                // 已结束的任务不会阻塞或取消
+            }
+        }
+    }
+}
@@ -1,13 +1,29 @@
 package com.microntek.weatherapp.util;
 
+import android.os.SystemClock;
 import android.util.Log;
 
+import com.microntek.weatherapp.util.PriorityTaskScheduler.Priority;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 任务状态管理类
  * 用于跟踪和管理异步任务的执行状态，防止重复执行
+ * 共享任务：相同任务ID的请求合并到同一次执行，所有订阅者共享结果
  */
 public class TaskManager {
     private static final String TAG = "TaskManager";
@@ -15,6 +31,17 @@ public class TaskManager {
     // 任务状态映射表
     private static final ConcurrentHashMap<String, AtomicBoolean> taskStates = new ConcurrentHashMap<>();
     
+    // 共享任务映射表，包括执行中的任务和结果仍在有效期内的已完成任务
+    private static final Map<String, SharedTask<?>> sharedTasks = new HashMap<>();
+    
+    /**
+     * 共享任务结果回调，在主线程调用
+     */
+    public interface TaskCallback<T> {
+        void onSuccess(T result);
+        void onError(String errorMessage);
+    }
+    
     /**
      * 检查是否可以执行指定任务
      * @param taskId 任务ID
@@ -55,7 +82,7 @@ public class TaskManager {
                     } finally {
                         completeTask(taskId);
                     }
-                });
+                }, taskId);
             } catch (Exception e) {
                 completeTask(taskId);
                 Log.e(TAG, "执行任务 " + taskId + " 时出错", e);
@@ -77,7 +104,7 @@ public class TaskManager {
                     } finally {
                         completeTask(taskId);
                     }
-                });
+                }, Priority.VISIBLE, taskId);
             } catch (Exception e) {
                 completeTask(taskId);
                 Log.e(TAG, "执行并行任务 " + taskId + " 时出错", e);
@@ -85,11 +112,239 @@ public class TaskManager {
         }
     }
     
+    /**
+     * 执行共享任务
+     * 相同任务ID已在执行时不再重复执行，而是加入该任务并在完成时收到相同结果；
+     * 任务成功完成后，结果在resultTtlMillis内再次请求可直接复用
+     * @param taskId 任务ID，应包含影响结果的全部参数
+     * @param task 要执行的任务
+     * @param resultTtlMillis 结果复用时长，0表示完成后不复用
+     * @param priority 调度优先级
+     * @param callback 结果回调，可为null
+     * @return 订阅对象，调用方不再需要结果时应调用 {@link Subscription#detach()}
+     */
+    public static <T> Subscription<T> executeShared(String taskId, Callable<T> task,
+                                                    long resultTtlMillis, Priority priority,
+                                                    TaskCallback<T> callback) {
+        SharedTask<T> sharedTask;
+        Subscription<T> subscription;
+        boolean isNew = false;
+        
+        synchronized (sharedTasks) {
+            @SuppressWarnings("unchecked")
+            SharedTask<T> existing = (SharedTask<T>) sharedTasks.get(taskId);
+            if (existing != null && existing.isReusable(SystemClock.uptimeMillis())) {
+                sharedTask = existing;
+                Log.d(TAG, "共享任务 " + taskId + (existing.isDone() ? " 复用已完成的结果" : " 已在执行中，加入等待"));
+            } else {
+                purgeExpiredLocked();
+                sharedTask = new SharedTask<>(taskId, task, resultTtlMillis);
+                sharedTasks.put(taskId, sharedTask);
+                isNew = true;
+            }
+            subscription = new Subscription<>(sharedTask, callback);
+            // 已完成的任务直接回调，不再登记订阅者
+            if (!sharedTask.isDone()) {
+                sharedTask.subscribers.add(subscription);
+            }
+        }
+        
+        if (isNew) {
+            try {
+                ExecutorManager.executeParallel(sharedTask, priority, taskId);
+            } catch (Exception e) {
+                Log.e(TAG, "执行共享任务 " + taskId + " 时出错", e);
+                sharedTask.fail(e);
+            }
+        } else if (sharedTask.isDone()) {
+            // 复用已完成的结果，直接回调
+            subscription.deliver();
+        }
+        return subscription;
+    }
+    
+    /**
+     * 移除结果已过期的共享任务，需持有sharedTasks锁
+     */
+    private static void purgeExpiredLocked() {
+        long now = SystemClock.uptimeMillis();
+        Iterator<SharedTask<?>> iterator = sharedTasks.values().iterator();
+        while (iterator.hasNext()) {
+            SharedTask<?> sharedTask = iterator.next();
+            if (sharedTask.isDone() && !sharedTask.isReusable(now)) {
+                iterator.remove();
+            }
+        }
+    }
+    
+    /**
+     * 共享任务的一个订阅，同时也是该任务结果的Future
+     * 所有订阅者都退订后，执行中的任务会被取消
+     */
+    public static final class Subscription<T> implements Future<T> {
+        private final SharedTask<T> task;
+        private final TaskCallback<T> callback;
+        private final AtomicBoolean delivered = new AtomicBoolean(false);
+        private volatile boolean detached;
+        
+        private Subscription(SharedTask<T> task, TaskCallback<T> callback) {
+            this.task = task;
+            this.callback = callback;
+        }
+        
+        /**
+         * 退订，之后不再收到回调；若为最后一个订阅者且任务未完成则取消任务
+         */
+        public void detach() {
+            synchronized (sharedTasks) {
+                if (detached) {
+                    return;
+                }
+                detached = true;
+                task.subscribers.remove(this);
+                if (task.subscribers.isEmpty() && !task.isDone()) {
+                    Log.d(TAG, "共享任务 " + task.taskId + " 已无订阅者，取消执行");
+                    task.cancel(true);
+                }
+            }
+        }
+        
+        public boolean isDetached() {
+            return detached;
+        }
+        
+        /**
+         * 取消订阅，等同于 {@link #detach()}；只有所有订阅者都取消时任务才会真正取消
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            detach();
+            return true;
+        }
+        
+        @Override
+        public boolean isCancelled() {
+            return detached || task.isCancelled();
+        }
+        
+        @Override
+        public boolean isDone() {
+            return detached || task.isDone();
+        }
+        
+        @Override
+        public T get() throws InterruptedException, ExecutionException {
+            if (detached) {
+                throw new CancellationException();
+            }
+            return task.get();
+        }
+        
+        @Override
+        public T get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            if (detached) {
+                throw new CancellationException();
+            }
+            return task.get(timeout, unit);
+        }
+        
+        /**
+         * 在主线程把任务结果交给回调，每个订阅只回调一次
+         */
+        private void deliver() {
+            if (callback == null || !delivered.compareAndSet(false, true)) {
+                return;
+            }
+            ExecutorManager.executeOnMain(() -> {
+                if (detached || task.isCancelled()) {
+                    return;
+                }
+                try {
+                    callback.onSuccess(task.get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    callback.onError(cause.getMessage());
+                } catch (Exception e) {
+                    callback.onError(e.getMessage());
+                }
+            });
+        }
+    }
+    
+    /**
+     * 被多个订阅者共享的任务
+     */
+    private static final class SharedTask<T> extends FutureTask<T> {
+        final String taskId;
+        final long resultTtlMillis;
+        final List<Subscription<T>> subscribers = new ArrayList<>();
+        private volatile long completedAt;
+        
+        SharedTask(String taskId, Callable<T> callable, long resultTtlMillis) {
+            super(callable);
+            this.taskId = taskId;
+            this.resultTtlMillis = resultTtlMillis;
+        }
+        
+        /**
+         * 新的请求能否加入本任务：执行中，或成功完成且结果未过期
+         */
+        boolean isReusable(long now) {
+            if (isCancelled()) {
+                return false;
+            }
+            if (!isDone()) {
+                return true;
+            }
+            return completedAt > 0 && now - completedAt < resultTtlMillis;
+        }
+        
+        /**
+         * 任务无法提交执行时以异常结束
+         */
+        void fail(Throwable t) {
+            setException(t);
+        }
+        
+        @Override
+        protected void set(T value) {
+            // 先记录完成时间，保证done()之前isReusable已能正确判断
+            completedAt = SystemClock.uptimeMillis();
+            super.set(value);
+        }
+        
+        @Override
+        protected void done() {
+            List<Subscription<T>> snapshot;
+            synchronized (sharedTasks) {
+                // 失败、取消或不需要复用结果时立即移除，避免后续请求拿到过期结果
+                if (completedAt == 0 || resultTtlMillis <= 0) {
+                    if (sharedTasks.get(taskId) == this) {
+                        sharedTasks.remove(taskId);
+                    }
+                }
+                snapshot = new ArrayList<>(subscribers);
+                // 结果已交付，不再持有订阅者及其回调（通常引用着Activity）
+                subscribers.clear();
+            }
+            if (isCancelled()) {
+                return;
+            }
+            for (Subscription<T> subscription : snapshot) {
+                subscription.deliver();
+            }
+        }
+    }
+    
     /**
      * 清除所有任务状态
      * 应在应用退出时调用
      */
     public static void clearAll() {
         taskStates.clear();
+        synchronized (sharedTasks) {
+            sharedTasks.clear();
+        }
     }
 } 
\ No newline at end of file
@@ -20,6 +20,9 @@ public class ThemeHelper {
         SharedPreferences preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         boolean isDarkMode = preferences.getBoolean(KEY_DARK_MODE, false);
         
+        // 颜色资源随主题变化，清空已缓存的天气背景
+        WeatherBackgroundUtil.clearCache();
+        
         if (isDarkMode) {
             AppCompatDelegate.setDefaultNightMode(AppCompatDelegate.MODE_NIGHT_YES);
         } else {
@@ -43,6 +46,9 @@ public class ThemeHelper {
         SharedPreferences preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         preferences.edit().putBoolean(KEY_DARK_MODE, isDarkMode).apply();
         
+        // 颜色资源随主题变化，清空已缓存的天气背景
+        WeatherBackgroundUtil.clearCache();
+        
         if (isDarkMode) {
             AppCompatDelegate.setDefaultNightMode(AppCompatDelegate.MODE_NIGHT_YES);
         } else {
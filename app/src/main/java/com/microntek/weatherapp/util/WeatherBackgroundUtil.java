@@ -3,135 +3,218 @@ package com.microntek.weatherapp.util;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
 import android.content.Context;
+import android.content.res.Configuration;
 
 import com.microntek.weatherapp.R;
+import com.microntek.weatherapp.model.Weather;
+import com.microntek.weatherapp.model.WeatherCondition;
 
-import java.util.Calendar;
+import java.util.TimeZone;
 
 /**
  * 天气背景工具类
  * 根据天气代码和当前时间返回对应的背景
+ * 背景按天气类型和昼夜缓存，主题切换后清空缓存
  */
 public class WeatherBackgroundUtil {
 
+    // 背景类型
+    private static final int CATEGORY_SUNNY = 0;
+    private static final int CATEGORY_CLOUDY = 1;
+    private static final int CATEGORY_RAINY = 2;
+    private static final int CATEGORY_HAZE = 3;
+    private static final int CATEGORY_COUNT = 4;
+
+    // 没有日出日落数据时，晚上7点到早上6点认为是夜间
+    private static final int DEFAULT_SUNRISE_MINUTES = 6 * 60;
+    private static final int DEFAULT_SUNSET_MINUTES = 19 * 60;
+
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    // 按[天气类型][昼/夜]缓存的背景，每次返回由ConstantState创建的新实例
+    private static final Drawable.ConstantState[][] backgroundCache =
+            new Drawable.ConstantState[CATEGORY_COUNT][2];
+
+    // 缓存对应的深色模式状态，系统切换深色模式时颜色资源会变化
+    private static int cachedNightMode = Configuration.UI_MODE_NIGHT_UNDEFINED;
+
     /**
      * 根据天气代码和当前时间获取背景Drawable
+     * 没有日出日落数据时按固定时段判断昼夜
      * @param context 上下文
      * @param weatherCode 天气代码
      * @return 对应的背景Drawable
      */
     public static Drawable getWeatherBackground(Context context, String weatherCode) {
+        return getWeatherBackground(context, WeatherCondition.parseCode(weatherCode), null);
+    }
+
+    /**
+     * 根据天气数据获取背景Drawable，使用解析时得到的天气状况代码和当天的日出日落时间
+     * @param context 上下文
+     * @param weather 天气数据
+     * @return 对应的背景Drawable
+     */
+    public static Drawable getWeatherBackground(Context context, Weather weather) {
+        return getWeatherBackground(context, weather.getConditionCode(), weather);
+    }
+
+    private static Drawable getWeatherBackground(Context context, int code, Weather weather) {
         // 检查是否是夜间
-        boolean isNight = isNightTime() || isNightWeatherCode(weatherCode);
-        
-        // 创建渐变背景
-        GradientDrawable gradientDrawable = new GradientDrawable(
-                GradientDrawable.Orientation.TL_BR, // 左上到右下的渐变
-                getWeatherColors(context, weatherCode, isNight)
-        );
-        
-        return gradientDrawable;
+        boolean isNight = isNightTime(weather) || WeatherCondition.isNightCode(code);
+        int category = getCategory(code);
+
+        Drawable.ConstantState state;
+        synchronized (backgroundCache) {
+            int nightMode = context.getResources().getConfiguration().uiMode
+                    & Configuration.UI_MODE_NIGHT_MASK;
+            if (nightMode != cachedNightMode) {
+                clearCacheLocked();
+                cachedNightMode = nightMode;
+            }
+
+            int index = isNight ? 1 : 0;
+            state = backgroundCache[category][index];
+            if (state == null) {
+                // 创建渐变背景
+                GradientDrawable gradientDrawable = new GradientDrawable(
+                        GradientDrawable.Orientation.TL_BR, // 左上到右下的渐变
+                        getWeatherColors(context, category, isNight)
+                );
+                state = gradientDrawable.getConstantState();
+                backgroundCache[category][index] = state;
+            }
+        }
+
+        return state.newDrawable(context.getResources());
     }
-    
+
+    /**
+     * 清空背景缓存，主题切换时调用
+     */
+    public static void clearCache() {
+        synchronized (backgroundCache) {
+            clearCacheLocked();
+        }
+    }
+
+    private static void clearCacheLocked() {
+        for (Drawable.ConstantState[] states : backgroundCache) {
+            states[0] = null;
+            states[1] = null;
+        }
+        cachedNightMode = Configuration.UI_MODE_NIGHT_UNDEFINED;
+    }
+
     /**
      * 判断当前是否是夜间
+     * @param weather 天气数据，有日出日落时间时按其判断
      * @return 是否是夜间时段
      */
-    private static boolean isNightTime() {
-        Calendar cal = Calendar.getInstance();
-        int hour = cal.get(Calendar.HOUR_OF_DAY);
-        
-        // 晚上7点到早上6点认为是夜间
-        return hour >= 19 || hour < 6;
+    private static boolean isNightTime(Weather weather) {
+        int sunrise = DEFAULT_SUNRISE_MINUTES;
+        int sunset = DEFAULT_SUNSET_MINUTES;
+        if (weather != null) {
+            int parsedSunrise = parseMinutes(weather.getSunrise());
+            int parsedSunset = parseMinutes(weather.getSunset());
+            if (parsedSunrise >= 0 && parsedSunset > parsedSunrise) {
+                sunrise = parsedSunrise;
+                sunset = parsedSunset;
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        long localMinutes = (now + TimeZone.getDefault().getOffset(now)) / MILLIS_PER_MINUTE;
+        int minuteOfDay = (int) (localMinutes % MINUTES_PER_DAY);
+
+        return minuteOfDay >= sunset || minuteOfDay < sunrise;
+    }
+
+    /**
+     * 解析"HH:mm"格式的时间
+     * @return 当天的分钟数；格式不正确时返回-1
+     */
+    private static int parseMinutes(String time) {
+        if (time == null || time.length() != 5 || time.charAt(2) != ':') {
+            return -1;
+        }
+        int hour = parseDigits(time, 0, 2);
+        int minute = parseDigits(time, 3, 5);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return -1;
+        }
+        return hour * 60 + minute;
+    }
+
+    private static int parseDigits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
     }
-    
+
     /**
-     * 判断天气代码是否是夜间天气
-     * @param weatherCode 天气代码
-     * @return 是否是夜间天气
+     * 根据天气状况代码选择背景类型
      */
-    private static boolean isNightWeatherCode(String weatherCode) {
-        // 和风天气夜间天气代码通常以1、5或9结尾
-        if (weatherCode == null || weatherCode.isEmpty()) {
-            return false;
+    private static int getCategory(int code) {
+        switch (WeatherCondition.getCategory(code)) {
+            case WeatherCondition.CATEGORY_UNKNOWN:
+            case WeatherCondition.CATEGORY_CLEAR:
+                // 晴天，未知天气默认使用晴天背景
+                return CATEGORY_SUNNY;
+            case WeatherCondition.CATEGORY_RAIN:
+            case WeatherCondition.CATEGORY_SNOW:
+                // 雨天，雪天也使用雨天的颜色
+                return CATEGORY_RAINY;
+            case WeatherCondition.CATEGORY_HAZE:
+                // 雾霾天
+                return CATEGORY_HAZE;
+            default:
+                // 多云等其他天气
+                return CATEGORY_CLOUDY;
         }
-        
-        // 判断夜间代码
-        return weatherCode.endsWith("1") || weatherCode.endsWith("5") || weatherCode.endsWith("9") ||
-               (weatherCode.length() == 3 && (weatherCode.startsWith("15") || weatherCode.startsWith("35")));
     }
-    
+
     /**
-     * 根据天气代码获取对应的背景颜色
+     * 根据天气类型获取对应的背景颜色
      * @param context 上下文
-     * @param weatherCode 天气代码
+     * @param category 天气类型
      * @param isNight 是否是夜间
      * @return 背景颜色数组
      */
-    private static int[] getWeatherColors(Context context, String weatherCode, boolean isNight) {
+    private static int[] getWeatherColors(Context context, int category, boolean isNight) {
         if (isNight) {
             return new int[]{
-                    context.getResources().getColor(R.color.night_start),
-                    context.getResources().getColor(R.color.night_end)
-            };
-        }
-        
-        if (weatherCode == null || weatherCode.isEmpty()) {
-            // 默认使用晴天背景
-            return new int[]{
-                    context.getResources().getColor(R.color.sunny_start),
-                    context.getResources().getColor(R.color.sunny_end)
+                    context.getColor(R.color.night_start),
+                    context.getColor(R.color.night_end)
             };
         }
-        
-        // 去除夜间标志，获取基础天气代码
-        String baseCode = weatherCode;
-        if (weatherCode.endsWith("1") || weatherCode.endsWith("5") || weatherCode.endsWith("9")) {
-            baseCode = weatherCode.substring(0, weatherCode.length() - 1) + "0";
-        }
-        
-        int code = 0;
-        try {
-            code = Integer.parseInt(baseCode);
-        } catch (NumberFormatException e) {
-            // 解析失败，使用默认背景
-            return new int[]{
-                    context.getResources().getColor(R.color.sunny_start),
-                    context.getResources().getColor(R.color.sunny_end)
-            };
-        }
-        
-        // 根据天气代码判断天气类型
-        if (code >= 300 && code < 500) {
-            // 雨天
-            return new int[]{
-                    context.getResources().getColor(R.color.rainy_start),
-                    context.getResources().getColor(R.color.rainy_end)
-            };
-        } else if (code >= 400 && code < 500) {
-            // 雪天 - 也使用雨天的颜色
-            return new int[]{
-                    context.getResources().getColor(R.color.rainy_start),
-                    context.getResources().getColor(R.color.rainy_end)
-            };
-        } else if (code >= 500 && code < 600) {
-            // 雾霾天
-            return new int[]{
-                    context.getResources().getColor(R.color.cloudy_start),
-                    context.getResources().getColor(R.color.cloudy_end)
-            };
-        } else if (code == 100 || code == 150) {
-            // 晴天
-            return new int[]{
-                    context.getResources().getColor(R.color.sunny_start),
-                    context.getResources().getColor(R.color.sunny_end)
-            };
-        } else {
-            // 多云等其他天气
-            return new int[]{
-                    context.getResources().getColor(R.color.cloudy_start),
-                    context.getResources().getColor(R.color.cloudy_end)
-            };
+
+        switch (category) {
+            case CATEGORY_RAINY:
+                return new int[]{
+                        context.getColor(R.color.rainy_start),
+                        context.getColor(R.color.rainy_end)
+                };
+            case CATEGORY_SUNNY:
+                return new int[]{
+                        context.getColor(R.color.sunny_start),
+                        context.getColor(R.color.sunny_end)
+                };
+            case CATEGORY_HAZE:
+            case CATEGORY_CLOUDY:
+            default:
+                // 雾霾和多云等其他天气
+                return new int[]{
+                        context.getColor(R.color.cloudy_start),
+                        context.getColor(R.color.cloudy_end)
+                };
         }
     }
-} 
\ No newline at end of file
+}
@@ -7,7 +7,11 @@ import android.util.Log;
 import android.util.LruCache;
 
 import com.microntek.weatherapp.model.City;
+import com.microntek.weatherapp.model.PrecipitationNowcast;
 import com.microntek.weatherapp.model.Weather;
+import com.microntek.weatherapp.model.WeatherSnapshot;
+import com.microntek.weatherapp.provider.WeatherContract;
+import com.microntek.weatherapp.widget.WeatherWidgetProvider;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
@@ -32,6 +36,7 @@ public class WeatherDataCache {
     private static final String BACKUP_PREFS_NAME = "weather_cache_backup"; // 备份缓存
     private static final String KEY_PREFIX_CURRENT = "current_";
     private static final String KEY_PREFIX_FORECAST = "forecast_";
+    private static final String KEY_PREFIX_HOURLY = "hourly_";
     private static final String KEY_PREFIX_AIR = "air_";
     private static final String KEY_PREFIX_INDICES = "indices_";
     private static final String KEY_PREFIX_CITY_SEARCH = "city_search_";
@@ -51,8 +56,10 @@ public class WeatherDataCache {
     // 缓存有效期设置（毫秒）
     private static final long CACHE_DURATION_CURRENT = 30 * 60 * 1000;     // 30分钟
     private static final long CACHE_DURATION_FORECAST = 3 * 60 * 60 * 1000; // 3小时
+    private static final long CACHE_DURATION_HOURLY = 60 * 60 * 1000;       // 1小时
     private static final long CACHE_DURATION_AIR = 60 * 60 * 1000;          // 1小时
     private static final long CACHE_DURATION_INDICES = 6 * 60 * 60 * 1000;  // 6小时
+    private static final long CACHE_DURATION_NOWCAST = 5 * 60 * 1000;       // 5分钟
     private static final long CACHE_DURATION_CITY_SEARCH = 7 * 24 * 60 * 60 * 1000; // 7天
     private static final long CACHE_DURATION_GEO = 30 * 24 * 60 * 60 * 1000;       // 30天
     private static final long DEFAULT_CACHE_DURATION = 60 * 60 * 1000;      // 默认缓存时间1小时
@@ -65,6 +72,18 @@ public class WeatherDataCache {
     // 内存缓存
     private final LruCache<String, Object> memoryCache;
     
+    // 分钟级降水预报只针对当前位置，有效期很短，只保存在内存中；已发布的预报不再修改，刷新时整体替换
+    // 分钟级降水预报的两个缓冲区，一个已发布供读取，另一个用于写入下一次刷新的预报
+    private final PrecipitationNowcast[] nowcastBuffers = {
+            new PrecipitationNowcast(), new PrecipitationNowcast()
+    };
+    // 已发布的缓冲区下标
+    private int publishedNowcast = 0;
+    // 写入缓冲区正在被刷新使用
+    private boolean nowcastUpdating = false;
+    // 已发布预报的位置，null表示没有预报
+    private String nowcastLocation;
+    
     // 单例实现
     private static WeatherDataCache instance;
     private final Context context;
@@ -154,6 +173,25 @@ public class WeatherDataCache {
             checkAndCreateBackup();
             
             Log.d(TAG, "已缓存城市ID: " + cityId + " 的当前天气数据");
+            
+            // 更新小部件使用的快照，内容变化时通知小部件重绘；快照在锁内生成，保存和重绘放到锁外
+            final WeatherSnapshot snapshot = WeatherSnapshot.from(cityId, weather);
+            runAfterUnlock(() -> {
+                if (WeatherSnapshotStore.getInstance(context).put(cityId, snapshot)) {
+                    WeatherWidgetProvider.requestUpdate(context, cityId);
+                }
+            }, "SNAPSHOT_STORE");
+            
+            // 追加到历史观测，用于温度、空气质量等趋势；观测值在锁内取出，写入文件放到锁外
+            final long observedAt = weather.getUpdateTime() > 0 ? weather.getUpdateTime() : timestamp;
+            final int temperature = weather.getCurrentTemp();
+            final int aqi = weather.getAqi();
+            final int humidity = weather.getHumidity();
+            runAfterUnlock(() -> WeatherHistoryStore.getInstance(context)
+                    .record(cityId, observedAt, temperature, aqi, humidity), "HISTORY_RECORD");
+            
+            // 通知ContentProvider的观察者
+            runAfterUnlock(() -> WeatherContract.notifySnapshotChanged(context), "SNAPSHOT_NOTIFY");
         } catch (Exception e) {
             Log.e(TAG, "缓存天气数据失败: " + e.getMessage());
             incrementErrorCount(key);
@@ -211,6 +249,42 @@ public class WeatherDataCache {
         }
     }
     
+    /**
+     * 获取最近一次缓存的当前天气，不检查是否过期
+     * 供只读取本地数据的场景使用（如ContentProvider），过期与否由 {@link #isCurrentWeatherExpired} 判断
+     */
+    public synchronized Weather getLastKnownCurrentWeather(String cityId) {
+        if (cityId == null) return null;
+        
+        String key = KEY_PREFIX_CURRENT + cityId;
+        Object cachedWeather = memoryCache.get(key);
+        if (cachedWeather instanceof Weather) {
+            return (Weather) cachedWeather;
+        }
+        
+        String weatherJson = cachePreferences.getString(key, null);
+        if (weatherJson == null) {
+            return null;
+        }
+        try {
+            Weather weather = gson.fromJson(weatherJson, Weather.class);
+            memoryCache.put(key, weather);
+            return weather;
+        } catch (JsonSyntaxException e) {
+            Log.e(TAG, "缓存数据解析失败: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 当前天气缓存是否已过期（或不存在）
+     */
+    public synchronized boolean isCurrentWeatherExpired(String cityId) {
+        if (cityId == null) return true;
+        long timestamp = cachePreferences.getLong(KEY_PREFIX_TIMESTAMP + KEY_PREFIX_CURRENT + cityId, 0);
+        return isCacheExpired(timestamp, CACHE_DURATION_CURRENT);
+    }
+    
     /**
      * 缓存天气预报数据
      */
@@ -306,6 +380,173 @@ public class WeatherDataCache {
         }
     }
     
+    /**
+     * 缓存逐小时天气预报数据
+     */
+    public synchronized void cacheHourlyForecast(String cityId, Weather weather) {
+        if (cityId == null || weather == null || weather.getHourlyForecast() == null) {
+            Log.w(TAG, "尝试缓存无效的逐小时预报数据");
+            return;
+        }
+        
+        String key = KEY_PREFIX_HOURLY + cityId;
+        String timestampKey = KEY_PREFIX_TIMESTAMP + key;
+        
+        try {
+            weather.setUpdateTimestamp(System.currentTimeMillis());
+            long timestamp = System.currentTimeMillis();
+            String weatherJson = gson.toJson(weather);
+            
+            // 保存到磁盘缓存
+            cachePreferences.edit()
+                    .putString(key, weatherJson)
+                    .putLong(timestampKey, timestamp)
+                    .apply();
+            
+            // 保存到内存缓存
+            memoryCache.put(key, weather);
+            
+            // 重置错误计数
+            resetErrorCount(key);
+            
+            Log.d(TAG, "已缓存城市ID: " + cityId + " 的逐小时预报数据");
+        } catch (Exception e) {
+            Log.e(TAG, "缓存逐小时预报数据失败: " + e.getMessage());
+            incrementErrorCount(key);
+        }
+    }
+    
+    /**
+     * 逐小时天气预报缓存是否已过期（或不存在）
+     */
+    public synchronized boolean isHourlyForecastExpired(String cityId) {
+        if (cityId == null) return true;
+        long timestamp = cachePreferences.getLong(KEY_PREFIX_TIMESTAMP + KEY_PREFIX_HOURLY + cityId, 0);
+        return isCacheExpired(timestamp, CACHE_DURATION_HOURLY);
+    }
+    
+    /**
+     * 获取缓存的逐小时天气预报
+     */
+    public synchronized Weather getCachedHourlyForecast(String cityId) {
+        if (cityId == null) return null;
+        
+        String key = KEY_PREFIX_HOURLY + cityId;
+        String timestampKey = KEY_PREFIX_TIMESTAMP + key;
+        
+        try {
+            // 先检查内存缓存
+            Object cachedWeather = memoryCache.get(key);
+            if (cachedWeather instanceof Weather) {
+                long timestamp = cachePreferences.getLong(timestampKey, 0);
+                if (!isCacheExpired(timestamp, CACHE_DURATION_HOURLY)) {
+                    resetErrorCount(key);
+                    return (Weather) cachedWeather;
+                }
+            }
+            
+            // 内存缓存不存在或已过期，检查磁盘缓存
+            String weatherJson = cachePreferences.getString(key, null);
+            long timestamp = cachePreferences.getLong(timestampKey, 0);
+            
+            if (weatherJson != null && !isCacheExpired(timestamp, CACHE_DURATION_HOURLY)) {
+                try {
+                    Weather weather = gson.fromJson(weatherJson, Weather.class);
+                    memoryCache.put(key, weather); // 更新内存缓存
+                    resetErrorCount(key);
+                    return weather;
+                } catch (JsonSyntaxException e) {
+                    Log.e(TAG, "逐小时预报缓存数据解析失败: " + e.getMessage());
+                    incrementErrorCount(key);
+                    Weather weather = restoreFromBackup(key, Weather.class);
+                    if (weather != null) {
+                        return weather;
+                    }
+                }
+            }
+            
+            return null; // 缓存不存在或已过期
+        } catch (Exception e) {
+            Log.e(TAG, "获取逐小时预报缓存异常: " + e.getMessage());
+            incrementErrorCount(key);
+            return restoreFromBackup(key, Weather.class);
+        }
+    }
+    
+    /**
+     * 取得用于写入分钟级降水预报的缓冲区，写入完成后由 {@link #cacheNowcast} 发布，
+     * 失败时由 {@link #cancelNowcastUpdate} 归还
+     * 位置与已发布的预报相同时先复制已发布的预报，使新预报只覆盖重叠的时段；否则清空缓冲区
+     * @param location 位置，格式为"经度,纬度"
+     * @return 写入缓冲区；已有刷新正在写入时返回null
+     */
+    public synchronized PrecipitationNowcast beginNowcastUpdate(String location) {
+        if (location == null || nowcastUpdating) {
+            return null;
+        }
+        nowcastUpdating = true;
+        PrecipitationNowcast buffer = nowcastBuffers[1 - publishedNowcast];
+        if (location.equals(nowcastLocation)) {
+            buffer.copyFrom(nowcastBuffers[publishedNowcast]);
+        } else {
+            buffer.clear();
+        }
+        return buffer;
+    }
+    
+    /**
+     * 发布写入完成的分钟级降水预报，与已发布的缓冲区交换
+     * 交换后旧的缓冲区会在下一次刷新时被覆盖，读取方不应跨刷新持有预报
+     * @param location 位置，格式为"经度,纬度"
+     * @param buffer {@link #beginNowcastUpdate} 返回的缓冲区
+     */
+    public synchronized void cacheNowcast(String location, PrecipitationNowcast buffer) {
+        if (location == null || buffer != nowcastBuffers[1 - publishedNowcast]) {
+            return;
+        }
+        publishedNowcast = 1 - publishedNowcast;
+        nowcastLocation = location;
+        nowcastUpdating = false;
+    }
+    
+    /**
+     * 放弃写入的预报，已发布的预报保持不变
+     */
+    public synchronized void cancelNowcastUpdate(PrecipitationNowcast buffer) {
+        if (buffer == nowcastBuffers[1 - publishedNowcast]) {
+            nowcastUpdating = false;
+        }
+    }
+    
+    /**
+     * 清除指定位置的分钟级降水预报
+     * 预报按经纬度缓存，城市ID为和风天气ID时无法由 {@link #clearCache} 对应，需要单独清除
+     * @param location 位置，格式为"经度,纬度"
+     */
+    public synchronized void clearNowcast(String location) {
+        if (location != null && location.equals(nowcastLocation)) {
+            nowcastLocation = null;
+        }
+    }
+    
+    /**
+     * 获取缓存的分钟级降水预报
+     * 返回的缓冲区在之后第二次刷新时被复用，读取方应立即读取所需的值
+     * @param location 位置，格式为"经度,纬度"
+     * @return 预报；位置不同、尚未获取或已过期时返回null
+     */
+    public synchronized PrecipitationNowcast getCachedNowcast(String location) {
+        if (location == null || !location.equals(nowcastLocation)) {
+            return null;
+        }
+        PrecipitationNowcast nowcast = nowcastBuffers[publishedNowcast];
+        long updateTime = nowcast.getUpdateTime();
+        if (updateTime == 0 || isCacheExpired(updateTime, CACHE_DURATION_NOWCAST)) {
+            return null;
+        }
+        return nowcast;
+    }
+    
     /**
      * 缓存空气质量数据
      */
@@ -556,6 +797,7 @@ public class WeatherDataCache {
         String[] types = {
             KEY_PREFIX_CURRENT, 
             KEY_PREFIX_FORECAST, 
+            KEY_PREFIX_HOURLY, 
             KEY_PREFIX_AIR, 
             KEY_PREFIX_INDICES
         };
@@ -582,7 +824,11 @@ public class WeatherDataCache {
             .putBoolean(KEY_IMPORTANT_DATA_MODIFIED, true)
             .apply();
         
+        runAfterUnlock(() -> WeatherSnapshotStore.getInstance(context).remove(cityId), "SNAPSHOT_STORE");
+        runAfterUnlock(() -> WeatherHistoryStore.getInstance(context).remove(cityId), "HISTORY_RECORD");
+        
         Log.i(TAG, "已清除城市ID: " + cityId + " 的所有缓存");
+        runAfterUnlock(() -> WeatherContract.notifySnapshotChanged(context), "SNAPSHOT_NOTIFY");
     }
     
     /**
@@ -591,6 +837,7 @@ public class WeatherDataCache {
     public synchronized void clearAllCache() {
         // 清除内存缓存
         memoryCache.evictAll();
+        nowcastLocation = null;
         
         // 清除磁盘缓存并立即提交
         cachePreferences.edit().clear().commit();
@@ -600,7 +847,20 @@ public class WeatherDataCache {
             .putBoolean(KEY_IMPORTANT_DATA_MODIFIED, true)
             .apply();
         
+        runAfterUnlock(() -> WeatherSnapshotStore.getInstance(context).clear(), "SNAPSHOT_STORE");
+        runAfterUnlock(() -> WeatherHistoryStore.getInstance(context).clear(), "HISTORY_RECORD");
+        
         Log.i(TAG, "已清除所有缓存");
+        runAfterUnlock(() -> WeatherContract.notifySnapshotChanged(context), "SNAPSHOT_NOTIFY");
+    }
+    
+    /**
+     * 在串行线程中执行写入或清除缓存后的附带操作
+     * 这些操作涉及跨进程调用和文件读写，不能在持有缓存锁时执行，否则读取缓存的界面线程会被阻塞；
+     * 串行执行保证它们的先后顺序与缓存的修改顺序一致
+     */
+    private void runAfterUnlock(Runnable sideEffect, String tag) {
+        ExecutorManager.executeSingle(sideEffect, tag);
     }
     
     /**
@@ -655,6 +915,49 @@ public class WeatherDataCache {
         }
     }
     
+    /**
+     * 获取城市天气数据（实时、预报、空气质量）中最早过期的时间
+     * 生活指数只在有订阅方时获取，不参与后台刷新的安排
+     * @param cityId 城市ID或经纬度ID
+     * @return 过期时间戳（毫秒）；任一项数据缺失时返回0，表示需要立即刷新
+     */
+    public synchronized long getEarliestExpiryTime(String cityId) {
+        return getEarliestExpiryTime(cityId, false);
+    }
+    
+    /**
+     * 获取城市天气数据中最早过期的时间
+     * @param cityId 城市ID或经纬度ID
+     * @param includeHourly 是否包含逐小时预报，只有当前城市在刷新时获取逐小时预报
+     * @return 过期时间戳（毫秒）；任一项数据缺失时返回0，表示需要立即刷新
+     */
+    public synchronized long getEarliestExpiryTime(String cityId, boolean includeHourly) {
+        if (cityId == null) return 0;
+        
+        String[] sectionKeys = includeHourly
+                ? new String[] {
+                        KEY_PREFIX_CURRENT + cityId,
+                        KEY_PREFIX_FORECAST + cityId,
+                        KEY_PREFIX_AIR + cityId,
+                        KEY_PREFIX_HOURLY + cityId
+                }
+                : new String[] {
+                        KEY_PREFIX_CURRENT + cityId,
+                        KEY_PREFIX_FORECAST + cityId,
+                        KEY_PREFIX_AIR + cityId
+                };
+        
+        long earliest = Long.MAX_VALUE;
+        for (String key : sectionKeys) {
+            long timestamp = cachePreferences.getLong(KEY_PREFIX_TIMESTAMP + key, 0);
+            if (timestamp == 0) {
+                return 0;
+            }
+            earliest = Math.min(earliest, timestamp + getCacheDurationForKey(key));
+        }
+        return earliest;
+    }
+    
     /**
      * 检查缓存是否过期
      */
@@ -781,7 +1084,7 @@ public class WeatherDataCache {
     public void createBackup() {
         try {
             // 使用ExecutorManager代替内部线程池
-            ExecutorManager.executeSingle(new BackupTask());
+            ExecutorManager.executeSingle(new BackupTask(), "CACHE_BACKUP");
         } catch (Exception e) {
             Log.e(TAG, "提交备份任务失败: " + e.getMessage(), e);
         }
@@ -797,6 +1100,7 @@ public class WeatherDataCache {
         String[] prefixes = {
                 KEY_PREFIX_CURRENT,
                 KEY_PREFIX_FORECAST,
+                KEY_PREFIX_HOURLY,
                 KEY_PREFIX_AIR,
                 KEY_PREFIX_INDICES
         };
@@ -810,6 +1114,7 @@ public class WeatherDataCache {
                     // 尝试解析JSON，验证数据完整性
                     if (prefix.equals(KEY_PREFIX_CURRENT) || 
                         prefix.equals(KEY_PREFIX_FORECAST) || 
+                        prefix.equals(KEY_PREFIX_HOURLY) || 
                         prefix.equals(KEY_PREFIX_AIR) || 
                         prefix.equals(KEY_PREFIX_INDICES)) {
                         gson.fromJson(cacheData, Weather.class);
@@ -885,6 +1190,7 @@ public class WeatherDataCache {
             
             if (key.startsWith(KEY_PREFIX_CURRENT) || 
                 key.startsWith(KEY_PREFIX_FORECAST) || 
+                key.startsWith(KEY_PREFIX_HOURLY) || 
                 key.startsWith(KEY_PREFIX_AIR) || 
                 key.startsWith(KEY_PREFIX_INDICES)) {
                 restoredData = restoreFromBackup(key, Weather.class);
@@ -999,6 +1305,7 @@ public class WeatherDataCache {
                 // 只验证天气数据，跳过时间戳和错误计数
                 if (key.startsWith(KEY_PREFIX_CURRENT) || 
                     key.startsWith(KEY_PREFIX_FORECAST) || 
+                    key.startsWith(KEY_PREFIX_HOURLY) || 
                     key.startsWith(KEY_PREFIX_AIR) || 
                     key.startsWith(KEY_PREFIX_INDICES)) {
                     
@@ -1088,6 +1395,8 @@ public class WeatherDataCache {
             return CACHE_DURATION_CURRENT;
         } else if (key.startsWith(KEY_PREFIX_FORECAST)) {
             return CACHE_DURATION_FORECAST;
+        } else if (key.startsWith(KEY_PREFIX_HOURLY)) {
+            return CACHE_DURATION_HOURLY;
         } else if (key.startsWith(KEY_PREFIX_AIR)) {
             return CACHE_DURATION_AIR;
         } else if (key.startsWith(KEY_PREFIX_INDICES)) {
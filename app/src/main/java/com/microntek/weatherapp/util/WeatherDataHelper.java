@@ -17,6 +17,9 @@ import java.util.List;
 public class WeatherDataHelper {
     private static final String TAG = "WeatherDataHelper";
 
+    // 城市列表天气加载结果的复用时长
+    private static final long LOAD_CITIES_RESULT_TTL_MILLIS = 5000;
+
     /**
      * 获取城市的天气数据
      * @param context 上下文
@@ -45,7 +48,7 @@ public class WeatherDataHelper {
             }
 
             // 从网络获取天气数据
-            return fetchWeatherFromNetwork(city);
+            return fetchWeatherFromNetwork(context, city);
         } catch (Exception e) {
             Log.e(TAG, "获取天气数据失败: " + e.getMessage(), e);
             return null;
@@ -65,14 +68,55 @@ public class WeatherDataHelper {
     }
 
     /**
-     * 从网络获取天气数据
+     * 从网络获取天气数据，城市列表需要的空气质量优先使用缓存
      */
-    private static Weather fetchWeatherFromNetwork(City city) throws Exception {
+    private static Weather fetchWeatherFromNetwork(Context context, City city) throws Exception {
+        Weather weather;
         if (city.isCurrentLocation() || city.getId().contains(",")) {
-            return WeatherApi.getCurrentWeatherByLocation(
+            weather = WeatherApi.getCurrentWeatherByLocation(
                     city.getLatitude(), city.getLongitude());
         } else {
-            return WeatherApi.getCurrentWeather(city.getId());
+            weather = WeatherApi.getCurrentWeather(city.getId());
+        }
+        if (weather != null) {
+            try {
+                WeatherApi.getAirQualityWithCache(context, getCacheId(city), weather);
+            } catch (Exception e) {
+                Log.w(TAG, "获取空气质量失败: " + e.getMessage());
+            }
+        }
+        return weather;
+    }
+
+    /**
+     * 获取城市天气数据在缓存中使用的ID
+     * 定位城市和经纬度ID的城市使用"经度,纬度"，其他城市使用城市ID
+     */
+    public static String getCacheId(City city) {
+        if (city.isCurrentLocation() || city.getId().contains(",")) {
+            return city.getLongitude() + "," + city.getLatitude();
+        }
+        return city.getId();
+    }
+
+    /**
+     * 忽略缓存从网络刷新城市的全部天气数据并写入缓存
+     * @return 刷新后的天气数据
+     */
+    public static Weather refreshCityWeather(Context context, City city) throws Exception {
+        return refreshCityWeather(context, city, false);
+    }
+
+    /**
+     * 从网络刷新城市的天气数据
+     * @param includeHourly 是否同时刷新逐小时预报，用于当前城市
+     */
+    public static Weather refreshCityWeather(Context context, City city, boolean includeHourly) throws Exception {
+        if (city.isCurrentLocation() || city.getId().contains(",")) {
+            return WeatherApi.refreshWeatherDataByLocation(
+                    context, city.getLatitude(), city.getLongitude(), includeHourly);
+        } else {
+            return WeatherApi.refreshWeatherData(context, city.getId(), includeHourly);
         }
     }
 
@@ -128,12 +172,14 @@ public class WeatherDataHelper {
 
     /**
      * 加载多个城市的天气数据
+     * 相同城市列表的加载请求会合并到同一次执行，完成后短时间内的重复请求直接复用结果
      * @param context 上下文
      * @param cities 要加载天气数据的城市列表
      * @param useCache 是否优先使用缓存
      * @param callback 完成回调
+     * @return 订阅对象，调用方不再需要结果时应调用detach；城市列表为空时返回null
      */
-    public static void loadCitiesWeather(
+    public static TaskManager.Subscription<List<City>> loadCitiesWeather(
             Context context, 
             List<City> cities, 
             boolean useCache, 
@@ -143,53 +189,64 @@ public class WeatherDataHelper {
             if (callback != null) {
                 callback.onDataLoaded(new ArrayList<>());
             }
-            return;
+            return null;
         }
 
-        final String taskId = "LOAD_CITIES_WEATHER";
-        if (!TaskManager.canExecuteTask(taskId)) {
-            if (callback != null) {
-                callback.onError("任务正在执行中");
-            }
-            return;
+        // 任务ID包含城市列表和缓存策略，只有完全相同的请求才会合并
+        StringBuilder taskIdBuilder = new StringBuilder("LOAD_CITIES_WEATHER:").append(useCache);
+        for (City city : cities) {
+            taskIdBuilder.append('|').append(city.getId());
+        }
+        final String taskId = taskIdBuilder.toString();
+        // 加载时修改的是副本，不影响调用方持有的城市对象
+        final List<City> citiesToLoad = new ArrayList<>(cities.size());
+        for (City city : cities) {
+            citiesToLoad.add(new City(city));
         }
 
-        ExecutorManager.executeParallel(() -> {
-            try {
-                List<City> updatedCities = new ArrayList<>();
-                
-                for (City city : new ArrayList<>(cities)) {
-                    try {
-                        Weather weather = getCityWeather(context, city, useCache);
-                        if (weather != null) {
-                            updateCityWithWeatherData(city, weather);
-                        }
-                        updatedCities.add(city);
-                    } catch (Exception e) {
-                        Log.e(TAG, "加载城市 " + city.getName() + " 的天气失败: " + e.getMessage());
-                        // 即使失败也保留城市
-                        updatedCities.add(city);
+        return TaskManager.executeShared(taskId, () -> {
+            List<City> updatedCities = new ArrayList<>();
+            
+            for (City city : citiesToLoad) {
+                if (Thread.currentThread().isInterrupted()) {
+                    // 所有订阅者都已退订，停止加载
+                    break;
+                }
+                try {
+                    Weather weather = getCityWeather(context, city, useCache);
+                    if (weather != null) {
+                        updateCityWithWeatherData(city, weather);
                     }
+                    updatedCities.add(city);
+                } catch (Exception e) {
+                    Log.e(TAG, "加载城市 " + city.getName() + " 的天气失败: " + e.getMessage());
+                    // 即使失败也保留城市
+                    updatedCities.add(city);
                 }
-
-                // 完成后在主线程回调
-                final List<City> finalCities = updatedCities;
-                ExecutorManager.executeOnMain(() -> {
-                    if (callback != null) {
-                        callback.onDataLoaded(finalCities);
+            }
+            return updatedCities;
+        }, LOAD_CITIES_RESULT_TTL_MILLIS, PriorityTaskScheduler.Priority.VISIBLE,
+                new TaskManager.TaskCallback<List<City>>() {
+                    @Override
+                    public void onSuccess(List<City> result) {
+                        if (callback != null) {
+                            // 每个订阅者拿到独立的列表和城市对象，避免相互修改
+                            List<City> copies = new ArrayList<>(result.size());
+                            for (City city : result) {
+                                copies.add(new City(city));
+                            }
+                            callback.onDataLoaded(copies);
+                        }
                     }
-                });
-            } catch (Exception e) {
-                Log.e(TAG, "加载城市天气失败", e);
-                ExecutorManager.executeOnMain(() -> {
-                    if (callback != null) {
-                        callback.onError(e.getMessage());
+
+                    @Override
+                    public void onError(String errorMessage) {
+                        Log.e(TAG, "加载城市天气失败: " + errorMessage);
+                        if (callback != null) {
+                            callback.onError(errorMessage);
+                        }
                     }
                 });
-            } finally {
-                TaskManager.completeTask(taskId);
-            }
-        });
     }
 
     /**
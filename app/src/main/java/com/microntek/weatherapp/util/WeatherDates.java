@@ -0,0 +1,125 @@
+package com.microntek.weatherapp.util;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * 日期解析和格式化工具类
+ * 星期由日期直接计算，不创建格式化对象；显示时间使用共享的DateTimeFormatter，线程安全
+ */
+public final class WeatherDates {
+    // 按星期日到星期六排列，与SimpleDateFormat("EEEE", Locale.CHINA)的输出一致
+    private static final String[] WEEKDAY_NAMES = {
+            "星期日", "星期一", "星期二", "星期三", "星期四", "星期五", "星期六"
+    };
+
+    public static final String UNKNOWN_WEEKDAY = "未知";
+
+    // 更新时间的显示格式
+    private static final DateTimeFormatter UPDATE_TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm", Locale.getDefault());
+
+    private WeatherDates() {
+    }
+
+    /**
+     * 根据"yyyy-MM-dd"格式的日期获取星期名称
+     * @return 星期名称，如"星期一"；日期格式不正确时返回"未知"
+     */
+    public static String getDayOfWeek(String date) {
+        long epochDay = parseEpochDay(date);
+        if (epochDay == Long.MIN_VALUE) {
+            return UNKNOWN_WEEKDAY;
+        }
+        // 1970-01-01是星期四
+        return WEEKDAY_NAMES[(int) Math.floorMod(epochDay + 4, 7L)];
+    }
+
+    /**
+     * 将"yyyy-MM-dd"格式的日期解析为自1970-01-01起的天数
+     * @return 天数；格式不正确时返回Long.MIN_VALUE
+     */
+    public static long parseEpochDay(String date) {
+        if (date == null || date.length() != 10) {
+            return Long.MIN_VALUE;
+        }
+        return parseEpochDay(date, 0);
+    }
+
+    /**
+     * 解析从start开始的"yyyy-MM-dd"日期，直接读取原字符串，不截取子串
+     * @return 自1970-01-01起的天数；格式不正确时返回Long.MIN_VALUE
+     */
+    private static long parseEpochDay(String text, int start) {
+        if (text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-') {
+            return Long.MIN_VALUE;
+        }
+        int year = parseDigits(text, start, start + 4);
+        int month = parseDigits(text, start + 5, start + 7);
+        int day = parseDigits(text, start + 8, start + 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return Long.MIN_VALUE;
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * 将"yyyy-MM-ddTHH:mm+08:00"格式的时间（和风天气逐小时预报的fxTime）解析为epoch秒
+     * 逐位读取数字，解析过程不分配对象
+     * @return epoch秒；格式不正确时返回Long.MIN_VALUE
+     */
+    public static long parseEpochSecond(String time) {
+        if (time == null || time.length() != 22 || time.charAt(10) != 'T' || time.charAt(13) != ':'
+                || time.charAt(19) != ':') {
+            return Long.MIN_VALUE;
+        }
+        long epochDay = parseEpochDay(time, 0);
+        int hour = parseDigits(time, 11, 13);
+        int minute = parseDigits(time, 14, 16);
+        int offsetHour = parseDigits(time, 17, 19);
+        int offsetMinute = parseDigits(time, 20, 22);
+        char sign = time.charAt(16);
+        if (epochDay == Long.MIN_VALUE || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || offsetHour < 0 || offsetHour > 18 || offsetMinute < 0 || offsetMinute > 59
+                || (sign != '+' && sign != '-')) {
+            return Long.MIN_VALUE;
+        }
+        int offsetSeconds = (offsetHour * 60 + offsetMinute) * 60;
+        return epochDay * 86400 + (hour * 60 + minute) * 60 - (sign == '+' ? offsetSeconds : -offsetSeconds);
+    }
+
+    /**
+     * 格式化更新时间，如"2024-05-01 08:30"
+     */
+    public static String formatUpdateTime(long timestamp) {
+        return UPDATE_TIME_FORMATTER.format(
+                Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault()));
+    }
+
+    /**
+     * 公历日期转换为自1970-01-01起的天数
+     */
+    private static long toEpochDay(int year, int month, int day) {
+        // 把1、2月视为上一年的13、14月，闰日落在年末，便于按400年周期计算
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return (long) era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int parseDigits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,462 @@
+package com.microntek.weatherapp.util;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.microntek.weatherapp.model.ObservationSeries;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * 历史天气观测存储
+ * 每个城市按分辨率保存三个只追加的二进制文件：最近48小时的原始观测、之后30天的每小时汇总、更早的每日汇总，
+ * 原始观测超过48小时后汇总为每小时记录，每小时记录超过30天后汇总为每日记录，每日记录只保留最近两年。
+ * 每条记录定长，文件按时间递增排列，范围查询时用二分查找定位，一次读出所需的连续记录。
+ * 由WeatherDataCache在写入当前天气后，在串行线程中记录
+ */
+public class WeatherHistoryStore {
+    private static final String TAG = "WeatherHistoryStore";
+    private static final String DIR_NAME = "weather_history";
+
+    // 各分辨率的文件扩展名，按时间从早到晚排列
+    private static final String SUFFIX_DAILY = ".daily";
+    private static final String SUFFIX_HOURLY = ".hourly";
+    private static final String SUFFIX_RAW = ".raw";
+    private static final String[] SUFFIXES = {SUFFIX_DAILY, SUFFIX_HOURLY, SUFFIX_RAW};
+
+    // 记录格式（大端序）：时间（epoch分钟）int、温度short、最低温度short、最高温度short、空气质量指数short、湿度byte、观测次数byte
+    private static final int RECORD_SIZE = 14;
+
+    // 保留期限与汇总粒度（分钟）
+    private static final int RAW_RETENTION_MINUTES = 48 * 60;           // 48小时
+    private static final int HOURLY_RETENTION_MINUTES = 30 * 24 * 60;   // 30天
+    private static final int MAX_DAILY_RECORDS = 730;                   // 两年
+    private static final int HOUR_MINUTES = 60;
+    private static final int DAY_MINUTES = 24 * 60;
+    // 原始观测的最小间隔，间隔更短的观测覆盖上一条记录
+    private static final int MIN_RAW_INTERVAL_MINUTES = 5;
+    // 超过保留期限一小时后才汇总，避免每次记录都重写文件
+    private static final int COMPACT_SLACK_MINUTES = 60;
+
+    // 单例模式
+    private static WeatherHistoryStore instance;
+
+    private final File directory;
+
+    // 编码单条记录的缓冲区，只在持有锁时使用
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_SIZE);
+
+    /**
+     * 获取WeatherHistoryStore实例
+     */
+    public static synchronized WeatherHistoryStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new WeatherHistoryStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private WeatherHistoryStore(Context context) {
+        directory = new File(context.getFilesDir(), DIR_NAME);
+    }
+
+    /**
+     * 记录一次当前天气观测
+     * 与上一条记录间隔不足5分钟时覆盖上一条记录，使同一次观测补充的空气质量等数据不会重复记录
+     * 由WeatherDataCache在锁内取出观测值，在串行线程中调用，避免在锁内读写文件
+     * @param cityId 城市的缓存ID
+     * @param timestamp 观测时间（毫秒）
+     * @param temperature 温度（摄氏度）
+     * @param aqi 空气质量指数，没有数据时为0或负数
+     * @param humidity 湿度百分比，超出0-100时视为没有数据
+     */
+    public synchronized void record(String cityId, long timestamp, int temperature, int aqi, int humidity) {
+        if (cityId == null) return;
+
+        Record observation = new Record();
+        observation.minute = (int) (timestamp / 60000);
+        observation.temperature = temperature;
+        observation.minTemperature = temperature;
+        observation.maxTemperature = temperature;
+        observation.aqi = aqi > 0 ? aqi : ObservationSeries.UNKNOWN;
+        observation.humidity = humidity >= 0 && humidity <= 100 ? humidity : ObservationSeries.UNKNOWN;
+        observation.count = 1;
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(TAG, "无法创建历史数据目录");
+            return;
+        }
+
+        int firstMinute;
+        try (RandomAccessFile file = new RandomAccessFile(getFile(cityId, SUFFIX_RAW), "rw")) {
+            long length = truncateToRecords(file);
+            if (length >= RECORD_SIZE) {
+                file.seek(length - RECORD_SIZE);
+                int lastMinute = file.readInt();
+                if (observation.minute < lastMinute + MIN_RAW_INTERVAL_MINUTES) {
+                    // 保留上一条记录的时间，保证文件中的时间递增
+                    observation.minute = lastMinute;
+                    length -= RECORD_SIZE;
+                }
+            }
+            file.seek(length);
+            file.write(encode(observation));
+
+            file.seek(0);
+            firstMinute = file.readInt();
+        } catch (IOException e) {
+            Log.e(TAG, "记录历史观测失败: " + e.getMessage());
+            return;
+        }
+
+        if (firstMinute < observation.minute - RAW_RETENTION_MINUTES - COMPACT_SLACK_MINUTES) {
+            compact(cityId, observation.minute);
+        }
+    }
+
+    /**
+     * 查询时间范围内的观测记录，包含两端
+     * 结果按时间递增，较早的部分为每日或每小时汇总，最近48小时为原始观测
+     * @param cityId 城市的缓存ID
+     * @param fromEpochSecond 开始时间（epoch秒）
+     * @param toEpochSecond 结束时间（epoch秒）
+     * @return 观测序列；没有记录时为空序列
+     */
+    public synchronized ObservationSeries query(String cityId, long fromEpochSecond, long toEpochSecond) {
+        ObservationSeries.Builder builder = new ObservationSeries.Builder(64);
+        if (cityId == null || fromEpochSecond > toEpochSecond) {
+            return builder.build();
+        }
+
+        // 开始时间向上取整到分钟，结束时间向下取整
+        long fromMinute = Math.floorDiv(fromEpochSecond, 60) + (Math.floorMod(fromEpochSecond, 60) > 0 ? 1 : 0);
+        long toMinute = Math.floorDiv(toEpochSecond, 60);
+        for (String suffix : SUFFIXES) {
+            File file = getFile(cityId, suffix);
+            if (!file.exists()) {
+                continue;
+            }
+            try {
+                readRange(file, fromMinute, toMinute, builder);
+            } catch (IOException e) {
+                Log.e(TAG, "读取历史观测失败: " + e.getMessage());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 删除城市的历史观测
+     */
+    public synchronized void remove(String cityId) {
+        for (String suffix : SUFFIXES) {
+            File file = getFile(cityId, suffix);
+            if (file.exists() && !file.delete()) {
+                Log.w(TAG, "删除历史数据文件失败: " + file.getName());
+            }
+        }
+    }
+
+    /**
+     * 删除所有城市的历史观测
+     */
+    public synchronized void clear() {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (!file.delete()) {
+                Log.w(TAG, "删除历史数据文件失败: " + file.getName());
+            }
+        }
+    }
+
+    /**
+     * 汇总超过保留期限的记录：原始观测汇总为每小时记录，每小时记录汇总为每日记录，并删除过旧的每日记录
+     */
+    private void compact(String cityId, int nowMinute) {
+        try {
+            File raw = getFile(cityId, SUFFIX_RAW);
+            File hourly = getFile(cityId, SUFFIX_HOURLY);
+            File daily = getFile(cityId, SUFFIX_DAILY);
+
+            moveOlderRecords(raw, hourly, bucketStart(nowMinute - RAW_RETENTION_MINUTES, HOUR_MINUTES), HOUR_MINUTES);
+            moveOlderRecords(hourly, daily, bucketStart(nowMinute - HOURLY_RETENTION_MINUTES, DAY_MINUTES), DAY_MINUTES);
+
+            List<Record> dailyRecords = readAll(daily);
+            if (dailyRecords.size() > MAX_DAILY_RECORDS) {
+                writeAll(daily, dailyRecords.subList(dailyRecords.size() - MAX_DAILY_RECORDS, dailyRecords.size()));
+            }
+            Log.d(TAG, "已汇总城市ID: " + cityId + " 的历史观测");
+        } catch (IOException e) {
+            Log.e(TAG, "汇总历史观测失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 将源文件中早于cutoff的记录按时间段汇总后追加到目标文件，源文件只保留其余记录
+     * @param cutoff 分界时间（epoch分钟），为时间段的开始
+     * @param bucketMinutes 汇总的时间段长度（分钟）
+     */
+    private void moveOlderRecords(File source, File target, int cutoff, int bucketMinutes) throws IOException {
+        List<Record> records = readAll(source);
+        int split = 0;
+        while (split < records.size() && records.get(split).minute < cutoff) {
+            split++;
+        }
+        if (split == 0) {
+            return;
+        }
+
+        // 按时间段汇总，记录已按时间递增，同一时间段的记录是连续的
+        List<Record> buckets = new ArrayList<>();
+        Record bucket = null;
+        for (int i = 0; i < split; i++) {
+            Record record = records.get(i);
+            int start = bucketStart(record.minute, bucketMinutes);
+            if (bucket == null || bucket.minute != start) {
+                bucket = new Record();
+                bucket.minute = start;
+                bucket.minTemperature = record.minTemperature;
+                bucket.maxTemperature = record.maxTemperature;
+                buckets.add(bucket);
+            }
+            bucket.merge(record);
+        }
+
+        appendAll(target, buckets);
+        writeAll(source, records.subList(split, records.size()));
+    }
+
+    /**
+     * 将汇总记录追加到文件末尾，与最后一条记录属于同一时间段或更早时合并到最后一条记录
+     */
+    private void appendAll(File file, List<Record> records) throws IOException {
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            long length = truncateToRecords(output);
+            Record last = null;
+            if (length >= RECORD_SIZE) {
+                byte[] bytes = new byte[RECORD_SIZE];
+                output.seek(length - RECORD_SIZE);
+                output.readFully(bytes);
+                last = decode(ByteBuffer.wrap(bytes));
+            }
+            for (Record record : records) {
+                if (last != null && record.minute <= last.minute) {
+                    last.merge(record);
+                    output.seek(length - RECORD_SIZE);
+                    output.write(encode(last));
+                    continue;
+                }
+                output.seek(length);
+                output.write(encode(record));
+                length += RECORD_SIZE;
+                last = record;
+            }
+        }
+    }
+
+    /**
+     * 读取文件中时间范围内的记录，添加到序列中
+     * 早于已添加记录的部分跳过，保证序列时间递增
+     */
+    private void readRange(File file, long fromMinute, long toMinute, ObservationSeries.Builder builder)
+            throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            int count = (int) (input.length() / RECORD_SIZE);
+            int start = search(input, count, fromMinute);
+            int end = search(input, count, toMinute + 1);
+            if (start >= end) {
+                return;
+            }
+
+            byte[] bytes = new byte[(end - start) * RECORD_SIZE];
+            input.seek((long) start * RECORD_SIZE);
+            input.readFully(bytes);
+
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            for (int i = start; i < end; i++) {
+                Record record = decode(buffer);
+                long epochSecond = record.minute * 60L;
+                if (epochSecond <= builder.getLastEpochSecond()) {
+                    continue;
+                }
+                builder.add(epochSecond, record.temperature, record.minTemperature, record.maxTemperature,
+                        record.aqi, record.humidity);
+            }
+        }
+    }
+
+    /**
+     * 二分查找第一条时间不早于minute的记录
+     * @return 记录序号；所有记录都更早时返回count
+     */
+    private static int search(RandomAccessFile input, int count, long minute) throws IOException {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            input.seek((long) middle * RECORD_SIZE);
+            if (input.readInt() < minute) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 去掉文件末尾不完整的记录（如写入时进程被杀死）
+     * @return 完整记录的总长度
+     */
+    private static long truncateToRecords(RandomAccessFile file) throws IOException {
+        long length = file.length();
+        long complete = length - length % RECORD_SIZE;
+        if (complete != length) {
+            file.setLength(complete);
+        }
+        return complete;
+    }
+
+    private static List<Record> readAll(File file) throws IOException {
+        List<Record> records = new ArrayList<>();
+        if (!file.exists()) {
+            return records;
+        }
+        byte[] bytes = new byte[(int) (file.length() - file.length() % RECORD_SIZE)];
+        try (FileInputStream input = new FileInputStream(file)) {
+            int read = 0;
+            while (read < bytes.length) {
+                int n = input.read(bytes, read, bytes.length - read);
+                if (n < 0) break;
+                read += n;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, read - read % RECORD_SIZE);
+            while (buffer.remaining() >= RECORD_SIZE) {
+                records.add(decode(buffer));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 用记录替换文件内容，先写入临时文件再替换，避免写入中断导致数据丢失
+     */
+    private void writeAll(File file, List<Record> records) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            for (Record record : records) {
+                output.write(encode(record));
+            }
+            output.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("替换历史数据文件失败: " + file.getName());
+        }
+    }
+
+    private byte[] encode(Record record) {
+        recordBuffer.clear();
+        recordBuffer.putInt(record.minute);
+        recordBuffer.putShort((short) record.temperature);
+        recordBuffer.putShort((short) record.minTemperature);
+        recordBuffer.putShort((short) record.maxTemperature);
+        recordBuffer.putShort((short) record.aqi);
+        recordBuffer.put((byte) record.humidity);
+        recordBuffer.put((byte) Math.min(record.count, 255));
+        return recordBuffer.array();
+    }
+
+    private static Record decode(ByteBuffer buffer) {
+        Record record = new Record();
+        record.minute = buffer.getInt();
+        record.temperature = buffer.getShort();
+        record.minTemperature = buffer.getShort();
+        record.maxTemperature = buffer.getShort();
+        record.aqi = buffer.getShort();
+        record.humidity = buffer.get();
+        record.count = Math.max(1, buffer.get() & 0xFF);
+        return record;
+    }
+
+    /**
+     * 获取时间所在时间段的开始时间，按本地时区对齐到整点或零点
+     */
+    private static int bucketStart(int minute, int bucketMinutes) {
+        int offset = TimeZone.getDefault().getOffset(minute * 60000L) / 60000;
+        return Math.floorDiv(minute + offset, bucketMinutes) * bucketMinutes - offset;
+    }
+
+    /**
+     * 城市的历史数据文件，文件名中不允许的字符替换为下划线
+     */
+    private File getFile(String cityId, String suffix) {
+        return new File(directory, cityId.replaceAll("[^A-Za-z0-9.,_-]", "_") + suffix);
+    }
+
+    /**
+     * 单条记录，汇总时按观测次数加权合并
+     */
+    private static final class Record {
+        int minute;
+        int temperature;
+        int minTemperature;
+        int maxTemperature;
+        int aqi;
+        int humidity;
+        int count;
+
+        // 合并过程中的累计值，空气质量和湿度只统计有数据的观测
+        private boolean accumulating;
+        private long temperatureSum;
+        private int aqiCount;
+        private long aqiSum;
+        private int humidityCount;
+        private long humiditySum;
+
+        /**
+         * 合并另一条记录，更新平均值与最低、最高温度
+         */
+        void merge(Record other) {
+            if (!accumulating && count > 0) {
+                // 从文件读出的记录，先将平均值还原为累计值
+                temperatureSum = (long) temperature * count;
+                if (aqi != ObservationSeries.UNKNOWN) {
+                    aqiCount = count;
+                    aqiSum = (long) aqi * count;
+                }
+                if (humidity != ObservationSeries.UNKNOWN) {
+                    humidityCount = count;
+                    humiditySum = (long) humidity * count;
+                }
+            }
+            accumulating = true;
+
+            count += other.count;
+            temperatureSum += (long) other.temperature * other.count;
+            minTemperature = Math.min(minTemperature, other.minTemperature);
+            maxTemperature = Math.max(maxTemperature, other.maxTemperature);
+            if (other.aqi != ObservationSeries.UNKNOWN) {
+                aqiCount += other.count;
+                aqiSum += (long) other.aqi * other.count;
+            }
+            if (other.humidity != ObservationSeries.UNKNOWN) {
+                humidityCount += other.count;
+                humiditySum += (long) other.humidity * other.count;
+            }
+
+            temperature = Math.round((float) temperatureSum / count);
+            aqi = aqiCount > 0 ? Math.round((float) aqiSum / aqiCount) : ObservationSeries.UNKNOWN;
+            humidity = humidityCount > 0 ? Math.round((float) humiditySum / humidityCount) : ObservationSeries.UNKNOWN;
+        }
+    }
+}
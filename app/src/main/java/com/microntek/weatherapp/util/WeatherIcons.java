@@ -0,0 +1,113 @@
+package com.microntek.weatherapp.util;
+
+import com.microntek.weatherapp.R;
+import com.microntek.weatherapp.model.WeatherCondition;
+
+/**
+ * 和风天气图标代码到图标资源的对照表
+ * 表项与res/drawable-nodpi中的icon_*图片一一对应，直接引用R.drawable常量，
+ * 图片被删除时编译即报错；新增图片时需要在这里补充一行，否则会显示默认图标
+ */
+public final class WeatherIcons {
+    // 和风天气图标代码均为三位数
+    private static final int MAX_CODE = 999;
+
+    // 默认图标：未知天气
+    public static final int DEFAULT_ICON = R.drawable.icon_399;
+
+    // 按图标代码索引的资源ID，0表示没有对应图片
+    private static final int[] ICONS = new int[MAX_CODE + 1];
+
+    static {
+        ICONS[100] = R.drawable.icon_100;
+        ICONS[101] = R.drawable.icon_101;
+        ICONS[102] = R.drawable.icon_102;
+        ICONS[103] = R.drawable.icon_103;
+        ICONS[104] = R.drawable.icon_104;
+        ICONS[150] = R.drawable.icon_150;
+        ICONS[151] = R.drawable.icon_151;
+        ICONS[152] = R.drawable.icon_152;
+        ICONS[153] = R.drawable.icon_153;
+        ICONS[300] = R.drawable.icon_300;
+        ICONS[301] = R.drawable.icon_301;
+        ICONS[302] = R.drawable.icon_302;
+        ICONS[303] = R.drawable.icon_303;
+        ICONS[304] = R.drawable.icon_304;
+        ICONS[305] = R.drawable.icon_305;
+        ICONS[306] = R.drawable.icon_306;
+        ICONS[307] = R.drawable.icon_307;
+        ICONS[308] = R.drawable.icon_308;
+        ICONS[309] = R.drawable.icon_309;
+        ICONS[310] = R.drawable.icon_310;
+        ICONS[311] = R.drawable.icon_311;
+        ICONS[312] = R.drawable.icon_312;
+        ICONS[313] = R.drawable.icon_313;
+        ICONS[314] = R.drawable.icon_314;
+        ICONS[315] = R.drawable.icon_315;
+        ICONS[316] = R.drawable.icon_316;
+        ICONS[317] = R.drawable.icon_317;
+        ICONS[318] = R.drawable.icon_318;
+        ICONS[350] = R.drawable.icon_350;
+        ICONS[351] = R.drawable.icon_351;
+        ICONS[399] = R.drawable.icon_399;
+        ICONS[400] = R.drawable.icon_400;
+        ICONS[401] = R.drawable.icon_401;
+        ICONS[402] = R.drawable.icon_402;
+        ICONS[403] = R.drawable.icon_403;
+        ICONS[404] = R.drawable.icon_404;
+        ICONS[405] = R.drawable.icon_405;
+        ICONS[406] = R.drawable.icon_406;
+        ICONS[407] = R.drawable.icon_407;
+        ICONS[408] = R.drawable.icon_408;
+        ICONS[409] = R.drawable.icon_409;
+        ICONS[410] = R.drawable.icon_410;
+        ICONS[456] = R.drawable.icon_456;
+        ICONS[457] = R.drawable.icon_457;
+        ICONS[499] = R.drawable.icon_499;
+        ICONS[500] = R.drawable.icon_500;
+        ICONS[501] = R.drawable.icon_501;
+        ICONS[502] = R.drawable.icon_502;
+        ICONS[503] = R.drawable.icon_503;
+        ICONS[504] = R.drawable.icon_504;
+        ICONS[507] = R.drawable.icon_507;
+        ICONS[508] = R.drawable.icon_508;
+        ICONS[509] = R.drawable.icon_509;
+        ICONS[510] = R.drawable.icon_510;
+        ICONS[511] = R.drawable.icon_511;
+        ICONS[512] = R.drawable.icon_512;
+        ICONS[513] = R.drawable.icon_513;
+        ICONS[514] = R.drawable.icon_514;
+        ICONS[515] = R.drawable.icon_515;
+        ICONS[900] = R.drawable.icon_900;
+        ICONS[901] = R.drawable.icon_901;
+        ICONS[999] = R.drawable.icon_999;
+    }
+
+    private WeatherIcons() {
+    }
+
+    /**
+     * 根据图标代码获取图标资源ID，没有对应图片时返回默认图标
+     */
+    public static int getIconResource(String iconCode) {
+        return getIconResource(WeatherCondition.parseCode(iconCode));
+    }
+
+    /**
+     * 根据整数图标代码获取图标资源ID，没有对应图片时返回默认图标
+     */
+    public static int getIconResource(int code) {
+        if (code < 0 || code > MAX_CODE || ICONS[code] == 0) {
+            return DEFAULT_ICON;
+        }
+        return ICONS[code];
+    }
+
+    /**
+     * 图标代码是否有对应的图片
+     */
+    public static boolean hasIcon(String iconCode) {
+        int code = WeatherCondition.parseCode(iconCode);
+        return code >= 0 && code <= MAX_CODE && ICONS[code] != 0;
+    }
+}
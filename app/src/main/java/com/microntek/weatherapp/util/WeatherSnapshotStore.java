@@ -0,0 +1,105 @@
+package com.microntek.weatherapp.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.microntek.weatherapp.model.Weather;
+import com.microntek.weatherapp.model.WeatherSnapshot;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 天气快照持久化存储
+ * 每个城市只保存广播/小部件需要的少量字段，读取时不必解析完整的天气缓存；
+ * 由WeatherDataCache在写入当前天气后，在串行线程中更新
+ */
+public class WeatherSnapshotStore {
+    private static final String TAG = "WeatherSnapshotStore";
+    private static final String PREFS_NAME = "weather_snapshots";
+
+    // 单例模式
+    private static WeatherSnapshotStore instance;
+
+    private final SharedPreferences preferences;
+    private final Gson gson = new Gson();
+
+    // 已读取过的快照，避免重复解析
+    private final Map<String, WeatherSnapshot> snapshots = new HashMap<>();
+
+    /**
+     * 获取WeatherSnapshotStore实例
+     */
+    public static synchronized WeatherSnapshotStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new WeatherSnapshotStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private WeatherSnapshotStore(Context context) {
+        preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * 保存城市的最新天气快照
+     * @param cacheId 城市的缓存ID
+     * @param snapshot 由 {@link WeatherSnapshot#from(String, Weather)} 生成的快照
+     * @return 显示内容是否与之前保存的不同
+     */
+    public synchronized boolean put(String cacheId, WeatherSnapshot snapshot) {
+        WeatherSnapshot previous = get(cacheId);
+
+        snapshots.put(cacheId, snapshot);
+        preferences.edit().putString(cacheId, gson.toJson(snapshot)).apply();
+
+        return !snapshot.hasSameContent(previous);
+    }
+
+    /**
+     * 获取城市的天气快照
+     * @param cacheId 城市的缓存ID
+     * @return 快照；没有保存过时返回null
+     */
+    public synchronized WeatherSnapshot get(String cacheId) {
+        if (cacheId == null) return null;
+
+        WeatherSnapshot snapshot = snapshots.get(cacheId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        String json = preferences.getString(cacheId, null);
+        if (json == null) {
+            return null;
+        }
+        try {
+            snapshot = gson.fromJson(json, WeatherSnapshot.class);
+            snapshots.put(cacheId, snapshot);
+            return snapshot;
+        } catch (JsonSyntaxException e) {
+            Log.e(TAG, "快照解析失败: " + e.getMessage());
+            preferences.edit().remove(cacheId).apply();
+            return null;
+        }
+    }
+
+    /**
+     * 删除城市的天气快照
+     */
+    public synchronized void remove(String cacheId) {
+        snapshots.remove(cacheId);
+        preferences.edit().remove(cacheId).apply();
+    }
+
+    /**
+     * 删除所有天气快照
+     */
+    public synchronized void clear() {
+        snapshots.clear();
+        preferences.edit().clear().apply();
+    }
+}
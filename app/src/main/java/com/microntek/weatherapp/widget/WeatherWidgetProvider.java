@@ -6,87 +6,361 @@ import android.appwidget.AppWidgetProvider;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.text.TextUtils;
 import android.util.Log;
+import android.util.SparseBooleanArray;
+import android.util.SparseLongArray;
 import android.widget.RemoteViews;
 
+import com.google.gson.Gson;
 import com.microntek.weatherapp.MainActivity;
 import com.microntek.weatherapp.R;
 import com.microntek.weatherapp.api.WeatherApi;
+import com.microntek.weatherapp.model.City;
+import com.microntek.weatherapp.model.WeatherSnapshot;
+import com.microntek.weatherapp.service.WeatherRefreshScheduler;
+import com.microntek.weatherapp.util.CityPreferences;
+import com.microntek.weatherapp.util.ExecutorManager;
+import com.microntek.weatherapp.util.WeatherDataHelper;
+import com.microntek.weatherapp.util.WeatherSnapshotStore;
+
+import java.util.List;
 
 /**
  * 天气小部件提供者
- * 负责接收天气数据广播并更新小部件显示
+ * 直接从WeatherSnapshotStore中持久化的快照绘制，不需要天气服务参与；
+ * 只对变化的字段调用partiallyUpdateAppWidget，并限制每个小部件的重绘频率。
+ * 每个小部件可以显示不同的已保存城市（点击城市名称切换），未指定时跟随当前城市
  */
 public class WeatherWidgetProvider extends AppWidgetProvider {
     private static final String TAG = "WeatherWidgetProvider";
-    
+
+    // 城市快照内容变化，extra为城市缓存ID
+    private static final String ACTION_SNAPSHOT_CHANGED = "com.microntek.weatherapp.widget.SNAPSHOT_CHANGED";
+    // 切换小部件显示的城市
+    private static final String ACTION_NEXT_CITY = "com.microntek.weatherapp.widget.NEXT_CITY";
+    private static final String EXTRA_CACHE_ID = "cache_id";
+
+    // 同一个小部件两次重绘之间的最短间隔
+    private static final long MIN_RENDER_INTERVAL_MILLIS = 10 * 1000;
+
+    private static final String PREFS_NAME = "widget_prefs";
+    private static final String KEY_PREFIX_CITY = "city_";
+    private static final String KEY_PREFIX_RENDERED = "rendered_";
+
+    private static final Gson gson = new Gson();
+
+    // 每个小部件最近一次重绘的时间和是否有等待中的重绘，只在共享的单线程执行器上访问
+    private static final SparseLongArray lastRenderTimes = new SparseLongArray();
+    private static final SparseBooleanArray pendingRenders = new SparseBooleanArray();
+
+    /**
+     * 城市天气快照变化后调用，通知显示该城市的小部件重绘
+     * cacheId为null表示当前城市已切换，重绘跟随当前城市的小部件；没有放置小部件时不发送广播
+     */
+    public static void requestUpdate(Context context, String cacheId) {
+        int[] appWidgetIds = getAppWidgetIds(context);
+        if (appWidgetIds == null || appWidgetIds.length == 0) {
+            return;
+        }
+        Intent intent = new Intent(context, WeatherWidgetProvider.class);
+        intent.setAction(ACTION_SNAPSHOT_CHANGED);
+        intent.putExtra(EXTRA_CACHE_ID, cacheId);
+        context.sendBroadcast(intent);
+    }
+
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-        // 更新所有小部件
-        for (int appWidgetId : appWidgetIds) {
-            // 创建RemoteViews
-            RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_weather);
-            
-            // 设置点击事件
-            Intent mainIntent = new Intent(context, MainActivity.class);
-            PendingIntent pendingIntent = PendingIntent.getActivity(context, 0, mainIntent, 0);
-            views.setOnClickPendingIntent(R.id.widget_layout, pendingIntent);
-            
-            // 更新小部件
-            appWidgetManager.updateAppWidget(appWidgetId, views);
-        }
-        
-        // 请求天气数据更新
-        Intent updateIntent = new Intent("com.microntek.weatherapp.REQUEST_UPDATE");
-        context.sendBroadcast(updateIntent);
-        Log.d(TAG, "发送天气数据更新请求");
+        // 宿主要求完整更新（添加小部件、宿主重启），直接使用本地快照绘制
+        runAsync(context, appContext -> {
+            boolean missingData = false;
+            for (int appWidgetId : appWidgetIds) {
+                if (!render(appContext, appWidgetManager, appWidgetId, true)) {
+                    missingData = true;
+                }
+            }
+
+            // 本地还没有数据时，由定时刷新作业在有网络时获取
+            if (missingData) {
+                WeatherRefreshScheduler.scheduleNext(appContext);
+            }
+        });
+    }
+
+    @Override
+    public void onDeleted(Context context, int[] appWidgetIds) {
+        runAsync(context, appContext -> {
+            SharedPreferences.Editor editor = getPreferences(appContext).edit();
+            for (int appWidgetId : appWidgetIds) {
+                editor.remove(KEY_PREFIX_CITY + appWidgetId).remove(KEY_PREFIX_RENDERED + appWidgetId);
+                lastRenderTimes.delete(appWidgetId);
+            }
+            editor.apply();
+        });
     }
-    
+
     @Override
     public void onReceive(Context context, Intent intent) {
         super.onReceive(context, intent);
-        
-        // 接收天气数据广播
-        if ("com.microntek.weatherapp.WEATHER_DATA".equals(intent.getAction())) {
-            Log.d(TAG, "收到天气数据广播");
-            
-            // 获取广播中的天气数据
-            String cityName = intent.getStringExtra("city_name");
-            int currentTemp = intent.getIntExtra("current_temp", 0);
-            int highTemp = intent.getIntExtra("high_temp", 0);
-            int lowTemp = intent.getIntExtra("low_temp", 0);
-            String weatherDesc = intent.getStringExtra("weather_desc");
-            String weatherIcon = intent.getStringExtra("weather_icon");
-            int aqi = intent.getIntExtra("aqi", 0);
-            String airQuality = intent.getStringExtra("air_quality");
-            
-            // 更新所有小部件
-            AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
-            ComponentName thisWidget = new ComponentName(context, WeatherWidgetProvider.class);
-            int[] appWidgetIds = appWidgetManager.getAppWidgetIds(thisWidget);
-            
-            for (int appWidgetId : appWidgetIds) {
-                // 创建RemoteViews
-                RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_weather);
-                
-                try {
-                    // 更新UI
-                    views.setTextViewText(R.id.widget_city, cityName);
-                    views.setTextViewText(R.id.widget_current_temp, currentTemp + "°");
-                    views.setTextViewText(R.id.widget_temp_range, highTemp + "°/" + lowTemp + "°");
-                    views.setTextViewText(R.id.widget_weather_desc, weatherDesc);
-                    views.setTextViewText(R.id.widget_air_quality, "空气质量: " + airQuality + "(" + aqi + ")");
-                    views.setImageViewResource(R.id.widget_weather_icon, 
-                        WeatherApi.getWeatherIconResource(weatherIcon));
-                    
-                    // 更新小部件
-                    appWidgetManager.updateAppWidget(appWidgetId, views);
-                    
-                    Log.d(TAG, "小部件更新成功: " + appWidgetId);
-                } catch (Exception e) {
-                    Log.e(TAG, "更新小部件失败: " + e.getMessage());
+
+        String action = intent.getAction();
+        if (ACTION_SNAPSHOT_CHANGED.equals(action)) {
+            String cacheId = intent.getStringExtra(EXTRA_CACHE_ID);
+            runAsync(context, appContext -> {
+                for (int appWidgetId : getAppWidgetIds(appContext)) {
+                    // 当前城市切换时检查所有小部件（跟随当前城市或指定城市已被删除的会变化），
+                    // 否则只重绘显示该城市的小部件；内容未变的小部件不会真正提交更新
+                    boolean affected = cacheId == null;
+                    if (!affected) {
+                        City city = resolveCity(appContext, appWidgetId);
+                        affected = city != null && TextUtils.equals(cacheId, WeatherDataHelper.getCacheId(city));
+                    }
+                    if (affected) {
+                        scheduleRender(appContext, appWidgetId);
+                    }
                 }
+            });
+        } else if (ACTION_NEXT_CITY.equals(action)) {
+            int appWidgetId = intent.getIntExtra(AppWidgetManager.EXTRA_APPWIDGET_ID,
+                    AppWidgetManager.INVALID_APPWIDGET_ID);
+            if (appWidgetId != AppWidgetManager.INVALID_APPWIDGET_ID) {
+                runAsync(context, appContext -> {
+                    switchToNextCity(appContext, appWidgetId);
+                    // 用户操作，立即重绘
+                    render(appContext, AppWidgetManager.getInstance(appContext), appWidgetId, false);
+                });
+            }
+        }
+    }
+
+    /**
+     * 在共享的单线程执行器上处理广播，读取偏好设置和缓存不占用主线程
+     */
+    private void runAsync(Context context, WidgetTask task) {
+        final PendingResult result = goAsync();
+        final Context appContext = context.getApplicationContext();
+        ExecutorManager.executeSingle(() -> {
+            try {
+                task.run(appContext);
+            } catch (Exception e) {
+                Log.e(TAG, "处理小部件更新失败: " + e.getMessage(), e);
+            } finally {
+                result.finish();
+            }
+        }, "WIDGET_RENDER");
+    }
+
+    private interface WidgetTask {
+        void run(Context context);
+    }
+
+    /**
+     * 按频率限制安排重绘：距上次重绘不足最短间隔时延迟执行，期间的多次请求合并为一次
+     */
+    private static void scheduleRender(Context context, int appWidgetId) {
+        long wait = lastRenderTimes.get(appWidgetId, 0) + MIN_RENDER_INTERVAL_MILLIS - SystemClock.uptimeMillis();
+        if (lastRenderTimes.indexOfKey(appWidgetId) < 0 || wait <= 0) {
+            render(context, AppWidgetManager.getInstance(context), appWidgetId, false);
+            return;
+        }
+        if (pendingRenders.get(appWidgetId)) {
+            return;
+        }
+
+        pendingRenders.put(appWidgetId, true);
+        ExecutorManager.getMainHandler().postDelayed(() -> ExecutorManager.executeSingle(() -> {
+            pendingRenders.delete(appWidgetId);
+            render(context, AppWidgetManager.getInstance(context), appWidgetId, false);
+        }, "WIDGET_RENDER"), wait);
+    }
+
+    /**
+     * 绘制小部件
+     * @param fullUpdate 是否完整更新；否则只提交与上次绘制不同的字段
+     * @return 是否有可显示的天气数据
+     */
+    private static boolean render(Context context, AppWidgetManager appWidgetManager,
+                                  int appWidgetId, boolean fullUpdate) {
+        lastRenderTimes.put(appWidgetId, SystemClock.uptimeMillis());
+
+        City city = resolveCity(context, appWidgetId);
+        WeatherSnapshot snapshot = city != null
+                ? WeatherSnapshotStore.getInstance(context).get(WeatherDataHelper.getCacheId(city))
+                : null;
+        WidgetContent content = WidgetContent.from(city, snapshot);
+
+        SharedPreferences preferences = getPreferences(context);
+        WidgetContent previous = fullUpdate ? null : loadRendered(preferences, appWidgetId);
+
+        try {
+            RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_weather);
+            if (previous == null) {
+                // 完整更新需要包含所有字段和点击事件
+                content.applyTo(views, null);
+                setClickIntents(context, views, appWidgetId);
+                appWidgetManager.updateAppWidget(appWidgetId, views);
+                Log.d(TAG, "小部件完整更新: " + appWidgetId);
+            } else {
+                int changed = content.applyTo(views, previous);
+                if (changed == 0) {
+                    return snapshot != null;
+                }
+                appWidgetManager.partiallyUpdateAppWidget(appWidgetId, views);
+                Log.d(TAG, "小部件部分更新: " + appWidgetId + "，" + changed + " 个字段");
+            }
+            preferences.edit().putString(KEY_PREFIX_RENDERED + appWidgetId, gson.toJson(content)).apply();
+        } catch (Exception e) {
+            Log.e(TAG, "更新小部件失败: " + e.getMessage());
+        }
+        return snapshot != null;
+    }
+
+    private static void setClickIntents(Context context, RemoteViews views, int appWidgetId) {
+        // 点击小部件打开应用
+        Intent mainIntent = new Intent(context, MainActivity.class);
+        PendingIntent pendingIntent = PendingIntent.getActivity(context, 0, mainIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        views.setOnClickPendingIntent(R.id.widget_layout, pendingIntent);
+
+        // 点击城市名称切换城市
+        Intent nextCityIntent = new Intent(context, WeatherWidgetProvider.class);
+        nextCityIntent.setAction(ACTION_NEXT_CITY);
+        nextCityIntent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, appWidgetId);
+        PendingIntent nextCityPendingIntent = PendingIntent.getBroadcast(context, appWidgetId, nextCityIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        views.setOnClickPendingIntent(R.id.widget_city, nextCityPendingIntent);
+    }
+
+    /**
+     * 获取小部件显示的城市：指定的城市仍在已保存列表中时使用它，否则跟随当前城市
+     */
+    private static City resolveCity(Context context, int appWidgetId) {
+        CityPreferences cityPreferences = new CityPreferences(context);
+        String cityJson = getPreferences(context).getString(KEY_PREFIX_CITY + appWidgetId, null);
+        if (cityJson != null) {
+            City city = gson.fromJson(cityJson, City.class);
+            for (City savedCity : cityPreferences.getSavedCities()) {
+                if (savedCity.getId().equals(city.getId())) {
+                    return savedCity;
+                }
+            }
+        }
+        return cityPreferences.getCurrentCity();
+    }
+
+    /**
+     * 切换小部件到下一个已保存的城市
+     */
+    private static void switchToNextCity(Context context, int appWidgetId) {
+        List<City> cities = new CityPreferences(context).getSavedCities();
+        if (cities.isEmpty()) {
+            return;
+        }
+
+        City city = resolveCity(context, appWidgetId);
+        int index = 0;
+        if (city != null) {
+            for (int i = 0; i < cities.size(); i++) {
+                if (cities.get(i).getId().equals(city.getId())) {
+                    index = (i + 1) % cities.size();
+                    break;
+                }
+            }
+        }
+
+        City nextCity = cities.get(index);
+        getPreferences(context).edit()
+                .putString(KEY_PREFIX_CITY + appWidgetId, gson.toJson(nextCity))
+                .apply();
+        Log.d(TAG, "小部件 " + appWidgetId + " 切换到城市: " + nextCity.getName());
+    }
+
+    private static int[] getAppWidgetIds(Context context) {
+        return AppWidgetManager.getInstance(context).getAppWidgetIds(
+                new ComponentName(context, WeatherWidgetProvider.class));
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static WidgetContent loadRendered(SharedPreferences preferences, int appWidgetId) {
+        String json = preferences.getString(KEY_PREFIX_RENDERED + appWidgetId, null);
+        if (json == null) {
+            return null;
+        }
+        try {
+            return gson.fromJson(json, WidgetContent.class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 小部件上显示的文本和图标，保存上次绘制的内容用于比较变化的字段
+     */
+    private static class WidgetContent {
+        String cityName;
+        String currentTemp;
+        String tempRange;
+        String weatherDesc;
+        String airQuality;
+        String weatherIcon;
+
+        static WidgetContent from(City city, WeatherSnapshot snapshot) {
+            WidgetContent content = new WidgetContent();
+            content.cityName = city != null ? city.getName() : "请添加城市";
+            if (snapshot == null) {
+                content.currentTemp = "--°";
+                content.tempRange = "--°/--°";
+                content.weatherDesc = "暂无数据";
+                content.airQuality = "";
+                content.weatherIcon = "";
+            } else {
+                content.currentTemp = snapshot.getCurrentTemp() + "°";
+                content.tempRange = snapshot.getHighTemp() + "°/" + snapshot.getLowTemp() + "°";
+                content.weatherDesc = snapshot.getWeatherDesc();
+                content.airQuality = "空气质量: " + snapshot.getAirQuality() + "(" + snapshot.getAqi() + ")";
+                content.weatherIcon = snapshot.getWeatherIcon();
+            }
+            return content;
+        }
+
+        /**
+         * 将与上次绘制不同的字段写入RemoteViews
+         * @param previous 上次绘制的内容，为null时写入全部字段
+         * @return 写入的字段数
+         */
+        int applyTo(RemoteViews views, WidgetContent previous) {
+            int changed = 0;
+            if (previous == null || !TextUtils.equals(cityName, previous.cityName)) {
+                views.setTextViewText(R.id.widget_city, cityName);
+                changed++;
+            }
+            if (previous == null || !TextUtils.equals(currentTemp, previous.currentTemp)) {
+                views.setTextViewText(R.id.widget_current_temp, currentTemp);
+                changed++;
+            }
+            if (previous == null || !TextUtils.equals(tempRange, previous.tempRange)) {
+                views.setTextViewText(R.id.widget_temp_range, tempRange);
+                changed++;
+            }
+            if (previous == null || !TextUtils.equals(weatherDesc, previous.weatherDesc)) {
+                views.setTextViewText(R.id.widget_weather_desc, weatherDesc);
+                changed++;
+            }
+            if (previous == null || !TextUtils.equals(airQuality, previous.airQuality)) {
+                views.setTextViewText(R.id.widget_air_quality, airQuality);
+                changed++;
+            }
+            if (previous == null || !TextUtils.equals(weatherIcon, previous.weatherIcon)) {
+                views.setImageViewResource(R.id.widget_weather_icon,
+                        WeatherApi.getWeatherIconResource(weatherIcon));
+                changed++;
             }
+            return changed;
         }
     }
-} 
\ No newline at end of file
+}
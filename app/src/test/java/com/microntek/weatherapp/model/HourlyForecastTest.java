@@ -0,0 +1,94 @@
+package com.microntek.weatherapp.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+import org.junit.Test;
+
+public class HourlyForecastTest {
+
+    private static final long START = 1714521600L;
+
+    private final Gson gson = new Gson();
+
+    private static HourlyForecast sample() {
+        return new HourlyForecast.Builder(2)
+                .add(START, 21, 10, 12, 90, 100)
+                .add(START + 3600, -3, HourlyForecast.UNKNOWN, 0, HourlyForecast.UNKNOWN, 305)
+                .add(START + 7200, 18, 100, 35, 359, 399)
+                .build();
+    }
+
+    @Test
+    public void roundTripsThroughCacheFormat() {
+        HourlyForecast forecast = sample();
+        HourlyForecast restored = gson.fromJson(gson.toJson(forecast), HourlyForecast.class);
+
+        assertEquals(forecast.size(), restored.size());
+        for (int i = 0; i < forecast.size(); i++) {
+            assertEquals(forecast.getEpochSecond(i), restored.getEpochSecond(i));
+            assertEquals(forecast.getTemperature(i), restored.getTemperature(i));
+            assertEquals(forecast.getPrecipitationProbability(i), restored.getPrecipitationProbability(i));
+            assertEquals(forecast.getWindSpeed(i), restored.getWindSpeed(i));
+            assertEquals(forecast.getWindDirection(i), restored.getWindDirection(i));
+            assertEquals(forecast.getConditionCode(i), restored.getConditionCode(i));
+        }
+        assertEquals(HourlyForecast.UNKNOWN, restored.getPrecipitationProbability(1));
+        assertEquals(HourlyForecast.UNKNOWN, restored.getWindDirection(1));
+    }
+
+    @Test
+    public void writesTimesAsDeltas() {
+        String json = gson.toJson(sample());
+        assertTrue(json, json.contains("\"time\":[" + START + ",3600,3600]"));
+    }
+
+    @Test
+    public void roundTripsEmptyAndNull() {
+        HourlyForecast empty = new HourlyForecast.Builder(24).build();
+        assertEquals(0, gson.fromJson(gson.toJson(empty), HourlyForecast.class).size());
+        assertNull(gson.fromJson("null", HourlyForecast.class));
+    }
+
+    @Test
+    public void rejectsCorruptCache() {
+        String[] corrupt = {
+                // 缺少数据列
+                "{\"time\":[" + START + "],\"temp\":[1],\"pop\":[1],\"windSpeed\":[1],\"windDir\":[1]}",
+                // 列长度不一致
+                "{\"time\":[" + START + ",3600],\"temp\":[1],\"pop\":[1,2],\"windSpeed\":[1,2],"
+                        + "\"windDir\":[1,2],\"code\":[100,101]}",
+                // 时间不递增
+                "{\"time\":[" + START + ",0],\"temp\":[1,2],\"pop\":[1,2],\"windSpeed\":[1,2],"
+                        + "\"windDir\":[1,2],\"code\":[100,101]}",
+                "{\"time\":[" + START + ",-3600],\"temp\":[1,2],\"pop\":[1,2],\"windSpeed\":[1,2],"
+                        + "\"windDir\":[1,2],\"code\":[100,101]}",
+                // 截断
+                "{\"time\":[" + START + ",3600],\"temp\":[1,",
+                "{\"time\":[\"abc\"]}",
+        };
+        for (String json : corrupt) {
+            try {
+                gson.fromJson(json, HourlyForecast.class);
+                fail("应拒绝损坏的缓存: " + json);
+            } catch (JsonSyntaxException expected) {
+                // 缓存损坏时由调用方丢弃缓存
+            }
+        }
+    }
+
+    @Test
+    public void indexOfFindsContainingHour() {
+        HourlyForecast forecast = sample();
+        assertEquals(0, forecast.indexOf(START - 60));
+        assertEquals(0, forecast.indexOf(START));
+        assertEquals(1, forecast.indexOf(START + 3600 + 1800));
+        assertEquals(2, forecast.indexOf(START + 86400));
+        assertEquals(-1, new HourlyForecast.Builder(1).build().indexOf(START));
+    }
+}
@@ -0,0 +1,160 @@
+package com.microntek.weatherapp.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+public class PrecipitationNowcastTest {
+
+    private static final long START = 1714521600L;
+    private static final int SLOT = PrecipitationNowcast.SLOT_SECONDS;
+
+    @Test
+    public void emptyNowcastHasNoPrecipitation() {
+        PrecipitationNowcast nowcast = new PrecipitationNowcast();
+        assertEquals(PrecipitationNowcast.NO_PRECIPITATION, nowcast.minutesUntilPrecipitation(START));
+        assertEquals(PrecipitationNowcast.TYPE_UNKNOWN, nowcast.getUpcomingPrecipitationType(START));
+        assertEquals(0, nowcast.getUpdateTime());
+    }
+
+    @Test
+    public void findsFirstSlotWithPrecipitation() {
+        PrecipitationNowcast nowcast = new PrecipitationNowcast();
+        for (int i = 0; i < PrecipitationNowcast.SLOT_COUNT; i++) {
+            nowcast.put(START + (long) i * SLOT, i == 6 ? 25 : 0, PrecipitationNowcast.TYPE_SNOW);
+        }
+        assertEquals(30, nowcast.minutesUntilPrecipitation(START));
+        assertEquals(PrecipitationNowcast.TYPE_SNOW, nowcast.getUpcomingPrecipitationType(START));
+        // 时段开始前不足一分钟时向下取整
+        assertEquals(0, nowcast.minutesUntilPrecipitation(START + 6 * SLOT - 30));
+        // 时段进行中视为正在降水
+        assertEquals(0, nowcast.minutesUntilPrecipitation(START + 6 * SLOT + 120));
+        // 降水时段已经过去
+        assertEquals(PrecipitationNowcast.NO_PRECIPITATION, nowcast.minutesUntilPrecipitation(START + 7 * SLOT));
+        // 当前时间早于预报开始
+        assertEquals(40, nowcast.minutesUntilPrecipitation(START - 600));
+    }
+
+    @Test
+    public void zeroAmountAndNegativeAmountAreNotPrecipitation() {
+        PrecipitationNowcast nowcast = new PrecipitationNowcast();
+        nowcast.put(START, 0, PrecipitationNowcast.TYPE_RAIN);
+        nowcast.put(START + SLOT, -5, PrecipitationNowcast.TYPE_RAIN);
+        assertEquals(PrecipitationNowcast.NO_PRECIPITATION, nowcast.minutesUntilPrecipitation(START));
+    }
+
+    @Test
+    public void ignoresSlotsBeforeTheHead() {
+        PrecipitationNowcast nowcast = new PrecipitationNowcast();
+        nowcast.put(START, 0, PrecipitationNowcast.TYPE_RAIN);
+        nowcast.put(START - SLOT, 50, PrecipitationNowcast.TYPE_RAIN);
+        assertEquals(PrecipitationNowcast.NO_PRECIPITATION, nowcast.minutesUntilPrecipitation(START - SLOT));
+    }
+
+    @Test
+    public void advancesPastTheWindowAndWrapsAround() {
+        PrecipitationNowcast nowcast = new PrecipitationNowcast();
+        nowcast.put(START, 10, PrecipitationNowcast.TYPE_RAIN);
+        // 超出预报范围一个时段，最早的时段被淘汰
+        long last = START + (long) PrecipitationNowcast.SLOT_COUNT * SLOT;
+        nowcast.put(last, 20, PrecipitationNowcast.TYPE_SNOW);
+        assertEquals((int) ((last - START) / 60), nowcast.minutesUntilPrecipitation(START));
+        assertEquals(PrecipitationNowcast.TYPE_SNOW, nowcast.getUpcomingPrecipitationType(START));
+
+        // 绕过环形缓冲区末尾后继续推进，被淘汰的位置不保留旧数据
+        for (int i = 1; i <= 30; i++) {
+            nowcast.put(last + (long) i * SLOT, 0, PrecipitationNowcast.TYPE_RAIN);
+        }
+        assertEquals(PrecipitationNowcast.NO_PRECIPITATION, nowcast.minutesUntilPrecipitation(last));
+    }
+
+    @Test
+    public void resetsWhenNewForecastDoesNotOverlap() {
+        PrecipitationNowcast nowcast = new PrecipitationNowcast();
+        nowcast.put(START, 10, PrecipitationNowcast.TYPE_RAIN);
+        long later = START + 10L * PrecipitationNowcast.SLOT_COUNT * SLOT;
+        nowcast.put(later + SLOT, 30, PrecipitationNowcast.TYPE_SNOW);
+        assertEquals(5, nowcast.minutesUntilPrecipitation(later));
+        assertEquals(PrecipitationNowcast.TYPE_SNOW, nowcast.getUpcomingPrecipitationType(START));
+    }
+
+    @Test
+    public void newForecastOverwritesOverlappingSlots() {
+        PrecipitationNowcast nowcast = new PrecipitationNowcast();
+        for (int i = 0; i < PrecipitationNowcast.SLOT_COUNT; i++) {
+            nowcast.put(START + (long) i * SLOT, i == 4 ? 40 : 0, PrecipitationNowcast.TYPE_RAIN);
+        }
+        // 10分钟后的新预报：原来20分钟后的降水取消，改为在新范围末尾降雪
+        long next = START + 2 * SLOT;
+        for (int i = 0; i < PrecipitationNowcast.SLOT_COUNT; i++) {
+            boolean snow = i == PrecipitationNowcast.SLOT_COUNT - 1;
+            nowcast.put(next + (long) i * SLOT, snow ? 15 : 0,
+                    snow ? PrecipitationNowcast.TYPE_SNOW : PrecipitationNowcast.TYPE_RAIN);
+        }
+        assertEquals((PrecipitationNowcast.SLOT_COUNT - 1) * SLOT / 60, nowcast.minutesUntilPrecipitation(next));
+        assertEquals(PrecipitationNowcast.TYPE_SNOW, nowcast.getUpcomingPrecipitationType(next));
+    }
+
+    @Test
+    public void copyFromAndClear() {
+        PrecipitationNowcast published = new PrecipitationNowcast();
+        published.put(START + 3 * SLOT, 10, PrecipitationNowcast.TYPE_RAIN);
+        published.markUpdated(1000);
+
+        PrecipitationNowcast buffer = new PrecipitationNowcast();
+        buffer.put(START, 99, PrecipitationNowcast.TYPE_SNOW);
+        buffer.copyFrom(published);
+        assertEquals(0, buffer.minutesUntilPrecipitation(START + 3 * SLOT));
+        assertEquals(PrecipitationNowcast.TYPE_RAIN, buffer.getUpcomingPrecipitationType(START));
+        assertEquals(1000, buffer.getUpdateTime());
+
+        // 写入复制的缓冲区不影响已发布的预报
+        buffer.put(START + 3 * SLOT, 0, PrecipitationNowcast.TYPE_RAIN);
+        assertEquals(PrecipitationNowcast.NO_PRECIPITATION, buffer.minutesUntilPrecipitation(START));
+        assertEquals(0, published.minutesUntilPrecipitation(START + 3 * SLOT));
+
+        buffer.clear();
+        assertEquals(0, buffer.getUpdateTime());
+        assertEquals(PrecipitationNowcast.NO_PRECIPITATION, buffer.minutesUntilPrecipitation(START));
+        // 清空后以新写入的时段作为最早的时段
+        buffer.put(START - 4 * SLOT, 10, PrecipitationNowcast.TYPE_RAIN);
+        assertEquals(0, buffer.minutesUntilPrecipitation(START - 4 * SLOT));
+    }
+
+    @Test
+    public void refreshingDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        PrecipitationNowcast[] buffers = {new PrecipitationNowcast(), new PrecipitationNowcast()};
+        int published = 0;
+        int iterations = 10000;
+        long threadId = Thread.currentThread().getId();
+
+        long sum = 0;
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            // 与缓存的刷新过程相同：复制已发布的预报，写入新预报后交换
+            PrecipitationNowcast buffer = buffers[1 - published];
+            buffer.copyFrom(buffers[published]);
+            long start = START + (long) i * SLOT;
+            for (int slot = 0; slot < PrecipitationNowcast.SLOT_COUNT; slot++) {
+                buffer.put(start + (long) slot * SLOT, (i + slot) % 7, PrecipitationNowcast.TYPE_RAIN);
+            }
+            buffer.markUpdated(i);
+            published = 1 - published;
+            sum += buffers[published].minutesUntilPrecipitation(start);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(sum != 0);
+        assertTrue("刷新分配了 " + allocated + " 字节", allocated < iterations);
+    }
+}
@@ -0,0 +1,67 @@
+package com.microntek.weatherapp.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class PinyinMatcherTest {
+
+    private final PinyinMatcher matcher = PinyinMatcher.getInstance();
+
+    @Test
+    public void correctsCommonTypos() {
+        assertEquals("tianjin", matcher.correct("tianjing"));
+        assertEquals("shanghai", matcher.correct("shanhai"));
+        assertEquals("beijing", matcher.correct("beijin"));
+        assertEquals("shenzhen", matcher.correct("shenzen"));
+        assertEquals("guangzhou", matcher.correct("guangzou"));
+    }
+
+    @Test
+    public void keepsKnownCitiesThatAreCloseToOtherCities() {
+        String[] cities = {
+                "shaoyang", "xinyang", "anshun", "fuyang", "puyang", "yiyang",
+                "jian", "hezhou", "chuzhou", "wuyi"
+        };
+        for (String city : cities) {
+            assertEquals(city, matcher.correct(city));
+        }
+    }
+
+    @Test
+    public void keepsTheCitiesTheyWereConfusedWith() {
+        String[] cities = {
+                "shenyang", "xianyang", "anshan", "guiyang", "xian", "huzhou", "wuxi"
+        };
+        for (String city : cities) {
+            assertEquals(city, matcher.correct(city));
+        }
+    }
+
+    @Test
+    public void passesKnownCitiesThroughUnchanged() {
+        assertEquals(" ShaoYang ", matcher.correct(" ShaoYang "));
+        assertEquals("Beijing", matcher.correct("Beijing"));
+    }
+
+    @Test
+    public void correctsTyposRegardlessOfCase() {
+        assertEquals("tianjin", matcher.correct(" TianJing "));
+    }
+
+    @Test
+    public void leavesNonPinyinInputUnchanged() {
+        assertEquals("北京", matcher.correct("北京"));
+        assertEquals("101010100", matcher.correct("101010100"));
+        assertEquals("116.40,39.90", matcher.correct("116.40,39.90"));
+        assertEquals("qwxzvbnm", matcher.correct("qwxzvbnm"));
+    }
+
+    @Test
+    public void editDistanceIsLevenshtein() {
+        assertEquals(0, PinyinMatcher.editDistance("xian", "xian"));
+        assertEquals(1, PinyinMatcher.editDistance("jian", "xian"));
+        assertEquals(2, PinyinMatcher.editDistance("shaoyang", "shenyang"));
+        assertEquals(3, PinyinMatcher.editDistance("", "abc"));
+    }
+}
@@ -0,0 +1,72 @@
+package com.microntek.weatherapp.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+public class WeatherDatesTest {
+
+    @Test
+    public void parsesEpochDay() {
+        assertEquals(0, WeatherDates.parseEpochDay("1970-01-01"));
+        assertEquals(LocalDate.of(2024, 2, 29).toEpochDay(), WeatherDates.parseEpochDay("2024-02-29"));
+        assertEquals(LocalDate.of(1900, 3, 1).toEpochDay(), WeatherDates.parseEpochDay("1900-03-01"));
+        assertEquals(Long.MIN_VALUE, WeatherDates.parseEpochDay("2024/02/29"));
+        assertEquals(Long.MIN_VALUE, WeatherDates.parseEpochDay("2024-13-01"));
+        assertEquals(Long.MIN_VALUE, WeatherDates.parseEpochDay("2024-1-1"));
+        assertEquals(Long.MIN_VALUE, WeatherDates.parseEpochDay(null));
+    }
+
+    @Test
+    public void parsesEpochSecond() {
+        String[] times = {"2024-05-01T08:00+08:00", "2021-12-31T23:55-05:30", "1970-01-01T00:00+00:00"};
+        for (String time : times) {
+            assertEquals(time, OffsetDateTime.parse(time).toEpochSecond(), WeatherDates.parseEpochSecond(time));
+        }
+        assertEquals(Long.MIN_VALUE, WeatherDates.parseEpochSecond("2024-05-01 08:00+08:00"));
+        assertEquals(Long.MIN_VALUE, WeatherDates.parseEpochSecond("2024-05-01T24:00+08:00"));
+        assertEquals(Long.MIN_VALUE, WeatherDates.parseEpochSecond("2024-05-01T08:00*08:00"));
+        assertEquals(Long.MIN_VALUE, WeatherDates.parseEpochSecond("2024-05-01T08:00"));
+        assertEquals(Long.MIN_VALUE, WeatherDates.parseEpochSecond(null));
+    }
+
+    @Test
+    public void dayOfWeek() {
+        assertEquals("星期四", WeatherDates.getDayOfWeek("1970-01-01"));
+        assertEquals("星期三", WeatherDates.getDayOfWeek("2024-05-01"));
+        assertEquals(WeatherDates.UNKNOWN_WEEKDAY, WeatherDates.getDayOfWeek("bad"));
+    }
+
+    @Test
+    public void parsingDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        String time = "2024-05-01T08:00+08:00";
+        String date = "2024-05-01";
+        int iterations = 100000;
+        long threadId = Thread.currentThread().getId();
+
+        long sum = 0;
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            sum += WeatherDates.parseEpochSecond(time);
+            sum += WeatherDates.parseEpochDay(date);
+            sum += WeatherDates.getDayOfWeek(date).length();
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(sum != 0);
+        // 每次解析截取一个子串就要分配几十字节，这里只允许测量本身的少量分配
+        assertTrue("解析分配了 " + allocated + " 字节", allocated < iterations);
+    }
+}
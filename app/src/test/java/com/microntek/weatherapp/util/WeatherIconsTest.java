@@ -0,0 +1,77 @@
+package com.microntek.weatherapp.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class WeatherIconsTest {
+
+    private static final Pattern ICON_FILE = Pattern.compile("icon_(\\d{3})\\.png");
+
+    /**
+     * res/drawable-nodpi中的图标代码，单元测试的工作目录为模块目录
+     */
+    private static Map<Integer, String> iconFiles() {
+        File directory = new File("src/main/res/drawable-nodpi");
+        File[] files = directory.listFiles();
+        assertTrue("找不到图标目录: " + directory.getAbsolutePath(), files != null);
+
+        Map<Integer, String> codes = new HashMap<>();
+        for (File file : files) {
+            Matcher matcher = ICON_FILE.matcher(file.getName());
+            if (matcher.matches()) {
+                codes.put(Integer.parseInt(matcher.group(1)), matcher.group(1));
+            }
+        }
+        assertFalse(codes.isEmpty());
+        return codes;
+    }
+
+    @Test
+    public void everyIconFileHasAResource() {
+        Map<Integer, Integer> resources = new HashMap<>();
+        for (Map.Entry<Integer, String> icon : iconFiles().entrySet()) {
+            String code = icon.getValue();
+            assertTrue("图标 " + code + " 没有在对照表中登记", WeatherIcons.hasIcon(code));
+
+            int resource = WeatherIcons.getIconResource(code);
+            assertNotEquals(0, resource);
+            assertEquals(resource, WeatherIcons.getIconResource(icon.getKey().intValue()));
+            if (icon.getKey() != 399) {
+                assertNotEquals("图标 " + code + " 映射到了默认图标", WeatherIcons.DEFAULT_ICON, resource);
+            }
+
+            Integer previous = resources.put(resource, icon.getKey());
+            assertTrue("图标 " + code + " 与 " + previous + " 映射到同一个资源", previous == null);
+        }
+    }
+
+    @Test
+    public void everyRegisteredCodeHasAnIconFile() {
+        Map<Integer, String> files = iconFiles();
+        for (int code = 0; code <= 999; code++) {
+            if (WeatherIcons.getIconResource(code) != WeatherIcons.DEFAULT_ICON || code == 399) {
+                assertTrue("对照表中的图标 " + code + " 没有对应的图片", files.containsKey(code));
+            }
+        }
+    }
+
+    @Test
+    public void unknownCodesUseTheDefaultIcon() {
+        assertFalse(WeatherIcons.hasIcon("105"));
+        assertFalse(WeatherIcons.hasIcon(null));
+        assertFalse(WeatherIcons.hasIcon("abc"));
+        assertEquals(WeatherIcons.DEFAULT_ICON, WeatherIcons.getIconResource("105"));
+        assertEquals(WeatherIcons.DEFAULT_ICON, WeatherIcons.getIconResource("1000"));
+        assertEquals(WeatherIcons.DEFAULT_ICON, WeatherIcons.getIconResource(-1));
+    }
+}